@@ -0,0 +1,96 @@
+package cuchaz.enigma.benchmark;
+
+import com.google.gson.Gson;
+import cuchaz.enigma.Enigma;
+import cuchaz.enigma.EnigmaProfile;
+import cuchaz.enigma.EnigmaProject;
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.analysis.ClassCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares decompilers on exporting the sources of the same jar. A decompiler is picked by its service id, as a profile
+ * would, so those of any plugin on the classpath can be measured with {@code -p decompiler=some:id}. Arguments for the
+ * service are given as {@code key=value} pairs separated by commas; Procyon is measured both with its type metadata
+ * shared between threads and without. The default jar is small; use {@code -p jar=path/to/some.jar} to measure against
+ * a large one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DecompileBenchmark {
+	@Param("build/test-obf/translation.jar")
+	public String jar;
+
+	@Param("enigma:procyon")
+	public String decompiler;
+
+	@Param({"metadata_sharing=shared", "metadata_sharing=per_thread"})
+	public String arguments;
+
+	private EnigmaProject.JarExport export;
+	private Path output;
+
+	@Setup
+	public void setup() throws IOException {
+		Enigma enigma = Enigma.builder()
+				.setProfile(createProfile())
+				.build();
+
+		// no source cache, so that every iteration decompiles
+		ClassCache classCache = ClassCache.of(Paths.get(jar));
+		EnigmaProject project = new EnigmaProject(enigma, classCache, classCache.index(ProgressListener.none()));
+		export = project.exportRemappedJar(ProgressListener.none());
+
+		output = Files.createTempDirectory("decompile-benchmark");
+	}
+
+	private EnigmaProfile createProfile() {
+		Map<String, String> args = new HashMap<>();
+		for (String argument : arguments.split(",")) {
+			int separator = argument.indexOf('=');
+			if (separator != -1) {
+				args.put(argument.substring(0, separator), argument.substring(separator + 1));
+			}
+		}
+
+		Map<String, Object> service = new HashMap<>();
+		service.put("id", decompiler);
+		service.put("args", args);
+
+		Map<String, Object> services = new HashMap<>();
+		services.put("decompiler", service);
+
+		Map<String, Object> profile = new HashMap<>();
+		profile.put("services", services);
+
+		return EnigmaProfile.parse(new StringReader(new Gson().toJson(profile)));
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		try (Stream<Path> paths = Files.walk(output)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public void decompile() throws IOException {
+		// sources are decompiled as they are written
+		export.decompile(ProgressListener.none()).write(output, ProgressListener.none());
+	}
+}
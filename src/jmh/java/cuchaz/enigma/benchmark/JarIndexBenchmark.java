@@ -0,0 +1,65 @@
+package cuchaz.enigma.benchmark;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.index.IndexClassVisitor;
+import cuchaz.enigma.analysis.index.IndexReferenceVisitor;
+import cuchaz.enigma.analysis.index.JarIndex;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the fused single-pass indexer against separate entry and reference passes over the same jar.
+ * Use {@code -p jar=path/to/some.jar} to run against a different jar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JarIndexBenchmark {
+	@Param("build/test-obf/translation.jar")
+	public String jar;
+
+	private ClassCache classCache;
+
+	@Setup
+	public void setup() throws IOException {
+		classCache = ClassCache.of(Paths.get(jar));
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		classCache.close();
+	}
+
+	@Benchmark
+	public JarIndex singlePass() {
+		JarIndex index = JarIndex.empty();
+		index.indexJar(classCache, ProgressListener.none(), false);
+		return index;
+	}
+
+	@Benchmark
+	public JarIndex singlePassParallel() {
+		JarIndex index = JarIndex.empty();
+		index.indexJar(classCache, ProgressListener.none(), true);
+		return index;
+	}
+
+	@Benchmark
+	public JarIndex twoPass() {
+		JarIndex index = JarIndex.empty();
+		classCache.visit(() -> new IndexClassVisitor(index, Opcodes.ASM5), ClassReader.SKIP_CODE);
+		classCache.visit(() -> new IndexReferenceVisitor(index, Opcodes.ASM5), ClassReader.SKIP_FRAMES);
+		index.getBridgeMethodIndex().findBridgeMethods();
+		index.processIndex(index);
+		return index;
+	}
+}
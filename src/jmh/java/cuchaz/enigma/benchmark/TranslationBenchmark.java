@@ -0,0 +1,83 @@
+package cuchaz.enigma.benchmark;
+
+import cuchaz.enigma.Enigma;
+import cuchaz.enigma.EnigmaProject;
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.index.EntryIndex;
+import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures translating every class, field and method of a jar through a mapping tree that renames all of them, which is
+ * what remapping a jar or a source spends most of its time on. Compare the numbers of two revisions to see how a change
+ * to the tree or the translator pays off. Use {@code -p jar=path/to/some.jar} to run against a different jar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TranslationBenchmark {
+	@Param("build/test-obf/translation.jar")
+	public String jar;
+
+	private final List<Entry<?>> entries = new ArrayList<>();
+	private EntryTree<EntryMapping> mappings;
+	private Translator translator;
+
+	@Setup
+	public void setup() throws IOException {
+		ClassCache classCache = ClassCache.of(Paths.get(jar));
+		EnigmaProject project = new EnigmaProject(Enigma.create(), classCache, classCache.index(ProgressListener.none()));
+
+		EntryIndex entryIndex = project.getJarIndex().getEntryIndex();
+		entries.addAll(entryIndex.getClasses());
+		entries.addAll(entryIndex.getFields());
+		entries.addAll(entryIndex.getMethods());
+
+		mappings = new HashEntryTree<>();
+		for (int i = 0; i < entries.size(); i++) {
+			Entry<?> entry = entries.get(i);
+			if (entry instanceof ClassEntry) {
+				mappings.insert(entry, new EntryMapping(((ClassEntry) entry).isInnerClass() ? "Class" + i : "deobf/Class" + i));
+			} else if (entry instanceof FieldEntry) {
+				mappings.insert(entry, new EntryMapping("field" + i));
+			} else if (entry instanceof MethodEntry && !((MethodEntry) entry).isConstructor()) {
+				mappings.insert(entry, new EntryMapping("method" + i));
+			}
+		}
+
+		project.setMappings(mappings);
+		translator = project.getMapper().getDeobfuscator();
+	}
+
+	@Benchmark
+	public void lookup(Blackhole blackhole) {
+		for (Entry<?> entry : entries) {
+			blackhole.consume(mappings.get(entry));
+		}
+	}
+
+	@Benchmark
+	public void translate(Blackhole blackhole) {
+		for (Entry<?> entry : entries) {
+			blackhole.consume(translator.translate(entry));
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.api.EnigmaPlugin;
+import cuchaz.enigma.api.EnigmaPluginContext;
+import cuchaz.enigma.api.service.DecompilerService;
+import cuchaz.enigma.source.procyon.MetadataSharing;
+import cuchaz.enigma.source.procyon.ProcyonDecompiler;
+
+import java.util.Locale;
+
+/**
+ * The services that come with Enigma, for profiles to choose between like those of any other plugin.
+ */
+final class BuiltinPlugin implements EnigmaPlugin {
+	@Override
+	public void init(EnigmaPluginContext ctx) {
+		ctx.registerService("enigma:procyon", DecompilerService.TYPE, serviceCtx -> {
+			MetadataSharing metadataSharing = serviceCtx.getArgument("metadata_sharing")
+					.map(argument -> MetadataSharing.valueOf(argument.toUpperCase(Locale.ROOT)))
+					.orElse(MetadataSharing.PER_THREAD);
+
+			return (classes, settings) -> new ProcyonDecompiler(classes, settings, metadataSharing);
+		});
+	}
+}
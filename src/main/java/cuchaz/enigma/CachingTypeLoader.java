@@ -1,26 +1,37 @@
 package cuchaz.enigma;
 
-import com.google.common.collect.Maps;
+import com.google.common.base.Throwables;
 import com.strobel.assembler.metadata.Buffer;
 import com.strobel.assembler.metadata.ITypeLoader;
 
-import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * Common cache functions
+ * <p>
+ * Safe to use from many threads at once. Each type is loaded by the first thread to ask for it, and any other thread
+ * asking for the same type waits for that load instead of blocking the whole cache.
  */
 public abstract class CachingTypeLoader implements ITypeLoader {
 	protected static final byte[] EMPTY_ARRAY = {};
 
-	private final Map<String, byte[]> cache = Maps.newHashMap();
+	private final ConcurrentMap<String, FutureTask<byte[]>> cache = new ConcurrentHashMap<>();
 
+	/**
+	 * Loads a type for the cache. This may be called from several threads at once, but never twice for the same name
+	 * unless the cache has been cleared.
+	 */
 	protected abstract byte[] doLoad(String className);
 
 	@Override
 	public boolean tryLoadType(String className, Buffer out) {
 
 		// check the cache
-		byte[] data = this.cache.computeIfAbsent(className, this::doLoad);
+		byte[] data = load(className);
 
 		if (data == EMPTY_ARRAY) {
 			return false;
@@ -32,6 +43,38 @@ public abstract class CachingTypeLoader implements ITypeLoader {
 		return true;
 	}
 
+	/**
+	 * Loads a type into the cache without copying it out, so that a caller about to take a lock can do the loading
+	 * before it.
+	 */
+	void preload(String className) {
+		load(className);
+	}
+
+	private byte[] load(String className) {
+		FutureTask<byte[]> task = cache.get(className);
+		if (task == null) {
+			FutureTask<byte[]> newTask = new FutureTask<>(() -> doLoad(className));
+			task = cache.putIfAbsent(className, newTask);
+			if (task == null) {
+				task = newTask;
+				newTask.run();
+			}
+		}
+
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Interrupted while loading " + className);
+		} catch (ExecutionException e) {
+			// failed loads aren't cached, so that the next attempt can try again
+			cache.remove(className, task);
+			Throwables.throwIfUnchecked(e.getCause());
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
 	public void clearCache() {
 		this.cache.clear();
 	}
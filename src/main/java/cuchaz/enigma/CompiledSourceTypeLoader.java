@@ -71,8 +71,6 @@ public class CompiledSourceTypeLoader extends CachingTypeLoader {
 			return null;
 		}
 
-		removeRedundantClassCalls(node);
-
 		ClassWriter writer = new ClassWriter(0);
 
 		ClassVisitor visitor = writer;
@@ -80,7 +78,11 @@ public class CompiledSourceTypeLoader extends CachingTypeLoader {
 			visitor = visitorFunction.apply(visitor);
 		}
 
-		node.accept(visitor);
+		// inner classes fall back to the node of their outer class, which other threads may be loading at the same time
+		synchronized (node) {
+			removeRedundantClassCalls(node);
+			node.accept(visitor);
+		}
 
 		// we have a transformed class!
 		return writer.toByteArray();
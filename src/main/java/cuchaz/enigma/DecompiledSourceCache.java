@@ -0,0 +1,293 @@
+package cuchaz.enigma;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import cuchaz.enigma.analysis.SourceIndex;
+import cuchaz.enigma.analysis.index.SnapshotInput;
+import cuchaz.enigma.analysis.index.SnapshotOutput;
+import cuchaz.enigma.source.Decompiler;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.Remapper;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Decompiled sources stored on disk, so that a class is only decompiled again once something that can change its
+ * source has changed.
+ * <p>
+ * Sources are addressed by a hash of the decompiler settings and of the bytecode the decompiler reads for the class:
+ * its own, its inner classes', that of every class they refer to, and the ancestors of all of those, as found by
+ * {@link #collectDependencies}. When exporting, that bytecode has already been remapped, so the key also covers exactly
+ * the mappings that show up in the class. Classes only reachable through other classes aren't part of the key, so a
+ * change that only shows in the source through two or more levels of references is missed until the class itself or
+ * one of its direct dependencies changes. Because of that the cache is only used when the profile turns it on.
+ * <p>
+ * Entries are never invalidated, only left unused. Since they are addressed by content, every jar shares the same
+ * directory. Once the cache grows past its maximum size, the least recently used entries are deleted, and the whole
+ * directory can be deleted at any time.
+ */
+public final class DecompiledSourceCache {
+	private static final int FORMAT_VERSION = 2;
+
+	public static final long DEFAULT_MAXIMUM_SIZE = 256L * Constants.MiB;
+
+	private final Path directory;
+	private final long maximumSize;
+
+	// bytes written since the cache was last trimmed, which is done again once they reach a fraction of the maximum
+	private final AtomicLong writtenSize = new AtomicLong();
+
+	public DecompiledSourceCache(Path directory) {
+		this(directory, DEFAULT_MAXIMUM_SIZE);
+	}
+
+	public DecompiledSourceCache(Path directory, long maximumSize) {
+		this.directory = directory;
+		this.maximumSize = maximumSize;
+	}
+
+	public static Path getDefaultDirectory() {
+		return Paths.get(System.getProperty("user.home"), ".enigma", "cache", "sources");
+	}
+
+	/**
+	 * @param kind       what is being cached, so that differently processed sources of the same class don't collide
+	 * @param classNames the classes whose bytecode can affect the source
+	 */
+	public static HashCode createKey(String kind, Decompiler decompiler, Collection<String> classNames) {
+		Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putInt(FORMAT_VERSION);
+		hasher.putString(Constants.VERSION, StandardCharsets.UTF_8);
+		// decompilers read classes from the runtime too, which only change with it
+		hasher.putString(System.getProperty("java.version"), StandardCharsets.UTF_8);
+		hasher.putString(kind, StandardCharsets.UTF_8);
+		decompiler.hashInputs(hasher, classNames);
+
+		return hasher.hash();
+	}
+
+	/**
+	 * @param classNames the outermost class and its inner classes
+	 * @param classBytes the bytecode of a class of the jar, or {@code null} for classes from elsewhere
+	 * @return the classes whose bytecode can affect the source of the given classes: themselves, every class they refer
+	 * to, and all the ancestors of those that are in the jar
+	 */
+	public static Set<String> collectDependencies(Collection<String> classNames, Function<String, byte[]> classBytes) {
+		Set<String> referencedClasses = new HashSet<>(classNames);
+
+		Remapper collector = new Remapper() {
+			@Override
+			public String map(String internalName) {
+				referencedClasses.add(internalName);
+				return internalName;
+			}
+		};
+
+		for (String className : classNames) {
+			byte[] bytes = classBytes.apply(className);
+			if (bytes != null) {
+				// the remapper only looks into the code of methods that something visits
+				new ClassReader(bytes).accept(new ClassRemapper(new ClassVisitor(Opcodes.ASM7) {
+					@Override
+					public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+						return new MethodVisitor(Opcodes.ASM7) {
+						};
+					}
+				}, collector), ClassReader.SKIP_FRAMES);
+			}
+		}
+
+		Set<String> dependencies = new HashSet<>();
+		Deque<String> queue = new ArrayDeque<>(referencedClasses);
+		while (!queue.isEmpty()) {
+			String name = queue.remove();
+			if (!dependencies.add(name)) {
+				continue;
+			}
+
+			byte[] bytes = classBytes.apply(name);
+			if (bytes != null) {
+				ClassReader reader = new ClassReader(bytes);
+				if (reader.getSuperName() != null) {
+					queue.add(reader.getSuperName());
+				}
+				queue.addAll(Arrays.asList(reader.getInterfaces()));
+			}
+		}
+
+		return dependencies;
+	}
+
+	@Nullable
+	public String getSource(HashCode key) {
+		byte[] bytes = read(getPath(key, ".java"));
+		return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+	}
+
+	public void putSource(HashCode key, String source) {
+		write(getPath(key, ".java"), source.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @return the source index stored for the key, with its references not yet resolved
+	 */
+	@Nullable
+	public SourceIndex getIndex(HashCode key) {
+		byte[] bytes = read(getPath(key, ".index"));
+		if (bytes == null) {
+			return null;
+		}
+
+		try {
+			return SourceIndex.read(new SnapshotInput(ByteBuffer.wrap(bytes)));
+		} catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException | NegativeArraySizeException | ClassCastException e) {
+			// truncated or otherwise corrupt, same as not being cached
+			return null;
+		}
+	}
+
+	public void putIndex(HashCode key, SourceIndex index) {
+		try {
+			SnapshotOutput output = new SnapshotOutput();
+			index.write(output);
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (DataOutputStream out = new DataOutputStream(bytes)) {
+				output.writeTo(out);
+			}
+
+			write(getPath(key, ".index"), bytes.toByteArray());
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Failed to cache source index of " + key);
+			e.printStackTrace();
+		}
+	}
+
+	private Path getPath(HashCode key, String extension) {
+		String name = key.toString();
+		return directory.resolve(name.substring(0, 2)).resolve(name + extension);
+	}
+
+	@Nullable
+	private static byte[] read(Path path) {
+		try {
+			byte[] bytes = Files.readAllBytes(path);
+			// marks the entry as used, for trimming
+			Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+			return bytes;
+		} catch (NoSuchFileException | ClosedByInterruptException e) {
+			// an interrupted reader has given up on the source anyway
+			return null;
+		} catch (IOException e) {
+			System.err.println("Failed to read cached source '" + path + "'");
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	private void write(Path path, byte[] bytes) {
+		// the source is still usable, it will just have to be decompiled again next time
+		try {
+			Files.createDirectories(path.getParent());
+
+			Path tempPath = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+			try {
+				Files.write(tempPath, bytes);
+				Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tempPath);
+			}
+		} catch (ClosedByInterruptException e) {
+			// written again by whoever decompiles the class next
+		} catch (IOException e) {
+			System.err.println("Failed to cache source '" + path + "'");
+			e.printStackTrace();
+		}
+
+		if (writtenSize.addAndGet(bytes.length) >= maximumSize / 4) {
+			writtenSize.set(0);
+			trim();
+		}
+	}
+
+	/**
+	 * Deletes the least recently used entries until the cache is no larger than its maximum size.
+	 */
+	public synchronized void trim() {
+		if (!Files.isDirectory(directory)) {
+			return;
+		}
+
+		List<CachedFile> files;
+		try (Stream<Path> paths = Files.walk(directory)) {
+			// temporary files are still being written
+			files = paths.filter(path -> !path.getFileName().toString().endsWith(".tmp"))
+					.map(CachedFile::of)
+					.filter(Objects::nonNull)
+					.sorted(Comparator.comparing((CachedFile file) -> file.lastModified).reversed())
+					.collect(Collectors.toList());
+		} catch (IOException | UncheckedIOException e) {
+			System.err.println("Failed to trim source cache '" + directory + "'");
+			e.printStackTrace();
+			return;
+		}
+
+		long size = 0;
+		for (CachedFile file : files) {
+			size += file.size;
+			if (size > maximumSize) {
+				try {
+					Files.deleteIfExists(file.path);
+				} catch (IOException e) {
+					System.err.println("Failed to delete cached source '" + file.path + "'");
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	private static final class CachedFile {
+		private final Path path;
+		private final long size;
+		private final FileTime lastModified;
+
+		private CachedFile(Path path, long size, FileTime lastModified) {
+			this.path = path;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		@Nullable
+		static CachedFile of(Path path) {
+			try {
+				BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+				return attributes.isRegularFile() ? new CachedFile(path, attributes.size(), attributes.lastModifiedTime()) : null;
+			} catch (IOException e) {
+				// deleted meanwhile
+				return null;
+			}
+		}
+	}
+}
@@ -15,6 +15,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import cuchaz.enigma.analysis.ClassCache;
 import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.analysis.index.JarIndexSnapshot;
 import cuchaz.enigma.api.EnigmaPlugin;
 import cuchaz.enigma.api.EnigmaPluginContext;
 import cuchaz.enigma.api.service.EnigmaService;
@@ -44,14 +45,16 @@ public class Enigma {
 	}
 
 	public EnigmaProject openJar(Path path, ProgressListener progress) throws IOException {
-		ClassCache classCache = ClassCache.of(path);
-		JarIndex jarIndex = classCache.index(progress);
+		ClassCache classCache = ClassCache.of(path, profile.getClassCacheParameters());
+		JarIndex jarIndex = profile.isIndexSnapshotEnabled() ? JarIndexSnapshot.loadOrIndex(path, classCache, progress) : classCache.index(progress);
 
 		services.get(JarIndexerService.TYPE).ifPresent(indexer -> {
 			indexer.acceptJar(classCache, jarIndex);
 		});
 
-		return new EnigmaProject(this, classCache, jarIndex);
+		DecompiledSourceCache sourceCache = profile.isSourceCacheEnabled() ? new DecompiledSourceCache(DecompiledSourceCache.getDefaultDirectory(), profile.getSourceCacheSize()) : null;
+
+		return new EnigmaProject(this, classCache, jarIndex, sourceCache);
 	}
 
 	public EnigmaProfile getProfile() {
@@ -83,6 +86,7 @@ public class Enigma {
 
 		public Enigma build() {
 			PluginContext pluginContext = new PluginContext(profile);
+			new BuiltinPlugin().init(pluginContext);
 			for (EnigmaPlugin plugin : plugins) {
 				plugin.init(pluginContext);
 			}
@@ -3,6 +3,7 @@ package cuchaz.enigma;
 import com.google.common.collect.ImmutableMap;
 import com.google.gson.Gson;
 import com.google.gson.annotations.SerializedName;
+import cuchaz.enigma.analysis.ClassCacheParameters;
 import cuchaz.enigma.api.service.EnigmaServiceType;
 import cuchaz.enigma.translation.mapping.MappingFileNameFormat;
 import cuchaz.enigma.translation.mapping.MappingSaveParameters;
@@ -24,6 +25,18 @@ public final class EnigmaProfile {
 	@SerializedName("mapping_save_parameters")
 	private final MappingSaveParameters mappingSaveParameters = null;
 
+	@SerializedName("class_cache_parameters")
+	private final ClassCacheParameters classCacheParameters = null;
+
+	@SerializedName("index_snapshots")
+	private final Boolean indexSnapshots = null;
+
+	@SerializedName("source_cache")
+	private final Boolean sourceCache = null;
+
+	@SerializedName("source_cache_size")
+	private final Long sourceCacheSize = null;
+
 	private EnigmaProfile(Map<String, Service> serviceProfiles) {
 		this.serviceProfiles = serviceProfiles;
 	}
@@ -42,6 +55,38 @@ public final class EnigmaProfile {
 		return mappingSaveParameters == null ? EnigmaProfile.DEFAULT_MAPPING_SAVE_PARAMETERS : mappingSaveParameters;
 	}
 
+	public ClassCacheParameters getClassCacheParameters() {
+		//noinspection ConstantConditions
+		return classCacheParameters == null ? ClassCacheParameters.DEFAULT : classCacheParameters;
+	}
+
+	/**
+	 * Whether opening a jar should reuse, or write, a snapshot of its index next to it. Enabled unless the profile
+	 * turns it off.
+	 */
+	public boolean isIndexSnapshotEnabled() {
+		//noinspection ConstantConditions
+		return indexSnapshots == null || indexSnapshots;
+	}
+
+	/**
+	 * Whether decompiled sources should be kept in a cache in the user's home directory, so that unchanged classes
+	 * don't have to be decompiled again. Disabled unless the profile turns it on, since a source can go stale when a
+	 * class it only reaches indirectly changes.
+	 */
+	public boolean isSourceCacheEnabled() {
+		//noinspection ConstantConditions
+		return sourceCache != null && sourceCache;
+	}
+
+	/**
+	 * Bytes the source cache may take on disk before the least recently used sources are deleted.
+	 */
+	public long getSourceCacheSize() {
+		//noinspection ConstantConditions
+		return sourceCacheSize == null ? DecompiledSourceCache.DEFAULT_MAXIMUM_SIZE : sourceCacheSize;
+	}
+
 	public static class Service {
 		private final String id;
 		private final Map<String, String> args;
@@ -1,66 +1,166 @@
 package cuchaz.enigma;
 
-import com.google.common.base.Functions;
-import com.strobel.assembler.metadata.ITypeLoader;
-import com.strobel.assembler.metadata.MetadataSystem;
-import com.strobel.decompiler.DecompilerSettings;
-import com.strobel.decompiler.languages.java.ast.CompilationUnit;
+import com.google.common.base.Throwables;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import cuchaz.enigma.analysis.ClassCache;
 import cuchaz.enigma.analysis.EntryReference;
 import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.analysis.index.JarIndexSnapshot;
+import cuchaz.enigma.api.service.DecompilerService;
+import cuchaz.enigma.api.service.JarIndexerService;
 import cuchaz.enigma.bytecode.translators.SourceFixVisitor;
 import cuchaz.enigma.bytecode.translators.TranslationClassVisitor;
+import cuchaz.enigma.source.Decompiler;
+import cuchaz.enigma.source.Decompilers;
+import cuchaz.enigma.source.SourceSettings;
 import cuchaz.enigma.translation.Translator;
 import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.EntryRemapper;
 import cuchaz.enigma.translation.mapping.MappingsChecker;
-import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.FrozenEntryTree;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.ClassNode;
 
+import javax.annotation.Nullable;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class EnigmaProject {
 	private final Enigma enigma;
 
-	private final ClassCache classCache;
+	private ClassCache classCache;
 	private final JarIndex jarIndex;
+	@Nullable
+	private final DecompiledSourceCache sourceCache;
 
 	private EntryRemapper mapper;
 
 	public EnigmaProject(Enigma enigma, ClassCache classCache, JarIndex jarIndex) {
+		this(enigma, classCache, jarIndex, null);
+	}
+
+	public EnigmaProject(Enigma enigma, ClassCache classCache, JarIndex jarIndex, @Nullable DecompiledSourceCache sourceCache) {
 		this.enigma = enigma;
 		this.classCache = classCache;
 		this.jarIndex = jarIndex;
+		this.sourceCache = sourceCache;
 
 		this.mapper = EntryRemapper.empty(jarIndex);
 	}
 
+	/**
+	 * Switches this project over to a new version of its jar. Only the classes that differ from the current jar are
+	 * indexed again, and the mappings are kept as they are.
+	 *
+	 * @return the names of the classes that were added, removed or changed
+	 */
+	public Set<String> reloadJar(Path path, ProgressListener progress) throws IOException {
+		ClassCache reloadedClassCache = ClassCache.of(path, enigma.getProfile().getClassCacheParameters());
+
+		Set<String> changedClasses;
+		try {
+			changedClasses = reloadedClassCache.getChangedClasses(classCache);
+		} catch (RuntimeException e) {
+			reloadedClassCache.close();
+			throw e;
+		}
+
+		try {
+			jarIndex.reindexClasses(reloadedClassCache, changedClasses, progress);
+		} catch (RuntimeException e) {
+			// the index has already dropped the old versions of the changed classes, so they are put back, to match the
+			// jar that is kept
+			try {
+				jarIndex.reindexClasses(classCache, changedClasses, ProgressListener.none());
+			} catch (RuntimeException restoreFailure) {
+				e.addSuppressed(restoreFailure);
+			}
+
+			reloadedClassCache.close();
+			throw e;
+		}
+
+		ClassCache previousClassCache = classCache;
+		classCache = reloadedClassCache;
+		previousClassCache.close();
+
+		enigma.getServices().get(JarIndexerService.TYPE).ifPresent(indexer -> {
+			indexer.acceptJar(classCache, jarIndex);
+		});
+
+		if (enigma.getProfile().isIndexSnapshotEnabled()) {
+			JarIndexSnapshot.update(path, jarIndex);
+		}
+
+		return changedClasses;
+	}
+
 	public void setMappings(EntryTree<EntryMapping> mappings) {
+		setMappings(mappings, false);
+	}
+
+	/**
+	 * @param readOnly whether the mappings will only be read from now on, such as when just exporting. They are then
+	 *                 kept in a {@link FrozenEntryTree}, which takes less memory, and changing them throws.
+	 */
+	public void setMappings(EntryTree<EntryMapping> mappings, boolean readOnly) {
 		if (mappings != null) {
-			mapper = EntryRemapper.mapped(jarIndex, mappings);
+			mapper = EntryRemapper.mapped(jarIndex, readOnly ? new FrozenEntryTree<>(mappings) : mappings);
 		} else {
 			mapper = EntryRemapper.empty(jarIndex);
 		}
 	}
 
+	/**
+	 * @return the decompiler the profile asks for, or Procyon if it doesn't
+	 */
+	public DecompilerService getDecompilerService() {
+		return enigma.getServices().get(DecompilerService.TYPE).orElse(Decompilers.PROCYON);
+	}
+
 	public Enigma getEnigma() {
 		return enigma;
 	}
@@ -73,16 +173,22 @@ public class EnigmaProject {
 		return jarIndex;
 	}
 
+	/**
+	 * @return the cache of decompiled sources, or {@code null} if sources aren't cached
+	 */
+	@Nullable
+	public DecompiledSourceCache getSourceCache() {
+		return sourceCache;
+	}
+
 	public EntryRemapper getMapper() {
 		return mapper;
 	}
 
 	public void dropMappings(ProgressListener progress) {
-		DeltaTrackingTree<EntryMapping> mappings = mapper.getObfToDeobf();
-
-		Collection<Entry<?>> dropped = dropMappings(mappings, progress);
+		Collection<Entry<?>> dropped = dropMappings(mapper.getObfToDeobf(), progress);
 		for (Entry<?> entry : dropped) {
-			mappings.trackChange(entry);
+			mapper.trackChange(entry);
 		}
 	}
 
@@ -139,6 +245,112 @@ public class EnigmaProject {
 		return obfReference.isNamed() && isRenamable(obfReference.getNameableEntry());
 	}
 
+	/**
+	 * Writes the jar with the current mappings applied. Classes are translated in parallel straight from the original
+	 * bytecode, and written in the order of the original jar along with its other files, which are copied as they are.
+	 * Only a few classes are held in memory at a time.
+	 *
+	 * @throws IllegalStateException if the mappings give two entries the same name, in which case nothing is written
+	 */
+	public void writeRemappedJar(Path path, ProgressListener progress) throws IOException {
+		Translator deobfuscator = mapper.getDeobfuscator();
+
+		List<String> entryNames = classCache.getEntryNames().stream()
+				.filter(name -> !isSignatureFile(name))
+				.collect(Collectors.toList());
+
+		// checked before the jar is opened, rather than left for the jar to fail on halfway through
+		Map<String, String> remappedNames = new HashMap<>();
+		for (String name : entryNames) {
+			String remappedName = remapEntryName(name, deobfuscator);
+			String collidingName = remappedNames.putIfAbsent(remappedName, name);
+			if (collidingName != null) {
+				throw new IllegalStateException(String.format("Unable to write jar: %s and %s are both mapped to %s", collidingName, name, remappedName));
+			}
+		}
+
+		progress.init(entryNames.size(), "Writing jar...");
+
+		// enough entries in flight to keep every thread busy, while the one in front is waited on
+		int window = ForkJoinPool.getCommonPoolParallelism() * 4;
+		Deque<CompletableFuture<RemappedEntry>> pending = new ArrayDeque<>();
+
+		try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(path))) {
+			Iterator<String> names = entryNames.iterator();
+			int count = 0;
+
+			while (names.hasNext() || !pending.isEmpty()) {
+				while (names.hasNext() && pending.size() < window) {
+					String name = names.next();
+					pending.add(CompletableFuture.supplyAsync(() -> remapEntry(name, deobfuscator)));
+				}
+
+				RemappedEntry entry;
+				try {
+					entry = pending.remove().join();
+				} catch (CompletionException e) {
+					if (e.getCause() instanceof UncheckedIOException) {
+						throw ((UncheckedIOException) e.getCause()).getCause();
+					}
+					throw e;
+				}
+
+				progress.step(count++, entry.name);
+
+				out.putNextEntry(new JarEntry(entry.name));
+				out.write(entry.bytes);
+				out.closeEntry();
+			}
+		} finally {
+			pending.forEach(future -> future.cancel(false));
+		}
+	}
+
+	private static String remapEntryName(String name, Translator deobfuscator) {
+		if (!name.endsWith(".class")) {
+			return name;
+		}
+
+		ClassEntry classEntry = new ClassEntry(name.substring(0, name.length() - ".class".length()));
+		return deobfuscator.translate(classEntry).getFullName() + ".class";
+	}
+
+	private RemappedEntry remapEntry(String name, Translator deobfuscator) {
+		try {
+			if (!name.endsWith(".class")) {
+				return new RemappedEntry(name, classCache.readEntry(name));
+			}
+
+			ClassWriter writer = new ClassWriter(0);
+			classCache.acceptClass(name.substring(0, name.length() - ".class".length()), new TranslationClassVisitor(deobfuscator, Opcodes.ASM5, writer));
+
+			byte[] bytes = writer.toByteArray();
+			return new RemappedEntry(new ClassReader(bytes).getClassName() + ".class", bytes);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static boolean isSignatureFile(String name) {
+		// signatures of the original classes would fail to verify against the remapped ones
+		if (!name.startsWith("META-INF/") || name.indexOf('/', "META-INF/".length()) != -1) {
+			return false;
+		}
+
+		String upperName = name.toUpperCase(Locale.ROOT);
+		return upperName.endsWith(".SF") || upperName.endsWith(".RSA") || upperName.endsWith(".DSA") || upperName.endsWith(".EC");
+	}
+
+	private static final class RemappedEntry {
+		private final String name;
+		private final byte[] bytes;
+
+		RemappedEntry(String name, byte[] bytes) {
+			this.name = name;
+			this.bytes = bytes;
+		}
+	}
+
 	public JarExport exportRemappedJar(ProgressListener progress) {
 		Collection<ClassEntry> classEntries = jarIndex.getEntryIndex().getClasses();
 		Translator deobfuscator = mapper.getDeobfuscator();
@@ -146,33 +358,38 @@ public class EnigmaProject {
 		AtomicInteger count = new AtomicInteger();
 		progress.init(classEntries.size(), "Deobfuscating classes...");
 
-		Map<String, ClassNode> compiled = classEntries.parallelStream()
-				.map(entry -> {
-					ClassEntry translatedEntry = deobfuscator.translate(entry);
-					progress.step(count.getAndIncrement(), translatedEntry.toString());
+		// kept as bytecode rather than as trees, which take several times the memory
+		Map<String, byte[]> compiled = new ConcurrentHashMap<>();
+		classEntries.parallelStream().forEach(entry -> {
+			ClassEntry translatedEntry = deobfuscator.translate(entry);
+			progress.step(count.getAndIncrement(), translatedEntry.toString());
 
-					ClassNode node = classCache.getClassNode(entry.getFullName());
-					if (node != null) {
-						ClassNode translatedNode = new ClassNode();
-						node.accept(new TranslationClassVisitor(deobfuscator, Opcodes.ASM5, translatedNode));
-						return translatedNode;
-					}
+			ClassNode node = classCache.getClassNode(entry.getFullName());
+			if (node != null) {
+				ClassNode translatedNode = new ClassNode();
+				node.accept(new TranslationClassVisitor(deobfuscator, Opcodes.ASM5, translatedNode));
 
-					return null;
-				})
-				.filter(Objects::nonNull)
-				.collect(Collectors.toMap(n -> n.name, Functions.identity()));
+				ClassWriter writer = new ClassWriter(0);
+				translatedNode.accept(writer);
+				compiled.put(translatedNode.name, writer.toByteArray());
+			}
+		});
 
-		return new JarExport(jarIndex, compiled);
+		return new JarExport(jarIndex, compiled, sourceCache, getDecompilerService());
 	}
 
 	public static final class JarExport {
 		private final JarIndex jarIndex;
-		private final Map<String, ClassNode> compiled;
+		private final Map<String, byte[]> compiled;
+		@Nullable
+		private final DecompiledSourceCache sourceCache;
+		private final DecompilerService decompilerService;
 
-		JarExport(JarIndex jarIndex, Map<String, ClassNode> compiled) {
+		JarExport(JarIndex jarIndex, Map<String, byte[]> compiled, @Nullable DecompiledSourceCache sourceCache, DecompilerService decompilerService) {
 			this.jarIndex = jarIndex;
 			this.compiled = compiled;
+			this.sourceCache = sourceCache;
+			this.decompilerService = decompilerService;
 		}
 
 		public void write(Path path, ProgressListener progress) throws IOException {
@@ -181,96 +398,301 @@ public class EnigmaProject {
 			try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(path))) {
 				AtomicInteger count = new AtomicInteger();
 
-				for (ClassNode node : this.compiled.values()) {
-					progress.step(count.getAndIncrement(), node.name);
-
-					String entryName = node.name.replace('.', '/') + ".class";
+				for (Map.Entry<String, byte[]> entry : this.compiled.entrySet()) {
+					progress.step(count.getAndIncrement(), entry.getKey());
 
-					ClassWriter writer = new ClassWriter(0);
-					node.accept(writer);
+					String entryName = entry.getKey().replace('.', '/') + ".class";
 
 					out.putNextEntry(new JarEntry(entryName));
-					out.write(writer.toByteArray());
+					out.write(entry.getValue());
 					out.closeEntry();
 				}
 			}
 		}
 
+		/**
+		 * Prepares a decompile of every class. Classes are only decompiled once the export is written, and are written
+		 * out as they are decompiled. Files already in the directory written to are only ever overwritten, never
+		 * deleted.
+		 */
 		public SourceExport decompile(ProgressListener progress) {
-			Collection<ClassNode> classes = this.compiled.values().stream()
-					.filter(classNode -> classNode.name.indexOf('$') == -1)
-					.collect(Collectors.toList());
+			return new SourceExport(this, null, null);
+		}
 
-			progress.init(classes.size(), "Decompiling classes...");
+		/**
+		 * Only decompiles the classes whose sources could differ from those of an earlier export to the given directory.
+		 * The result has to be written to that same directory.
+		 */
+		public SourceExport decompileIncrementally(Path path, ProgressListener progress) {
+			return new SourceExport(this, path, SourceManifest.read(path));
+		}
 
-			//create a common instance outside the loop as mappings shouldn't be changing while this is happening
-			CompiledSourceTypeLoader typeLoader = new CompiledSourceTypeLoader(this.compiled::get);
-			typeLoader.addVisitor(visitor -> new SourceFixVisitor(Opcodes.ASM5, visitor, jarIndex));
+		@Nullable
+		private ClassNode readClassNode(String name) {
+			byte[] bytes = this.compiled.get(name);
+			if (bytes == null) {
+				return null;
+			}
 
-			//synchronized to make sure the parallelStream doesn't CME with the cache
-			ITypeLoader synchronizedTypeLoader = new SynchronizedTypeLoader(typeLoader);
+			ClassNode node = new ClassNode();
+			new ClassReader(bytes).accept(new SourceFixVisitor(Opcodes.ASM5, node, jarIndex), 0);
+			return node;
+		}
 
-			MetadataSystem metadataSystem = new NoRetryMetadataSystem(synchronizedTypeLoader);
+		/**
+		 * @param stopped checked before each class, so that classes nobody will write aren't decompiled
+		 */
+		private void decompile(ProgressListener progress, @Nullable Path incrementalRoot, @Nullable SourceManifest previousManifest, BooleanSupplier stopped, Consumer<ClassSource> consumer) {
+			List<String> classes = this.compiled.keySet().stream()
+					.filter(name -> name.indexOf('$') == -1)
+					.collect(Collectors.toList());
 
-			//ensures methods are loaded on classload and prevents race conditions
-			metadataSystem.setEagerMethodLoadingEnabled(true);
+			//create a common instance outside the loop as mappings shouldn't be changing while this is happening
+			Decompiler decompiler = decompilerService.create(this::readClassNode, new SourceSettings(false, false));
 
-			DecompilerSettings settings = SourceProvider.createSettings();
-			SourceProvider sourceProvider = new SourceProvider(settings, synchronizedTypeLoader, metadataSystem);
+			Multimap<String, String> innerClasses = HashMultimap.create();
+			for (String name : this.compiled.keySet()) {
+				int innerIndex = name.indexOf('$');
+				if (innerIndex != -1) {
+					innerClasses.put(name.substring(0, innerIndex), name);
+				}
+			}
 
+			progress.init(classes.size(), "Decompiling classes...");
 			AtomicInteger count = new AtomicInteger();
 
-			Collection<ClassSource> decompiled = classes.parallelStream()
-					.map(translatedNode -> {
-						progress.step(count.getAndIncrement(), translatedNode.name);
-
-						String source = decompileClass(translatedNode, sourceProvider);
-						return new ClassSource(translatedNode.name, source);
-					})
-					.collect(Collectors.toList());
+			classes.parallelStream().forEach(name -> {
+				if (stopped.getAsBoolean()) {
+					return;
+				}
 
-			return new SourceExport(decompiled);
+				progress.step(count.getAndIncrement(), name);
+				consumer.accept(decompileClass(name, decompiler, innerClasses, incrementalRoot, previousManifest));
+			});
 		}
 
-		private String decompileClass(ClassNode translatedNode, SourceProvider sourceProvider) {
-			CompilationUnit sourceTree = sourceProvider.getSources(translatedNode.name);
+		private ClassSource decompileClass(String name, Decompiler decompiler, Multimap<String, String> innerClasses, @Nullable Path incrementalRoot, @Nullable SourceManifest previousManifest) {
+			HashCode key = DecompiledSourceCache.createKey("export", decompiler, collectSourceDependencies(name, innerClasses));
+
+			if (previousManifest != null && previousManifest.isUpToDate(name, key, ClassSource.resolvePath(incrementalRoot, name))) {
+				return new ClassSource(name, key, null);
+			}
+
+			if (sourceCache != null) {
+				String source = sourceCache.getSource(key);
+				if (source != null) {
+					return new ClassSource(name, key, source);
+				}
+			}
+
+			String source = decompiler.getSource(name).asString();
+			if (sourceCache != null) {
+				sourceCache.putSource(key, source);
+			}
+
+			return new ClassSource(name, key, source);
+		}
 
-			StringWriter writer = new StringWriter();
-			sourceProvider.writeSource(writer, sourceTree);
+		private Set<String> collectSourceDependencies(String className, Multimap<String, String> innerClasses) {
+			Set<String> classNames = new HashSet<>(innerClasses.get(className));
+			classNames.add(className);
 
-			return writer.toString();
+			return DecompiledSourceCache.collectDependencies(classNames, this.compiled::get);
 		}
 	}
 
+	/**
+	 * A decompile that runs as it is written. Decompiled classes are handed to writer threads through a bounded queue,
+	 * so only a few sources are held in memory at a time, and writing overlaps decompiling.
+	 * <p>
+	 * The first failure, whether decompiling, writing, or the writing thread being interrupted, stops the whole export.
+	 * Everybody waiting on the queue checks for it at least every {@link #POLL_INTERVAL_MS} milliseconds, so nothing is
+	 * left blocked on a queue that nobody takes from or puts to any more.
+	 */
 	public static final class SourceExport {
-		private final Collection<ClassSource> decompiled;
-
-		SourceExport(Collection<ClassSource> decompiled) {
-			this.decompiled = decompiled;
+		private static final int QUEUE_CAPACITY = 64;
+		private static final int WRITER_COUNT = 2;
+		private static final long POLL_INTERVAL_MS = 100;
+
+		private static final ClassSource END = new ClassSource("", HashCode.fromInt(0), null);
+
+		private final JarExport jarExport;
+		@Nullable
+		private final Path incrementalRoot;
+		@Nullable
+		private final SourceManifest previousManifest;
+
+		SourceExport(JarExport jarExport, @Nullable Path incrementalRoot, @Nullable SourceManifest previousManifest) {
+			this.jarExport = jarExport;
+			this.incrementalRoot = incrementalRoot;
+			this.previousManifest = previousManifest;
 		}
 
 		public void write(Path path, ProgressListener progress) throws IOException {
-			progress.init(decompiled.size(), "Writing sources...");
+			if (incrementalRoot != null && !incrementalRoot.equals(path)) {
+				throw new IllegalArgumentException("Sources decompiled against '" + incrementalRoot + "' can't be written to '" + path + "'");
+			}
 
-			int count = 0;
-			for (ClassSource source : decompiled) {
-				progress.step(count++, source.name);
+			// only an incremental export owns the files of the last one, and may delete those of classes that are gone
+			SourceManifest previous = previousManifest != null ? previousManifest : new SourceManifest();
+			SourceManifest manifest = new SourceManifest();
+
+			BlockingQueue<ClassSource> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+			AtomicReference<Throwable> failure = new AtomicReference<>();
 
-				Path sourcePath = source.resolvePath(path);
-				source.writeTo(sourcePath);
+			ExecutorService writers = Executors.newFixedThreadPool(WRITER_COUNT, new ThreadFactoryBuilder()
+					.setDaemon(true)
+					.setNameFormat("source-writer-%d")
+					.build());
+			for (int i = 0; i < WRITER_COUNT; i++) {
+				writers.execute(() -> writeSources(path, queue, previous, manifest, failure));
+			}
+
+			try {
+				jarExport.decompile(progress, incrementalRoot, previousManifest, () -> failure.get() != null, source -> put(queue, source, failure));
+
+				for (int i = 0; i < WRITER_COUNT; i++) {
+					put(queue, END, failure);
+				}
+			} catch (CancellationException e) {
+				if (Thread.currentThread().isInterrupted()) {
+					failure.compareAndSet(null, new InterruptedIOException("Interrupted while writing sources"));
+				} else {
+					failure.compareAndSet(null, e);
+				}
+			} catch (RuntimeException | Error e) {
+				failure.compareAndSet(null, e);
+			} finally {
+				// without an end to take, the writers stop on the failure instead
+				awaitWriters(writers, failure);
+			}
+
+			if (failure.get() == null && Thread.currentThread().isInterrupted()) {
+				failure.set(new InterruptedIOException("Interrupted while writing sources"));
+			}
+
+			Throwable writeFailure = failure.get();
+			if (writeFailure != null) {
+				Throwables.propagateIfPossible(writeFailure, IOException.class);
+				throw new RuntimeException(writeFailure);
+			}
+
+			// classes that were renamed or removed since the last export
+			for (String className : previous.getClassNames()) {
+				if (!manifest.getClassNames().contains(className)) {
+					deleteSource(path, ClassSource.resolvePath(path, className));
+				}
+			}
+
+			manifest.write(path);
+		}
+
+		/**
+		 * Waits for the given source to fit into the queue, unless the export fails first.
+		 *
+		 * @throws CancellationException if the export failed or the thread was interrupted
+		 */
+		private static void put(BlockingQueue<ClassSource> queue, ClassSource source, AtomicReference<Throwable> failure) {
+			try {
+				while (!queue.offer(source, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+					if (failure.get() != null) {
+						throw new CancellationException("Stopped writing sources after a failure");
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				failure.compareAndSet(null, new InterruptedIOException("Interrupted while writing sources"));
+				throw new CancellationException("Interrupted while writing sources");
+			}
+		}
+
+		private static void awaitWriters(ExecutorService writers, AtomicReference<Throwable> failure) {
+			writers.shutdown();
+
+			boolean interrupted = false;
+			while (true) {
+				try {
+					if (writers.awaitTermination(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+						break;
+					}
+				} catch (InterruptedException e) {
+					// the writers are told to stop, and are still waited for, so that nothing writes into the directory after this returns
+					interrupted = true;
+					failure.compareAndSet(null, new InterruptedIOException("Interrupted while writing sources"));
+					writers.shutdownNow();
+				}
+			}
+
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private static void writeSources(Path path, BlockingQueue<ClassSource> queue, SourceManifest previous, SourceManifest manifest, AtomicReference<Throwable> failure) {
+			try {
+				while (failure.get() == null) {
+					ClassSource source = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+					if (source == END) {
+						return;
+					} else if (source == null) {
+						continue;
+					}
+
+					if (!source.isUpToDate()) {
+						source.writeTo(ClassSource.resolvePath(path, source.name));
+					}
+
+					synchronized (manifest) {
+						if (source.isUpToDate()) {
+							manifest.copyFrom(previous, source.name);
+						} else {
+							manifest.put(source.name, source.key, source.source);
+						}
+					}
+				}
+			} catch (InterruptedException e) {
+				failure.compareAndSet(null, new InterruptedIOException("Interrupted while writing sources"));
+			} catch (Throwable t) {
+				failure.compareAndSet(null, t);
+			}
+		}
+
+		private static void deleteSource(Path root, Path sourcePath) throws IOException {
+			Files.deleteIfExists(sourcePath);
+
+			// leave no empty packages behind
+			for (Path directory = sourcePath.getParent(); directory != null && !directory.equals(root); directory = directory.getParent()) {
+				try (Stream<Path> children = Files.list(directory)) {
+					if (children.findAny().isPresent()) {
+						break;
+					}
+				} catch (NoSuchFileException e) {
+					continue;
+				}
+				Files.delete(directory);
 			}
 		}
 	}
 
 	private static class ClassSource {
 		private final String name;
+		private final HashCode key;
+		@Nullable
 		private final String source;
 
-		ClassSource(String name, String source) {
+		/**
+		 * @param source the decompiled source, or {@code null} if the file from an earlier export is still up to date
+		 */
+		ClassSource(String name, HashCode key, @Nullable String source) {
 			this.name = name;
+			this.key = key;
 			this.source = source;
 		}
 
+		boolean isUpToDate() {
+			return source == null;
+		}
+
 		void writeTo(Path path) throws IOException {
 			Files.createDirectories(path.getParent());
 			try (BufferedWriter writer = Files.newBufferedWriter(path)) {
@@ -278,7 +700,7 @@ public class EnigmaProject {
 			}
 		}
 
-		Path resolvePath(Path root) {
+		static Path resolvePath(Path root, String name) {
 			return root.resolve(name.replace('.', '/') + ".java");
 		}
 	}
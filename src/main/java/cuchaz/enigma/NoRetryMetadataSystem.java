@@ -5,34 +5,119 @@ import com.strobel.assembler.metadata.MetadataSystem;
 import com.strobel.assembler.metadata.TypeDefinition;
 import com.strobel.assembler.metadata.TypeReference;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
+/**
+ * A {@link MetadataSystem} that remembers which types could not be found, and doesn't look for them again.
+ * <p>
+ * Parsing and resolving still hold this system's monitor, since the resolver keeps a single stack of frames that class
+ * parsing pushes onto and resolution reads from. Types that were already resolved are returned without it, and the
+ * bytes of a new type are loaded before taking it, so threads only wait on each other for parsing itself. Types are only
+ * handed out without the monitor once the parse that resolved them has finished, since a type can be resolved again,
+ * half built, while parsing the types it refers to.
+ * <p>
+ * While {@link #setInterruptible(boolean) interruptible}, looking up a type from an interrupted thread throws a
+ * {@link CancellationException}. This leaves a half parsed type behind whenever one was being parsed, so the system
+ * should not be used again after that.
+ */
 public final class NoRetryMetadataSystem extends MetadataSystem {
-	private final Set<String> failedTypes = Collections.newSetFromMap(new ConcurrentHashMap<>());
+	private final ITypeLoader typeLoader;
+
+	// a one letter descriptor may name a primitive or a class depending on mightBePrimitive, so those are kept apart
+	private final ResolvedTypes resolvedTypes = new ResolvedTypes();
+	private final ResolvedTypes resolvedPrimitiveCandidates = new ResolvedTypes();
+
+	// guarded by this: how deep the current thread is in parsing, and what it resolved meanwhile
+	private int parseDepth;
+	private final List<Runnable> unpublishedTypes = new ArrayList<>();
+
+	private volatile boolean interruptible;
 
 	public NoRetryMetadataSystem(final ITypeLoader typeLoader) {
 		super(typeLoader);
+		this.typeLoader = typeLoader;
+	}
+
+	public void setInterruptible(final boolean interruptible) {
+		this.interruptible = interruptible;
+	}
+
+	private void checkInterrupted() {
+		if (interruptible && Thread.currentThread().isInterrupted()) {
+			throw new CancellationException("Interrupted while resolving types");
+		}
 	}
 
 	@Override
-	protected synchronized TypeDefinition resolveType(final String descriptor, final boolean mightBePrimitive) {
-		if (failedTypes.contains(descriptor)) {
-			return null;
+	protected TypeDefinition resolveType(final String descriptor, final boolean mightBePrimitive) {
+		checkInterrupted();
+
+		final ResolvedTypes cache = mightBePrimitive && descriptor.length() == 1 ? resolvedPrimitiveCandidates : resolvedTypes;
+
+		final TypeDefinition resolved = cache.types.get(descriptor);
+		if (resolved != null) {
+			return resolved;
 		}
 
-		final TypeDefinition result = super.resolveType(descriptor, mightBePrimitive);
+		if (cache.failedTypes.contains(descriptor)) {
+			return null;
+		}
 
-		if (result == null) {
-			failedTypes.add(descriptor);
+		if (typeLoader instanceof CachingTypeLoader && descriptor.length() > 1) {
+			((CachingTypeLoader) typeLoader).preload(descriptor);
 		}
 
-		return result;
+		synchronized (this) {
+			return parse(() -> {
+				final TypeDefinition result = super.resolveType(descriptor, mightBePrimitive);
+
+				if (result == null) {
+					cache.failedTypes.add(descriptor);
+				} else {
+					unpublishedTypes.add(() -> cache.types.putIfAbsent(descriptor, result));
+				}
+
+				return result;
+			});
+		}
 	}
 
 	@Override
-	public synchronized TypeDefinition resolve(final TypeReference type) {
-		return super.resolve(type);
+	public TypeDefinition resolve(final TypeReference type) {
+		checkInterrupted();
+
+		synchronized (this) {
+			return parse(() -> super.resolve(type));
+		}
+	}
+
+	/**
+	 * Runs a parse while holding the monitor, and publishes the types it resolved once the outermost parse is done.
+	 */
+	private <T> T parse(final Supplier<T> parser) {
+		parseDepth++;
+		try {
+			final T result = parser.get();
+			if (parseDepth == 1) {
+				unpublishedTypes.forEach(Runnable::run);
+			}
+			return result;
+		} finally {
+			if (--parseDepth == 0) {
+				unpublishedTypes.clear();
+			}
+		}
+	}
+
+	private static final class ResolvedTypes {
+		private final Map<String, TypeDefinition> types = new ConcurrentHashMap<>();
+		private final Set<String> failedTypes = Collections.newSetFromMap(new ConcurrentHashMap<>());
 	}
 }
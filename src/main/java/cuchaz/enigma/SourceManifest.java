@@ -0,0 +1,117 @@
+package cuchaz.enigma;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Records what each file of a source export was decompiled from, so that exporting to the same directory again only
+ * has to write the classes whose inputs changed, and can remove the files of classes that are gone.
+ * <p>
+ * Stored as a text file in the root of the export, one class per line.
+ */
+final class SourceManifest {
+	static final String FILE_NAME = ".enigma-sources";
+
+	private static final String HEADER = "enigma-sources 1";
+
+	// sorted, so that the file only changes where the export does
+	private final Map<String, Record> records = new TreeMap<>();
+
+	static SourceManifest read(Path root) {
+		SourceManifest manifest = new SourceManifest();
+
+		Path path = root.resolve(FILE_NAME);
+		try (BufferedReader reader = Files.newBufferedReader(path)) {
+			if (!HEADER.equals(reader.readLine())) {
+				return manifest;
+			}
+
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] parts = line.split("\t");
+				if (parts.length == 3) {
+					manifest.records.put(parts[0], new Record(HashCode.fromString(parts[1]), HashCode.fromString(parts[2])));
+				}
+			}
+		} catch (NoSuchFileException e) {
+			return manifest;
+		} catch (IOException | IllegalArgumentException e) {
+			// everything is exported again, same as having no manifest at all
+			System.err.println("Failed to read source manifest '" + path + "'");
+			e.printStackTrace();
+			return new SourceManifest();
+		}
+
+		return manifest;
+	}
+
+	void write(Path root) throws IOException {
+		Files.createDirectories(root);
+		try (BufferedWriter writer = Files.newBufferedWriter(root.resolve(FILE_NAME))) {
+			writer.write(HEADER);
+			writer.newLine();
+
+			for (Map.Entry<String, Record> entry : records.entrySet()) {
+				Record record = entry.getValue();
+				writer.write(entry.getKey() + "\t" + record.key + "\t" + record.sourceHash);
+				writer.newLine();
+			}
+		}
+	}
+
+	void put(String className, HashCode key, String source) {
+		records.put(className, new Record(key, hashSource(source)));
+	}
+
+	Set<String> getClassNames() {
+		return records.keySet();
+	}
+
+	/**
+	 * @return whether the class was exported from the same inputs, and its file still holds what was exported
+	 */
+	boolean isUpToDate(String className, HashCode key, Path sourcePath) {
+		Record record = records.get(className);
+		if (record == null || !record.key.equals(key)) {
+			return false;
+		}
+
+		try {
+			return Hashing.sha256().hashBytes(Files.readAllBytes(sourcePath)).equals(record.sourceHash);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Carries over the record of a class that was found to be up to date.
+	 */
+	void copyFrom(SourceManifest manifest, String className) {
+		records.put(className, manifest.records.get(className));
+	}
+
+	private static HashCode hashSource(String source) {
+		return Hashing.sha256().hashBytes(source.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static final class Record {
+		private final HashCode key;
+		private final HashCode sourceHash;
+
+		Record(HashCode key, HashCode sourceHash) {
+			this.key = key;
+			this.sourceHash = sourceHash;
+		}
+	}
+}
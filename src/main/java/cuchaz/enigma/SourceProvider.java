@@ -54,14 +54,24 @@ public class SourceProvider {
 		return settings;
 	}
 
+	public DecompilerSettings getSettings() {
+		return settings;
+	}
+
+	public ITypeLoader getTypeLoader() {
+		return typeLoader;
+	}
+
+	/**
+	 * @return the syntax tree of the given class, or null if the type loader doesn't have it
+	 */
 	public CompilationUnit getSources(String name) {
 		TypeReference type = metadataSystem.lookupType(name);
-		if (type == null) {
-			throw new Error(String.format("Unable to find desc: %s", name));
+		TypeDefinition resolvedType = type != null ? type.resolve() : null;
+		if (resolvedType == null) {
+			return null;
 		}
 
-		TypeDefinition resolvedType = type.resolve();
-
 		settings.setTypeLoader(typeLoader);
 
 		// decompile it!
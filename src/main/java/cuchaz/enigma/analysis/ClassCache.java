@@ -2,6 +2,8 @@ package cuchaz.enigma.analysis;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.ImmutableSet;
 import cuchaz.enigma.CompiledSource;
 import cuchaz.enigma.ProgressListener;
@@ -14,45 +16,67 @@ import org.objectweb.asm.tree.ClassNode;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
-import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 public final class ClassCache implements AutoCloseable, CompiledSource {
-	private final FileSystem fileSystem;
+	private final MappedJarFile jar;
 	private final ImmutableSet<String> classNames;
 
-	private final Cache<String, ClassNode> nodeCache = CacheBuilder.newBuilder()
-			.maximumSize(128)
-			.expireAfterAccess(1, TimeUnit.MINUTES)
-			.build();
+	private final Cache<String, ClassNode> nodeCache;
+	@Nullable
+	private final Cache<String, ClassNode> softNodeCache;
 
-	private ClassCache(FileSystem fileSystem, ImmutableSet<String> classNames) {
-		this.fileSystem = fileSystem;
+	private ClassCache(MappedJarFile jar, ImmutableSet<String> classNames, ClassCacheParameters parameters) {
+		this.jar = jar;
 		this.classNames = classNames;
+
+		// classes evicted from the strong tier fall back to the soft tier, where only memory pressure clears them
+		this.softNodeCache = parameters.useSoftValues() ? CacheBuilder.newBuilder().softValues().recordStats().build() : null;
+
+		CacheBuilder<String, ClassNode> builder = CacheBuilder.newBuilder()
+				.maximumWeight(parameters.getMaximumWeight())
+				.weigher((String name, ClassNode node) -> getClassSize(name))
+				.recordStats();
+
+		if (parameters.getExpireAfterAccess() > 0) {
+			builder.expireAfterAccess(parameters.getExpireAfterAccess(), TimeUnit.SECONDS);
+		}
+
+		if (softNodeCache != null) {
+			builder.removalListener((RemovalNotification<String, ClassNode> notification) -> {
+				if (notification.wasEvicted()) {
+					softNodeCache.put(notification.getKey(), notification.getValue());
+				}
+			});
+		}
+
+		this.nodeCache = builder.build();
 	}
 
 	public static ClassCache of(Path jarPath) throws IOException {
-		FileSystem fileSystem = FileSystems.newFileSystem(jarPath, null);
-		ImmutableSet<String> classNames = collectClassNames(fileSystem);
+		return of(jarPath, ClassCacheParameters.DEFAULT);
+	}
 
-		return new ClassCache(fileSystem, classNames);
+	public static ClassCache of(Path jarPath, ClassCacheParameters parameters) throws IOException {
+		MappedJarFile jar = MappedJarFile.open(jarPath);
+		ImmutableSet<String> classNames = collectClassNames(jar);
+
+		return new ClassCache(jar, classNames, parameters);
 	}
 
-	private static ImmutableSet<String> collectClassNames(FileSystem fileSystem) throws IOException {
+	private static ImmutableSet<String> collectClassNames(MappedJarFile jar) {
 		ImmutableSet.Builder<String> classNames = ImmutableSet.builder();
-		for (Path root : fileSystem.getRootDirectories()) {
-			Files.walk(root).map(Path::toString)
-					.forEach(path -> {
-						if (path.endsWith(".class")) {
-							String name = path.substring(1, path.length() - ".class".length());
-							classNames.add(name);
-						}
-					});
+		for (String path : jar.getEntries().keySet()) {
+			if (path.endsWith(".class")) {
+				String name = path.substring(0, path.length() - ".class".length());
+				classNames.add(name);
+			}
 		}
 
 		return classNames.build();
@@ -66,12 +90,24 @@ public final class ClassCache implements AutoCloseable, CompiledSource {
 		}
 
 		try {
-			return nodeCache.get(name, () -> parseNode(name));
+			return nodeCache.get(name, () -> loadNode(name));
 		} catch (ExecutionException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	private ClassNode loadNode(String name) throws IOException {
+		if (softNodeCache != null) {
+			ClassNode node = softNodeCache.getIfPresent(name);
+			if (node != null) {
+				softNodeCache.invalidate(name);
+				return node;
+			}
+		}
+
+		return parseNode(name);
+	}
+
 	private ClassNode parseNode(String name) throws IOException {
 		ClassReader reader = getReader(name);
 
@@ -83,17 +119,99 @@ public final class ClassCache implements AutoCloseable, CompiledSource {
 		return node;
 	}
 
+	/**
+	 * Reads a class into the given visitor as it would be read into a node, without keeping anything of it.
+	 */
+	public void acceptClass(String name, ClassVisitor visitor) throws IOException {
+		ClassNode cached = nodeCache.getIfPresent(name);
+		if (cached != null) {
+			cached.accept(visitor);
+			return;
+		}
+
+		getReader(name).accept(new LocalVariableFixVisitor(Opcodes.ASM5, visitor), 0);
+	}
+
 	private ClassReader getReader(String name) throws IOException {
-		Path path = fileSystem.getPath(name + ".class");
-		byte[] bytes = Files.readAllBytes(path);
+		byte[] bytes = jar.read(name + ".class");
+		if (bytes == null) {
+			throw new NoSuchFileException(name + ".class");
+		}
 		return new ClassReader(bytes);
 	}
 
+	private int getClassSize(String name) {
+		MappedJarFile.JarEntry entry = jar.getEntry(name + ".class");
+		return entry != null ? entry.getSize() : 0;
+	}
+
+	/**
+	 * @return hit, miss and eviction counts of the parsed class cache
+	 */
+	public CacheStats getNodeCacheStats() {
+		return nodeCache.stats();
+	}
+
+	/**
+	 * @return stats of the soft tier, whose hits are classes that were evicted but did not have to be parsed again,
+	 * or {@code null} if there is no soft tier
+	 */
+	@Nullable
+	public CacheStats getSoftNodeCacheStats() {
+		return softNodeCache != null ? softNodeCache.stats() : null;
+	}
+
 	public int getClassCount() {
 		return classNames.size();
 	}
 
+	public ImmutableSet<String> getClassNames() {
+		return classNames;
+	}
+
+	/**
+	 * @return the paths of every file in the jar, classes included, in the order they are stored in
+	 */
+	public ImmutableSet<String> getEntryNames() {
+		return jar.getEntries().keySet();
+	}
+
+	@Nullable
+	public byte[] readEntry(String name) throws IOException {
+		return jar.read(name);
+	}
+
+	/**
+	 * Compares the classes of this jar with those of an earlier version of it. Classes are compared by the checksum
+	 * and size recorded in the jar, so nothing has to be read or parsed.
+	 *
+	 * @return the names of classes that were added, removed or changed since the given version
+	 */
+	public Set<String> getChangedClasses(ClassCache previous) {
+		Set<String> changedClasses = new HashSet<>();
+
+		for (String className : classNames) {
+			MappedJarFile.JarEntry entry = jar.getEntry(className + ".class");
+			MappedJarFile.JarEntry previousEntry = previous.jar.getEntry(className + ".class");
+			if (entry == null || previousEntry == null || entry.getCrc() != previousEntry.getCrc() || entry.getSize() != previousEntry.getSize()) {
+				changedClasses.add(className);
+			}
+		}
+
+		for (String className : previous.classNames) {
+			if (!classNames.contains(className)) {
+				changedClasses.add(className);
+			}
+		}
+
+		return changedClasses;
+	}
+
 	public void visit(Supplier<ClassVisitor> visitorSupplier, int readFlags) {
+		visit(classNames, visitorSupplier, readFlags);
+	}
+
+	public void visit(Iterable<String> classNames, Supplier<ClassVisitor> visitorSupplier, int readFlags) {
 		for (String className : classNames) {
 			ClassVisitor visitor = visitorSupplier.get();
 
@@ -115,7 +233,7 @@ public final class ClassCache implements AutoCloseable, CompiledSource {
 
 	@Override
 	public void close() throws IOException {
-		this.fileSystem.close();
+		this.jar.close();
 	}
 
 	public JarIndex index(ProgressListener progress) {
@@ -0,0 +1,53 @@
+package cuchaz.enigma.analysis;
+
+import com.google.gson.annotations.SerializedName;
+import cuchaz.enigma.Constants;
+
+public class ClassCacheParameters {
+	public static final ClassCacheParameters DEFAULT = new ClassCacheParameters();
+
+	private static final long DEFAULT_MAXIMUM_WEIGHT = 8 * Constants.MiB;
+	private static final long DEFAULT_EXPIRE_AFTER_ACCESS = 60;
+
+	/**
+	 * Total size, in bytes of class file data, of the parsed classes that are kept strongly reachable.
+	 */
+	@SerializedName("maximum_weight")
+	private final long maximumWeight;
+
+	/**
+	 * Seconds after their last access that parsed classes are evicted, or 0 to only evict by weight.
+	 */
+	@SerializedName("expire_after_access")
+	private final long expireAfterAccess;
+
+	/**
+	 * Whether evicted classes are kept softly reachable, so that they only need to be parsed again once the heap
+	 * actually runs low.
+	 */
+	@SerializedName("soft_values")
+	private final boolean softValues;
+
+	public ClassCacheParameters(long maximumWeight, long expireAfterAccess, boolean softValues) {
+		this.maximumWeight = maximumWeight;
+		this.expireAfterAccess = expireAfterAccess;
+		this.softValues = softValues;
+	}
+
+	// used by gson, so that any parameter missing from the profile keeps its default
+	private ClassCacheParameters() {
+		this(DEFAULT_MAXIMUM_WEIGHT, DEFAULT_EXPIRE_AFTER_ACCESS, false);
+	}
+
+	public long getMaximumWeight() {
+		return maximumWeight;
+	}
+
+	public long getExpireAfterAccess() {
+		return expireAfterAccess;
+	}
+
+	public boolean useSoftValues() {
+		return softValues;
+	}
+}
@@ -0,0 +1,368 @@
+package cuchaz.enigma.analysis;
+
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * A read-only jar that is mapped into memory once. The central directory is parsed up front into a table of entry
+ * offsets, so reading an entry is a copy out of the mapped region for stored entries, or a single inflate for
+ * compressed ones.
+ * <p>
+ * The mapping is released when the jar is closed, so that the file isn't held open (and locked, on Windows) until the
+ * buffer happens to be garbage collected. Reads hold a shared lock so that closing waits for them to finish, and fail
+ * once the jar is closed.
+ */
+public final class MappedJarFile implements AutoCloseable {
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+	private static final int END_LENGTH = 22;
+	private static final int ZIP64_LOCATOR_LENGTH = 20;
+	private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+
+	private static final int STORED = 0;
+	private static final int DEFLATED = 8;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final ImmutableMap<String, JarEntry> entries;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private boolean closed;
+
+	private MappedJarFile(FileChannel channel, MappedByteBuffer buffer, ImmutableMap<String, JarEntry> entries) {
+		this.channel = channel;
+		this.buffer = buffer;
+		this.entries = entries;
+	}
+
+	public static MappedJarFile open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new ZipException("Jar is too large to map: " + path);
+			}
+
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			try {
+				return new MappedJarFile(channel, buffer, readCentralDirectory(buffer));
+			} catch (IOException | RuntimeException e) {
+				unmap(buffer);
+				throw e;
+			} catch (InternalError e) {
+				// accessing a mapping of a file truncated meanwhile faults
+				unmap(buffer);
+				throw new ZipException("Jar was truncated while reading: " + path);
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private static ImmutableMap<String, JarEntry> readCentralDirectory(ByteBuffer buffer) throws ZipException {
+		int end = findEnd(buffer);
+
+		long directoryOffset = buffer.getInt(end + 16) & 0xFFFFFFFFL;
+		// the central directory runs up to the end record, or the zip64 one when there is one
+		int directoryEnd = end;
+
+		int locator = end - ZIP64_LOCATOR_LENGTH;
+		if (locator >= 0 && buffer.getInt(locator) == ZIP64_LOCATOR_SIGNATURE) {
+			int zip64End = checkedOffset(buffer.getLong(locator + 8), buffer);
+			if (buffer.getInt(zip64End) != ZIP64_END_SIGNATURE) {
+				throw new ZipException("Invalid zip64 end of central directory");
+			}
+
+			directoryOffset = buffer.getLong(zip64End + 48);
+			directoryEnd = zip64End;
+		}
+
+		Map<String, JarEntry> entries = new LinkedHashMap<>();
+
+		// headers are read up to the end of the directory rather than counted, since the 16-bit entry count of the end
+		// record wraps around for jars with more than 65535 entries that weren't written as zip64
+		int offset = checkedOffset(directoryOffset, buffer);
+		while (offset < directoryEnd) {
+			if (buffer.getInt(offset) != CENTRAL_HEADER_SIGNATURE) {
+				throw new ZipException("Invalid central directory header at " + offset);
+			}
+
+			int flags = buffer.getShort(offset + 8) & 0xFFFF;
+			int method = buffer.getShort(offset + 10) & 0xFFFF;
+			int crc = buffer.getInt(offset + 16);
+			long compressedSize = buffer.getInt(offset + 20) & 0xFFFFFFFFL;
+			long size = buffer.getInt(offset + 24) & 0xFFFFFFFFL;
+			int nameLength = buffer.getShort(offset + 28) & 0xFFFF;
+			int extraLength = buffer.getShort(offset + 30) & 0xFFFF;
+			int commentLength = buffer.getShort(offset + 32) & 0xFFFF;
+			long localHeaderOffset = buffer.getInt(offset + 42) & 0xFFFFFFFFL;
+
+			String name = readString(buffer, offset + 46, nameLength);
+
+			// sizes that don't fit in 32 bits are moved into the zip64 extra field, in this order
+			int extra = offset + 46 + nameLength;
+			int extraEnd = extra + extraLength;
+			while (extra + 4 <= extraEnd) {
+				int id = buffer.getShort(extra) & 0xFFFF;
+				int length = buffer.getShort(extra + 2) & 0xFFFF;
+				if (id == 0x0001) {
+					int field = extra + 4;
+					if (size == 0xFFFFFFFFL) {
+						size = buffer.getLong(field);
+						field += 8;
+					}
+					if (compressedSize == 0xFFFFFFFFL) {
+						compressedSize = buffer.getLong(field);
+						field += 8;
+					}
+					if (localHeaderOffset == 0xFFFFFFFFL) {
+						localHeaderOffset = buffer.getLong(field);
+					}
+				}
+				extra += 4 + length;
+			}
+
+			if (!name.endsWith("/")) {
+				boolean encrypted = (flags & 1) != 0;
+				// like ZipFile, the first of any duplicated names wins
+				entries.putIfAbsent(name, new JarEntry(name, method, crc, checkedSize(compressedSize), checkedSize(size), checkedOffset(localHeaderOffset, buffer), encrypted));
+			}
+
+			offset = extraEnd + commentLength;
+		}
+
+		return ImmutableMap.copyOf(entries);
+	}
+
+	private static int findEnd(ByteBuffer buffer) throws ZipException {
+		int minimum = Math.max(0, buffer.limit() - END_LENGTH - MAX_COMMENT_LENGTH);
+		for (int offset = buffer.limit() - END_LENGTH; offset >= minimum; offset--) {
+			if (buffer.getInt(offset) == END_SIGNATURE) {
+				return offset;
+			}
+		}
+
+		throw new ZipException("Missing end of central directory");
+	}
+
+	private static int checkedOffset(long offset, ByteBuffer buffer) throws ZipException {
+		if (offset < 0 || offset >= buffer.limit()) {
+			throw new ZipException("Offset out of bounds: " + offset);
+		}
+		return (int) offset;
+	}
+
+	private static int checkedSize(long size) throws ZipException {
+		if (size < 0 || size > Integer.MAX_VALUE) {
+			throw new ZipException("Entry is too large: " + size);
+		}
+		return (int) size;
+	}
+
+	private static String readString(ByteBuffer buffer, int offset, int length) {
+		byte[] bytes = new byte[length];
+		ByteBuffer view = buffer.duplicate();
+		view.position(offset);
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public ImmutableMap<String, JarEntry> getEntries() {
+		return entries;
+	}
+
+	@Nullable
+	public JarEntry getEntry(String name) {
+		return entries.get(name);
+	}
+
+	public boolean hasEntry(String name) {
+		return entries.containsKey(name);
+	}
+
+	@Nullable
+	public byte[] read(String name) throws IOException {
+		JarEntry entry = entries.get(name);
+		return entry != null ? read(entry) : null;
+	}
+
+	public byte[] read(JarEntry entry) throws IOException {
+		if (entry.encrypted) {
+			throw new ZipException("Encrypted entries are not supported: " + entry.name);
+		}
+
+		lock.readLock().lock();
+		try {
+			if (closed) {
+				throw new IOException("Jar is closed");
+			}
+			return readData(entry);
+		} catch (InternalError e) {
+			// accessing a mapping of a file truncated meanwhile faults
+			throw new ZipException("Jar was truncated while reading " + entry.name);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private byte[] readData(JarEntry entry) throws ZipException {
+		// the central directory doesn't tell us the length of the local extra field, so it's read from the local header
+		int header = entry.localHeaderOffset;
+		if (buffer.getInt(header) != LOCAL_HEADER_SIGNATURE) {
+			throw new ZipException("Invalid local header for " + entry.name);
+		}
+
+		int nameLength = buffer.getShort(header + 26) & 0xFFFF;
+		int extraLength = buffer.getShort(header + 28) & 0xFFFF;
+		int dataOffset = header + 30 + nameLength + extraLength;
+
+		// slices of a duplicate so that concurrent reads don't share a position
+		ByteBuffer data = buffer.duplicate();
+		data.position(dataOffset);
+		data.limit(dataOffset + entry.compressedSize);
+
+		switch (entry.method) {
+			case STORED: {
+				byte[] bytes = new byte[entry.size];
+				data.get(bytes);
+				return bytes;
+			}
+			case DEFLATED:
+				return inflate(entry, data);
+			default:
+				throw new ZipException("Unsupported compression method " + entry.method + " for " + entry.name);
+		}
+	}
+
+	private static byte[] inflate(JarEntry entry, ByteBuffer data) throws ZipException {
+		byte[] input = new byte[entry.compressedSize];
+		data.get(input);
+
+		byte[] bytes = new byte[entry.size];
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(input);
+
+			int length = 0;
+			while (length < bytes.length) {
+				int inflated = inflater.inflate(bytes, length, bytes.length - length);
+				if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += inflated;
+			}
+
+			if (length != bytes.length) {
+				throw new ZipException("Truncated entry " + entry.name);
+			}
+		} catch (DataFormatException e) {
+			throw new ZipException("Corrupt entry " + entry.name + ": " + e.getMessage());
+		} finally {
+			inflater.end();
+		}
+
+		return bytes;
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+
+			unmap(buffer);
+			channel.close();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Releases a mapping right away instead of once the buffer is garbage collected. The buffer mustn't be used after.
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+		try {
+			try {
+				// Java 9 and later
+				Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			} catch (NoSuchMethodException e) {
+				// Java 8
+				Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				Object cleaner = cleanerMethod.invoke(buffer);
+				if (cleaner != null) {
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// left for the garbage collector to release
+		}
+	}
+
+	public static final class JarEntry {
+		private final String name;
+		private final int method;
+		private final int crc;
+		private final int compressedSize;
+		private final int size;
+		private final int localHeaderOffset;
+		private final boolean encrypted;
+
+		JarEntry(String name, int method, int crc, int compressedSize, int size, int localHeaderOffset, boolean encrypted) {
+			this.name = name;
+			this.method = method;
+			this.crc = crc;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.localHeaderOffset = localHeaderOffset;
+			this.encrypted = encrypted;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getCrc() {
+			return crc;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		public int getCompressedSize() {
+			return compressedSize;
+		}
+	}
+}
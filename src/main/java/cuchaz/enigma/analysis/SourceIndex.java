@@ -17,12 +17,15 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.strobel.decompiler.languages.Region;
 import com.strobel.decompiler.languages.java.ast.*;
+import cuchaz.enigma.analysis.index.SnapshotInput;
+import cuchaz.enigma.analysis.index.SnapshotOutput;
 import cuchaz.enigma.gui.SourceRemapper;
 import cuchaz.enigma.translation.mapping.EntryResolver;
 import cuchaz.enigma.translation.mapping.ResolutionStrategy;
 import cuchaz.enigma.translation.representation.entry.Entry;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -60,6 +63,70 @@ public class SourceIndex {
 		return index;
 	}
 
+	/**
+	 * Writes this index as it was built, before any references were resolved, so that it can be stored alongside the
+	 * source it was built from.
+	 */
+	public void write(SnapshotOutput output) throws IOException {
+		output.writeString(source);
+		output.writeBoolean(ignoreBadTokens);
+
+		output.writeInt(tokenToReference.size());
+		for (Map.Entry<Token, EntryReference<Entry<?>, Entry<?>>> entry : tokenToReference.entrySet()) {
+			writeToken(output, entry.getKey());
+			output.writeReference(entry.getValue());
+		}
+
+		output.writeInt(referenceToTokens.size());
+		for (Map.Entry<EntryReference<Entry<?>, Entry<?>>, Token> entry : referenceToTokens.entries()) {
+			output.writeReference(entry.getKey());
+			writeToken(output, entry.getValue());
+		}
+
+		output.writeInt(declarationToToken.size());
+		for (Map.Entry<Entry<?>, Token> entry : declarationToToken.entrySet()) {
+			output.writeEntry(entry.getKey());
+			writeToken(output, entry.getValue());
+		}
+	}
+
+	public static SourceIndex read(SnapshotInput input) {
+		SourceIndex index = new SourceIndex(input.readString(), input.readBoolean());
+
+		int referenceCount = input.readInt();
+		for (int i = 0; i < referenceCount; i++) {
+			Token token = readToken(input);
+			index.tokenToReference.put(token, input.readReference());
+		}
+
+		int tokenCount = input.readInt();
+		for (int i = 0; i < tokenCount; i++) {
+			EntryReference<Entry<?>, Entry<?>> reference = input.readReference();
+			index.referenceToTokens.put(reference, readToken(input));
+		}
+
+		int declarationCount = input.readInt();
+		for (int i = 0; i < declarationCount; i++) {
+			Entry<?> entry = input.readEntry();
+			index.declarationToToken.put(entry, readToken(input));
+		}
+
+		return index;
+	}
+
+	private static void writeToken(SnapshotOutput output, Token token) throws IOException {
+		output.writeInt(token.start);
+		output.writeInt(token.end);
+		// not always the source between start and end, see getToken
+		output.writeString(token.text);
+	}
+
+	private static Token readToken(SnapshotInput input) {
+		Token token = new Token(input.readInt(), input.readInt(), null);
+		token.text = input.readString();
+		return token;
+	}
+
 	private void calculateLineOffsets() {
 		// count the lines
 		this.lineOffsets = Lists.newArrayList();
@@ -146,22 +213,36 @@ public class SourceIndex {
 	public void addReference(AstNode node, Entry<?> deobfEntry, Entry<?> deobfContext) {
 		Token token = getToken(node);
 		if (token != null) {
-			EntryReference<Entry<?>, Entry<?>> deobfReference = new EntryReference<>(deobfEntry, token.text, deobfContext);
-			this.tokenToReference.put(token, deobfReference);
-			this.referenceToTokens.put(deobfReference, token);
+			addReference(token, deobfEntry, deobfContext);
 		}
 	}
 
+	/**
+	 * Adds a reference at a token of the source, for decompilers that don't build Procyon trees.
+	 */
+	public void addReference(Token token, Entry<?> deobfEntry, Entry<?> deobfContext) {
+		EntryReference<Entry<?>, Entry<?>> deobfReference = new EntryReference<>(deobfEntry, token.text, deobfContext);
+		this.tokenToReference.put(token, deobfReference);
+		this.referenceToTokens.put(deobfReference, token);
+	}
+
 	public void addDeclaration(AstNode node, Entry<?> deobfEntry) {
 		Token token = getToken(node);
 		if (token != null) {
-			EntryReference<Entry<?>, Entry<?>> reference = new EntryReference<>(deobfEntry, token.text);
-			this.tokenToReference.put(token, reference);
-			this.referenceToTokens.put(reference, token);
-			this.declarationToToken.put(deobfEntry, token);
+			addDeclaration(token, deobfEntry);
 		}
 	}
 
+	/**
+	 * Adds a declaration at a token of the source, for decompilers that don't build Procyon trees.
+	 */
+	public void addDeclaration(Token token, Entry<?> deobfEntry) {
+		EntryReference<Entry<?>, Entry<?>> reference = new EntryReference<>(deobfEntry, token.text);
+		this.tokenToReference.put(token, reference);
+		this.referenceToTokens.put(reference, token);
+		this.declarationToToken.put(deobfEntry, token);
+	}
+
 	public Token getReferenceToken(int pos) {
 		Token token = this.tokenToReference.floorKey(new Token(pos, pos, null));
 		if (token != null && token.contains(pos)) {
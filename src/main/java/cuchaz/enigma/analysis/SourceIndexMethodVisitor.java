@@ -44,7 +44,7 @@ public class SourceIndexMethodVisitor extends SourceIndexVisitor {
 			ClassEntry classEntry = new ClassEntry(ref.getDeclaringType().getInternalName());
 			MethodEntry methodEntry = null;
 			if (ref instanceof MethodReference) {
-				methodEntry = new MethodEntry(classEntry, ref.getName(), new MethodDescriptor(ref.getErasedSignature()));
+				methodEntry = new MethodEntry(classEntry, ref.getName(), MethodDescriptor.parse(ref.getErasedSignature()));
 			}
 			if (methodEntry != null) {
 				// get the node for the token
@@ -79,7 +79,7 @@ public class SourceIndexMethodVisitor extends SourceIndexVisitor {
 			}
 
 			ClassEntry classEntry = new ClassEntry(ref.getDeclaringType().getInternalName());
-			FieldEntry fieldEntry = new FieldEntry(classEntry, ref.getName(), new TypeDescriptor(erasedSignature));
+			FieldEntry fieldEntry = new FieldEntry(classEntry, ref.getName(), TypeDescriptor.parse(erasedSignature));
 			index.addReference(node.getMemberNameToken(), fieldEntry, this.methodEntry);
 		}
 
@@ -124,7 +124,7 @@ public class SourceIndexMethodVisitor extends SourceIndexVisitor {
 		MemberReference ref = node.getUserData(Keys.MEMBER_REFERENCE);
 		if (ref != null) {
 			ClassEntry classEntry = new ClassEntry(ref.getDeclaringType().getInternalName());
-			FieldEntry fieldEntry = new FieldEntry(classEntry, ref.getName(), new TypeDescriptor(ref.getErasedSignature()));
+			FieldEntry fieldEntry = new FieldEntry(classEntry, ref.getName(), TypeDescriptor.parse(ref.getErasedSignature()));
 			index.addReference(node.getIdentifierToken(), fieldEntry, this.methodEntry);
 		} else
 			this.checkIdentifier(node, index);
@@ -155,7 +155,7 @@ public class SourceIndexMethodVisitor extends SourceIndexVisitor {
 		if (ref != null && node.getType() instanceof SimpleType) {
 			SimpleType simpleTypeNode = (SimpleType) node.getType();
 			ClassEntry classEntry = new ClassEntry(ref.getDeclaringType().getInternalName());
-			MethodEntry constructorEntry = new MethodEntry(classEntry, "<init>", new MethodDescriptor(ref.getErasedSignature()));
+			MethodEntry constructorEntry = new MethodEntry(classEntry, "<init>", MethodDescriptor.parse(ref.getErasedSignature()));
 			index.addReference(simpleTypeNode.getIdentifierToken(), constructorEntry, this.methodEntry);
 		}
 
@@ -198,7 +198,7 @@ public class SourceIndexMethodVisitor extends SourceIndexVisitor {
 		if (ref instanceof MethodReference) {
 			// get the behavior entry
 			ClassEntry classEntry = new ClassEntry(ref.getDeclaringType().getInternalName());
-			MethodEntry methodEntry = new MethodEntry(classEntry, ref.getName(), new MethodDescriptor(ref.getErasedSignature()));
+			MethodEntry methodEntry = new MethodEntry(classEntry, ref.getName(), MethodDescriptor.parse(ref.getErasedSignature()));
 
 			// get the node for the token
 			AstNode methodNameToken = node.getMethodNameToken();
@@ -0,0 +1,272 @@
+package cuchaz.enigma.analysis.index;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * The transitive closure of a class hierarchy, for answering ancestry queries without walking the graph.
+ * <p>
+ * Every class picks one of its parents as its tree parent, and the resulting spanning forest is labelled with
+ * pre-order intervals: a class is a tree ancestor of another if its interval contains the other's. Single inheritance
+ * chains are answered by the labels alone. Ancestors only reachable through another parent, usually interfaces, are
+ * kept per class in a sorted array, which stays empty for most classes.
+ */
+final class AncestorClosure {
+	private final int[] localIds;
+	private final int[] globalIds;
+
+	private final int[] treeParents;
+	private final int[] preorder;
+	private final int[] subtreeSizes;
+	private final int[] preorderNodes;
+
+	private final int[][] extraAncestors;
+	private final int[][] extraDescendants;
+
+	private final BitSet incompleteAncestry;
+
+	private AncestorClosure(int[] localIds, int[] globalIds, int[] treeParents, int[] preorder, int[] subtreeSizes, int[] preorderNodes, int[][] extraAncestors, int[][] extraDescendants, BitSet incompleteAncestry) {
+		this.localIds = localIds;
+		this.globalIds = globalIds;
+		this.treeParents = treeParents;
+		this.preorder = preorder;
+		this.subtreeSizes = subtreeSizes;
+		this.preorderNodes = preorderNodes;
+		this.extraAncestors = extraAncestors;
+		this.extraDescendants = extraDescendants;
+		this.incompleteAncestry = incompleteAncestry;
+	}
+
+	/**
+	 * @param parents  the parent graph of the hierarchy
+	 * @param children the transpose of {@code parents}
+	 * @param indexed  whether a class is present in the index, used to find classes with unknown ancestors
+	 * @return the closure, or {@code null} if the hierarchy contains a cycle
+	 */
+	@Nullable
+	static AncestorClosure build(IntGraph parents, IntGraph children, IntPredicate indexed) {
+		int nodeCount = Math.max(parents.getNodeCount(), children.getNodeCount());
+
+		// only classes in the hierarchy are labelled, which leaves out every member and unrelated class
+		int[] localIds = new int[nodeCount];
+		Arrays.fill(localIds, -1);
+
+		int size = 0;
+		for (int node = 0; node < nodeCount; node++) {
+			if (parents.getDegree(node) > 0 || children.getDegree(node) > 0) {
+				localIds[node] = size++;
+			}
+		}
+
+		int[] globalIds = new int[size];
+		for (int node = 0; node < nodeCount; node++) {
+			if (localIds[node] != -1) {
+				globalIds[localIds[node]] = node;
+			}
+		}
+
+		// parents before children
+		int[] order = new int[size];
+		int[] remainingParents = new int[size];
+		int head = 0;
+		int tail = 0;
+		for (int local = 0; local < size; local++) {
+			remainingParents[local] = parents.getDegree(globalIds[local]);
+			if (remainingParents[local] == 0) {
+				order[tail++] = local;
+			}
+		}
+
+		while (head < tail) {
+			int node = globalIds[order[head++]];
+			for (int i = 0; i < children.getDegree(node); i++) {
+				int child = localIds[children.getTarget(node, i)];
+				if (--remainingParents[child] == 0) {
+					order[tail++] = child;
+				}
+			}
+		}
+
+		if (tail < size) {
+			return null;
+		}
+
+		// following the deepest parent leaves the fewest ancestors as extras in the common case of long superclass chains
+		int[] treeParents = new int[size];
+		int[] depths = new int[size];
+		BitSet incompleteAncestry = new BitSet(size);
+		for (int local : order) {
+			int node = globalIds[local];
+
+			int treeParent = -1;
+			for (int i = 0; i < parents.getDegree(node); i++) {
+				int parent = localIds[parents.getTarget(node, i)];
+				if (treeParent == -1 || depths[parent] > depths[treeParent]) {
+					treeParent = parent;
+				}
+
+				if (!indexed.test(globalIds[parent]) || incompleteAncestry.get(parent)) {
+					incompleteAncestry.set(local);
+				}
+			}
+
+			treeParents[local] = treeParent;
+			depths[local] = treeParent != -1 ? depths[treeParent] + 1 : 0;
+		}
+
+		// lay out each tree parent's subtree as a contiguous run of pre-order numbers
+		int[] subtreeSizes = new int[size];
+		for (int i = size - 1; i >= 0; i--) {
+			int local = order[i];
+			subtreeSizes[local]++;
+			if (treeParents[local] != -1) {
+				subtreeSizes[treeParents[local]] += subtreeSizes[local];
+			}
+		}
+
+		int[] preorder = new int[size];
+		int[] nextPreorder = new int[size];
+		int nextRoot = 0;
+		for (int local : order) {
+			int treeParent = treeParents[local];
+			if (treeParent == -1) {
+				preorder[local] = nextRoot;
+				nextRoot += subtreeSizes[local];
+			} else {
+				preorder[local] = nextPreorder[treeParent];
+				nextPreorder[treeParent] += subtreeSizes[local];
+			}
+			nextPreorder[local] = preorder[local] + 1;
+		}
+
+		int[] preorderNodes = new int[size];
+		for (int local = 0; local < size; local++) {
+			preorderNodes[preorder[local]] = local;
+		}
+
+		int[][] extraAncestors = new int[size][];
+		int[] collected = new int[size];
+		Arrays.fill(collected, -1);
+		int[] buffer = new int[16];
+
+		for (int local : order) {
+			int node = globalIds[local];
+
+			int count = 0;
+			for (int i = 0; i < parents.getDegree(node); i++) {
+				int parent = localIds[parents.getTarget(node, i)];
+
+				// everything above the point where this parent's tree path joins ours is already covered by the labels
+				for (int ancestor = parent; ancestor != -1 && !isTreeAncestor(preorder, subtreeSizes, local, ancestor); ancestor = treeParents[ancestor]) {
+					if (collected[ancestor] != local) {
+						collected[ancestor] = local;
+						buffer = append(buffer, count++, ancestor);
+					}
+				}
+
+				for (int ancestor : extraAncestors[parent]) {
+					if (collected[ancestor] != local && !isTreeAncestor(preorder, subtreeSizes, local, ancestor)) {
+						collected[ancestor] = local;
+						buffer = append(buffer, count++, ancestor);
+					}
+				}
+			}
+
+			int[] extras = Arrays.copyOf(buffer, count);
+			Arrays.sort(extras);
+			extraAncestors[local] = extras;
+		}
+
+		int[] extraDescendantCounts = new int[size];
+		for (int[] extras : extraAncestors) {
+			for (int ancestor : extras) {
+				extraDescendantCounts[ancestor]++;
+			}
+		}
+
+		int[][] extraDescendants = new int[size][];
+		for (int local = 0; local < size; local++) {
+			extraDescendants[local] = new int[extraDescendantCounts[local]];
+			extraDescendantCounts[local] = 0;
+		}
+
+		for (int local = 0; local < size; local++) {
+			for (int ancestor : extraAncestors[local]) {
+				extraDescendants[ancestor][extraDescendantCounts[ancestor]++] = local;
+			}
+		}
+
+		return new AncestorClosure(localIds, globalIds, treeParents, preorder, subtreeSizes, preorderNodes, extraAncestors, extraDescendants, incompleteAncestry);
+	}
+
+	private static boolean isTreeAncestor(int[] preorder, int[] subtreeSizes, int local, int ancestor) {
+		return preorder[local] >= preorder[ancestor] && preorder[local] < preorder[ancestor] + subtreeSizes[ancestor];
+	}
+
+	private static int[] append(int[] buffer, int index, int value) {
+		if (index == buffer.length) {
+			buffer = Arrays.copyOf(buffer, index * 2);
+		}
+		buffer[index] = value;
+		return buffer;
+	}
+
+	private int getLocalId(int node) {
+		return node >= 0 && node < localIds.length ? localIds[node] : -1;
+	}
+
+	/**
+	 * @return whether {@code ancestor} is a strict ancestor of {@code node}
+	 */
+	boolean isAncestor(int node, int ancestor) {
+		int local = getLocalId(node);
+		int localAncestor = getLocalId(ancestor);
+		if (local == -1 || localAncestor == -1 || local == localAncestor) {
+			return false;
+		}
+
+		return isTreeAncestor(preorder, subtreeSizes, local, localAncestor) || Arrays.binarySearch(extraAncestors[local], localAncestor) >= 0;
+	}
+
+	/**
+	 * @return whether any ancestor of {@code node} is missing from the index
+	 */
+	boolean hasIncompleteAncestry(int node) {
+		int local = getLocalId(node);
+		return local != -1 && incompleteAncestry.get(local);
+	}
+
+	void forEachAncestor(int node, IntConsumer consumer) {
+		int local = getLocalId(node);
+		if (local == -1) {
+			return;
+		}
+
+		for (int ancestor = treeParents[local]; ancestor != -1; ancestor = treeParents[ancestor]) {
+			consumer.accept(globalIds[ancestor]);
+		}
+
+		for (int ancestor : extraAncestors[local]) {
+			consumer.accept(globalIds[ancestor]);
+		}
+	}
+
+	void forEachDescendant(int node, IntConsumer consumer) {
+		int local = getLocalId(node);
+		if (local == -1) {
+			return;
+		}
+
+		int start = preorder[local];
+		for (int i = start + 1; i < start + subtreeSizes[local]; i++) {
+			consumer.accept(globalIds[preorderNodes[i]]);
+		}
+
+		for (int descendant : extraDescendants[local]) {
+			consumer.accept(globalIds[descendant]);
+		}
+	}
+}
@@ -10,6 +10,7 @@ import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.*;
 
 public class BridgeMethodIndex implements JarIndexer {
@@ -40,6 +41,14 @@ public class BridgeMethodIndex implements JarIndexer {
 		}
 	}
 
+	/**
+	 * Forgets every bridge method found so far, so that they can be found again after the index has changed.
+	 */
+	void clear() {
+		bridgeToSpecialized.clear();
+		specializedToBridge.clear();
+	}
+
 	@Override
 	public void processIndex(JarIndex index) {
 		Map<MethodEntry, MethodEntry> copiedAccessToBridge = new HashMap<>(specializedToBridge);
@@ -57,6 +66,16 @@ public class BridgeMethodIndex implements JarIndexer {
 		}
 	}
 
+	void writeSnapshot(SnapshotOutput out) throws IOException {
+		out.writeEntries(bridgeToSpecialized);
+		out.writeEntryPairs(specializedToBridge.entrySet());
+	}
+
+	void readSnapshot(SnapshotInput in) {
+		in.readEntries(bridgeToSpecialized::add);
+		in.readEntryPairs(specializedToBridge::put);
+	}
+
 	private void indexSyntheticMethod(MethodDefEntry syntheticMethod, AccessFlags access) {
 		MethodEntry specializedMethod = findSpecializedMethod(syntheticMethod);
 		if (specializedMethod == null) {
@@ -4,9 +4,11 @@ import cuchaz.enigma.translation.representation.AccessFlags;
 import cuchaz.enigma.translation.representation.entry.*;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 public class EntryIndex implements JarIndexer {
 	private Map<ClassEntry, AccessFlags> classes = new HashMap<>();
@@ -28,6 +30,36 @@ public class EntryIndex implements JarIndexer {
 		fields.put(fieldEntry, fieldEntry.getAccess());
 	}
 
+	void merge(EntryIndex other) {
+		classes.putAll(other.classes);
+		fields.putAll(other.fields);
+		methods.putAll(other.methods);
+	}
+
+	/**
+	 * Removes the given classes along with their fields and methods.
+	 *
+	 * @param classNames full names of the classes to remove
+	 */
+	void removeClasses(Set<String> classNames) {
+		classes.keySet().removeIf(entry -> classNames.contains(entry.getFullName()));
+		fields.keySet().removeIf(entry -> classNames.contains(entry.getParent().getFullName()));
+		methods.keySet().removeIf(entry -> classNames.contains(entry.getParent().getFullName()));
+	}
+
+	void writeSnapshot(SnapshotOutput out) throws IOException {
+		out.writeEntries(classes.keySet());
+		out.writeEntries(fields.keySet());
+		out.writeEntries(methods.keySet());
+	}
+
+	void readSnapshot(SnapshotInput in) {
+		// only definitions are indexed, so the access flags come back with the entries
+		in.<ClassDefEntry>readEntries(entry -> classes.put(entry, entry.getAccess()));
+		in.<FieldDefEntry>readEntries(entry -> fields.put(entry, entry.getAccess()));
+		in.<MethodDefEntry>readEntries(entry -> methods.put(entry, entry.getAccess()));
+	}
+
 	public boolean hasClass(ClassEntry entry) {
 		return classes.containsKey(entry);
 	}
@@ -0,0 +1,92 @@
+package cuchaz.enigma.analysis.index;
+
+import cuchaz.enigma.translation.representation.entry.DefEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Gives every entry seen while indexing a dense {@code int} id, so that the indexes can store ids in primitive arrays
+ * instead of keeping their own entry objects. Definitions and plain references to the same entry are equal, so they
+ * share an id, and the latest definition is kept as the entry for that id once one has been seen, so that re-indexing a
+ * changed class replaces its old definitions.
+ * <p>
+ * Interning is thread-safe and doesn't lock once an entry has its id, so that index shards can share one interner.
+ * Looking up entries by id is only safe once indexing has finished.
+ */
+public final class EntryInterner {
+	private static final int CHUNK_SHIFT = 12;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+	private final Map<Entry<?>, Integer> ids = new ConcurrentHashMap<>();
+	private final AtomicInteger nextId = new AtomicInteger();
+
+	// entries by id, in chunks so that growing never has to copy or lock the slots already handed out
+	@SuppressWarnings("unchecked")
+	private volatile AtomicReferenceArray<Entry<?>>[] chunks = new AtomicReferenceArray[0];
+
+	public int intern(Entry<?> entry) {
+		Integer id = ids.get(entry);
+		if (id == null) {
+			id = ids.computeIfAbsent(entry, e -> {
+				int newId = nextId.getAndIncrement();
+				getChunk(newId).set(newId & (CHUNK_SIZE - 1), e);
+				return newId;
+			});
+		}
+
+		if (entry instanceof DefEntry) {
+			// a plain entry, or an older definition, is replaced by this one
+			AtomicReferenceArray<Entry<?>> chunk = getChunk(id);
+			int slot = id & (CHUNK_SIZE - 1);
+
+			Entry<?> current = chunk.get(slot);
+			while (current != entry && !chunk.compareAndSet(slot, current, entry)) {
+				current = chunk.get(slot);
+			}
+		}
+
+		return id;
+	}
+
+	private AtomicReferenceArray<Entry<?>> getChunk(int id) {
+		int index = id >> CHUNK_SHIFT;
+
+		AtomicReferenceArray<Entry<?>>[] chunks = this.chunks;
+		if (index < chunks.length) {
+			return chunks[index];
+		}
+
+		synchronized (this) {
+			chunks = this.chunks;
+			if (index >= chunks.length) {
+				AtomicReferenceArray<Entry<?>>[] grownChunks = Arrays.copyOf(chunks, Math.max(index + 1, chunks.length * 2));
+				for (int i = chunks.length; i < grownChunks.length; i++) {
+					grownChunks[i] = new AtomicReferenceArray<>(CHUNK_SIZE);
+				}
+				this.chunks = chunks = grownChunks;
+			}
+			return chunks[index];
+		}
+	}
+
+	/**
+	 * @return the id of the given entry, or -1 if it was never interned
+	 */
+	public int getId(Entry<?> entry) {
+		Integer id = ids.get(entry);
+		return id != null ? id : -1;
+	}
+
+	public Entry<?> getEntry(int id) {
+		return chunks[id >> CHUNK_SHIFT].get(id & (CHUNK_SIZE - 1));
+	}
+
+	public int size() {
+		return nextId.get();
+	}
+}
@@ -11,8 +11,12 @@ public class IndexClassVisitor extends ClassVisitor {
 	private final JarIndexer indexer;
 	private ClassDefEntry classEntry;
 
-	public IndexClassVisitor(JarIndex indexer, int api) {
-		super(api);
+	public IndexClassVisitor(JarIndexer indexer, int api) {
+		this(indexer, api, null);
+	}
+
+	public IndexClassVisitor(JarIndexer indexer, int api, ClassVisitor cv) {
+		super(api, cv);
 		this.indexer = indexer;
 	}
 
@@ -23,7 +23,7 @@ public class IndexReferenceVisitor extends ClassVisitor {
 
 	@Override
 	public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
-		MethodDefEntry entry = new MethodDefEntry(classEntry, name, new MethodDescriptor(desc), Signature.createSignature(signature), new AccessFlags(access));
+		MethodDefEntry entry = new MethodDefEntry(classEntry, name, MethodDescriptor.parse(desc), Signature.createSignature(signature), new AccessFlags(access));
 		return new Method(this.indexer, entry, this.api);
 	}
 
@@ -75,10 +75,10 @@ public class IndexReferenceVisitor extends ClassVisitor {
 
 				this.indexer.indexLambda(callerEntry, new Lambda(
 					name,
-					new MethodDescriptor(desc),
-					new MethodDescriptor(samMethodType.getDescriptor()),
+					MethodDescriptor.parse(desc),
+					MethodDescriptor.parse(samMethodType.getDescriptor()),
 					getHandleEntry(implMethod),
-					new MethodDescriptor(instantiatedMethodType.getDescriptor())
+					MethodDescriptor.parse(instantiatedMethodType.getDescriptor())
 				));
 			}
 		}
@@ -11,25 +11,50 @@
 
 package cuchaz.enigma.analysis.index;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Sets;
 import cuchaz.enigma.translation.representation.entry.ClassDefEntry;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.utils.Utils;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.Set;
 
 public class InheritanceIndex implements JarIndexer {
 	private final EntryIndex entryIndex;
+	private final EntryInterner interner;
+	private final boolean useClosure;
 
-	private Multimap<ClassEntry, ClassEntry> classParents = HashMultimap.create();
-	private Multimap<ClassEntry, ClassEntry> classChildren = HashMultimap.create();
+	// parent edges are collected as ids while indexing, and compacted into graphs when first queried
+	private final IntGraph.Builder parentEdges = new IntGraph.Builder();
+	private volatile boolean dirty;
+
+	private IntGraph classParents = IntGraph.EMPTY;
+	private IntGraph classChildren = IntGraph.EMPTY;
+
+	// built on the first ancestry query when enabled, and left null if the hierarchy can't be closed over
+	private volatile AncestorClosure closure;
+	private volatile boolean closureBuilt;
 
 	public InheritanceIndex(EntryIndex entryIndex) {
+		this(entryIndex, new EntryInterner());
+	}
+
+	public InheritanceIndex(EntryIndex entryIndex, EntryInterner interner) {
+		this(entryIndex, interner, Utils.getSystemPropertyAsBoolean("enigma.ancestorClosure", true));
+	}
+
+	/**
+	 * @param useClosure whether to answer ancestry queries from a precomputed closure of the hierarchy, rather than by
+	 *                   walking it every time
+	 */
+	public InheritanceIndex(EntryIndex entryIndex, EntryInterner interner, boolean useClosure) {
 		this.entryIndex = entryIndex;
+		this.interner = interner;
+		this.useClosure = useClosure;
 	}
 
 	@Override
@@ -49,56 +74,207 @@ public class InheritanceIndex implements JarIndexer {
 	}
 
 	private void indexParent(ClassEntry childEntry, ClassEntry parentEntry) {
-		classParents.put(childEntry, parentEntry);
-		classChildren.put(parentEntry, childEntry);
+		parentEdges.addEdge(interner.intern(childEntry), interner.intern(parentEntry));
+		dirty = true;
+	}
+
+	void merge(InheritanceIndex other) {
+		if (other.interner != interner) {
+			throw new IllegalArgumentException("Cannot merge inheritance indexes with different interners");
+		}
+
+		parentEdges.addAll(other.parentEdges);
+		dirty = true;
+	}
+
+	/**
+	 * Removes the parents of the given classes. Their children are kept, since those are declared by other classes.
+	 *
+	 * @param classNames full names of the classes to remove
+	 */
+	void removeClasses(Set<String> classNames) {
+		parentEdges.removeSources(id -> classNames.contains(getClass(id).getFullName()));
+		dirty = true;
+	}
+
+	@Override
+	public void processIndex(JarIndex index) {
+		compact();
+
+		// which ancestors are missing depends on the entry index, which may have changed since the closure was built
+		invalidateClosure();
+	}
+
+	@Nullable
+	private ClassEntry findCycle() {
+		for (int id = 0; id < classParents.getNodeCount(); id++) {
+			if (classParents.getDegree(id) > 0) {
+				ClassEntry classEntry = getClass(id);
+				if (collectReachable(classParents, classEntry).contains(classEntry)) {
+					return classEntry;
+				}
+			}
+		}
+		return null;
+	}
+
+	EntryInterner getInterner() {
+		return interner;
+	}
+
+	private void compact() {
+		if (dirty) {
+			synchronized (this) {
+				if (dirty) {
+					classParents = parentEdges.build(interner.size());
+					classChildren = classParents.transpose();
+					invalidateClosure();
+					dirty = false;
+				}
+			}
+		}
+	}
+
+	private synchronized void invalidateClosure() {
+		closure = null;
+		closureBuilt = false;
+	}
+
+	@Nullable
+	private AncestorClosure getClosure() {
+		if (!useClosure) {
+			return null;
+		}
+
+		compact();
+
+		if (!closureBuilt) {
+			synchronized (this) {
+				if (!closureBuilt) {
+					closure = AncestorClosure.build(classParents, classChildren, id -> entryIndex.hasClass(getClass(id)));
+					closureBuilt = true;
+
+					if (closure == null) {
+						System.err.println("Class hierarchy contains a cycle through " + findCycle() + ", ancestry queries will walk the hierarchy");
+					}
+				}
+			}
+		}
+
+		return closure;
+	}
+
+	void writeSnapshot(SnapshotOutput out) throws IOException {
+		compact();
+
+		out.writeInt(classParents.getEdgeCount());
+		for (int child = 0; child < classParents.getNodeCount(); child++) {
+			for (int i = 0; i < classParents.getDegree(child); i++) {
+				out.writeEntry(interner.getEntry(child));
+				out.writeEntry(interner.getEntry(classParents.getTarget(child, i)));
+			}
+		}
+	}
+
+	void readSnapshot(SnapshotInput in) {
+		in.<ClassEntry, ClassEntry>readEntryPairs(this::indexParent);
+		compact();
 	}
 
 	public Collection<ClassEntry> getParents(ClassEntry classEntry) {
-		return classParents.get(classEntry);
+		compact();
+		return classParents.getTargets(interner.getId(classEntry), this::getClass);
 	}
 
 	public Collection<ClassEntry> getChildren(ClassEntry classEntry) {
-		return classChildren.get(classEntry);
+		compact();
+		return classChildren.getTargets(interner.getId(classEntry), this::getClass);
 	}
 
 	public Collection<ClassEntry> getDescendants(ClassEntry classEntry) {
-		Collection<ClassEntry> descendants = new HashSet<>();
+		AncestorClosure closure = getClosure();
+		if (closure == null) {
+			return collectReachable(classChildren, classEntry);
+		}
+
+		Set<ClassEntry> descendants = new HashSet<>();
+		closure.forEachDescendant(interner.getId(classEntry), id -> descendants.add(getClass(id)));
+		return descendants;
+	}
 
-		LinkedList<ClassEntry> descendantQueue = new LinkedList<>();
-		descendantQueue.push(classEntry);
+	public Set<ClassEntry> getAncestors(ClassEntry classEntry) {
+		AncestorClosure closure = getClosure();
+		if (closure == null) {
+			return collectReachable(classParents, classEntry);
+		}
 
-		while (!descendantQueue.isEmpty()) {
-			ClassEntry descendant = descendantQueue.pop();
-			Collection<ClassEntry> children = getChildren(descendant);
+		Set<ClassEntry> ancestors = new HashSet<>();
+		closure.forEachAncestor(interner.getId(classEntry), id -> ancestors.add(getClass(id)));
+		return ancestors;
+	}
 
-			children.forEach(descendantQueue::push);
-			descendants.addAll(children);
+	/**
+	 * @return whether {@code potentialAncestor} is a superclass or superinterface of {@code classEntry}, directly or
+	 * indirectly
+	 */
+	public boolean isAncestor(ClassEntry classEntry, ClassEntry potentialAncestor) {
+		AncestorClosure closure = getClosure();
+		if (closure == null) {
+			return getAncestors(classEntry).contains(potentialAncestor);
 		}
 
-		return descendants;
+		return closure.isAncestor(interner.getId(classEntry), interner.getId(potentialAncestor));
 	}
 
-	public Set<ClassEntry> getAncestors(ClassEntry classEntry) {
-		Set<ClassEntry> ancestors = Sets.newHashSet();
+	private Set<ClassEntry> collectReachable(IntGraph graph, ClassEntry classEntry) {
+		Set<ClassEntry> reachable = new HashSet<>();
+
+		int start = interner.getId(classEntry);
+		if (graph.getDegree(start) == 0) {
+			return reachable;
+		}
 
-		LinkedList<ClassEntry> ancestorQueue = new LinkedList<>();
-		ancestorQueue.push(classEntry);
+		BitSet visited = new BitSet(graph.getNodeCount());
+		int[] stack = new int[16];
+		int size = 0;
+		stack[size++] = start;
 
-		while (!ancestorQueue.isEmpty()) {
-			ClassEntry ancestor = ancestorQueue.pop();
-			Collection<ClassEntry> parents = getParents(ancestor);
+		while (size > 0) {
+			int node = stack[--size];
+			for (int i = 0; i < graph.getDegree(node); i++) {
+				int target = graph.getTarget(node, i);
+				if (!visited.get(target)) {
+					visited.set(target);
+					reachable.add(getClass(target));
 
-			parents.forEach(ancestorQueue::push);
-			ancestors.addAll(parents);
+					if (size == stack.length) {
+						stack = Arrays.copyOf(stack, size * 2);
+					}
+					stack[size++] = target;
+				}
+			}
 		}
 
-		return ancestors;
+		return reachable;
+	}
+
+	private ClassEntry getClass(int id) {
+		return (ClassEntry) interner.getEntry(id);
 	}
 
 	public Relation computeClassRelation(ClassEntry classEntry, ClassEntry potentialAncestor) {
 		if (potentialAncestor.getName().equals("java/lang/Object")) return Relation.RELATED;
 		if (!entryIndex.hasClass(classEntry)) return Relation.UNKNOWN;
 
+		AncestorClosure closure = getClosure();
+		if (closure != null) {
+			int id = interner.getId(classEntry);
+			if (closure.isAncestor(id, interner.getId(potentialAncestor))) {
+				return Relation.RELATED;
+			}
+			return closure.hasIncompleteAncestry(id) ? Relation.UNKNOWN : Relation.UNRELATED;
+		}
+
 		for (ClassEntry ancestor : getAncestors(classEntry)) {
 			if (potentialAncestor.equals(ancestor)) {
 				return Relation.RELATED;
@@ -111,12 +287,13 @@ public class InheritanceIndex implements JarIndexer {
 	}
 
 	public boolean isParent(ClassEntry classEntry) {
-		return classChildren.containsKey(classEntry);
+		compact();
+		return classChildren.getDegree(interner.getId(classEntry)) > 0;
 	}
 
 	public boolean hasParents(ClassEntry classEntry) {
-		Collection<ClassEntry> parents = classParents.get(classEntry);
-		return parents != null && !parents.isEmpty();
+		compact();
+		return classParents.getDegree(interner.getId(classEntry)) > 0;
 	}
 
 	public enum Relation {
@@ -0,0 +1,179 @@
+package cuchaz.enigma.analysis.index;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * An immutable directed graph over dense int ids, stored in compressed sparse row form: the targets of node {@code n}
+ * are {@code targets[offsets[n]]} up to {@code targets[offsets[n + 1]]}, sorted and without duplicates.
+ */
+final class IntGraph {
+	static final IntGraph EMPTY = new IntGraph(new int[1], new int[0]);
+
+	private final int[] offsets;
+	private final int[] targets;
+
+	private IntGraph(int[] offsets, int[] targets) {
+		this.offsets = offsets;
+		this.targets = targets;
+	}
+
+	int getNodeCount() {
+		return offsets.length - 1;
+	}
+
+	int getEdgeCount() {
+		return targets.length;
+	}
+
+	int getDegree(int node) {
+		if (node < 0 || node >= getNodeCount()) {
+			return 0;
+		}
+		return offsets[node + 1] - offsets[node];
+	}
+
+	int getTarget(int node, int index) {
+		return targets[offsets[node] + index];
+	}
+
+	/**
+	 * @return a read-only view of the targets of the given node, mapped through the given function
+	 */
+	<T> List<T> getTargets(int node, IntFunction<T> mapper) {
+		int degree = getDegree(node);
+		if (degree == 0) {
+			return Collections.emptyList();
+		}
+
+		int start = offsets[node];
+		return new AbstractList<T>() {
+			@Override
+			public T get(int index) {
+				if (index < 0 || index >= degree) {
+					throw new IndexOutOfBoundsException(String.valueOf(index));
+				}
+				return mapper.apply(targets[start + index]);
+			}
+
+			@Override
+			public int size() {
+				return degree;
+			}
+		};
+	}
+
+	IntGraph transpose() {
+		Builder builder = new Builder(targets.length);
+		for (int node = 0; node < getNodeCount(); node++) {
+			for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+				builder.addEdge(targets[i], node);
+			}
+		}
+		return builder.build(getNodeCount());
+	}
+
+	/**
+	 * Collects edges in any order, with duplicates, and sorts them into an {@link IntGraph}.
+	 */
+	static final class Builder {
+		private int[] sources;
+		private int[] edgeTargets;
+		private int size;
+
+		Builder() {
+			this(16);
+		}
+
+		Builder(int capacity) {
+			sources = new int[Math.max(capacity, 1)];
+			edgeTargets = new int[Math.max(capacity, 1)];
+		}
+
+		void addEdge(int source, int target) {
+			if (size == sources.length) {
+				sources = Arrays.copyOf(sources, size * 2);
+				edgeTargets = Arrays.copyOf(edgeTargets, size * 2);
+			}
+			sources[size] = source;
+			edgeTargets[size] = target;
+			size++;
+		}
+
+		void addAll(Builder other) {
+			for (int i = 0; i < other.size; i++) {
+				addEdge(other.sources[i], other.edgeTargets[i]);
+			}
+		}
+
+		/**
+		 * Removes every edge whose source matches the given predicate.
+		 */
+		void removeSources(IntPredicate predicate) {
+			int write = 0;
+			for (int i = 0; i < size; i++) {
+				if (!predicate.test(sources[i])) {
+					sources[write] = sources[i];
+					edgeTargets[write] = edgeTargets[i];
+					write++;
+				}
+			}
+			size = write;
+		}
+
+		int size() {
+			return size;
+		}
+
+		int getSource(int index) {
+			return sources[index];
+		}
+
+		int getTarget(int index) {
+			return edgeTargets[index];
+		}
+
+		IntGraph build(int nodeCount) {
+			for (int i = 0; i < size; i++) {
+				nodeCount = Math.max(nodeCount, Math.max(sources[i], edgeTargets[i]) + 1);
+			}
+
+			// counting sort by source, then sort and dedupe each row
+			int[] offsets = new int[nodeCount + 1];
+			for (int i = 0; i < size; i++) {
+				offsets[sources[i] + 1]++;
+			}
+			for (int node = 0; node < nodeCount; node++) {
+				offsets[node + 1] += offsets[node];
+			}
+
+			int[] targets = new int[size];
+			int[] cursor = Arrays.copyOf(offsets, nodeCount);
+			for (int i = 0; i < size; i++) {
+				targets[cursor[sources[i]]++] = edgeTargets[i];
+			}
+
+			int write = 0;
+			int[] deduplicatedOffsets = new int[nodeCount + 1];
+			for (int node = 0; node < nodeCount; node++) {
+				int start = offsets[node];
+				int end = offsets[node + 1];
+				Arrays.sort(targets, start, end);
+
+				deduplicatedOffsets[node] = write;
+				for (int i = start; i < end; i++) {
+					if (i == start || targets[i] != targets[i - 1]) {
+						targets[write++] = targets[i];
+					}
+				}
+			}
+			deduplicatedOffsets[nodeCount] = write;
+
+			return new IntGraph(deduplicatedOffsets, write == size ? targets : Arrays.copyOf(targets, write));
+		}
+	}
+}
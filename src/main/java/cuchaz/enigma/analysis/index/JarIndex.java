@@ -12,6 +12,8 @@
 package cuchaz.enigma.analysis.index;
 
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.analysis.ClassCache;
@@ -19,19 +21,27 @@ import cuchaz.enigma.translation.mapping.EntryResolver;
 import cuchaz.enigma.translation.mapping.IndexEntryResolver;
 import cuchaz.enigma.translation.representation.Lambda;
 import cuchaz.enigma.translation.representation.entry.*;
+import cuchaz.enigma.utils.Utils;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Opcodes;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class JarIndex implements JarIndexer {
+	private static final int SHARD_COUNT = Runtime.getRuntime().availableProcessors();
+
 	private final EntryIndex entryIndex;
 	private final InheritanceIndex inheritanceIndex;
 	private final ReferenceIndex referenceIndex;
 	private final BridgeMethodIndex bridgeMethodIndex;
 	private final PackageVisibilityIndex packageVisibilityIndex;
-	private final EntryResolver entryResolver;
+	private final IndexEntryResolver entryResolver;
 
 	private final Collection<JarIndexer> indexers;
 
@@ -48,22 +58,97 @@ public class JarIndex implements JarIndexer {
 	}
 
 	public static JarIndex empty() {
+		return empty(new EntryInterner());
+	}
+
+	private static JarIndex empty(EntryInterner interner) {
 		EntryIndex entryIndex = new EntryIndex();
-		InheritanceIndex inheritanceIndex = new InheritanceIndex(entryIndex);
-		ReferenceIndex referenceIndex = new ReferenceIndex();
+		InheritanceIndex inheritanceIndex = new InheritanceIndex(entryIndex, interner);
+		ReferenceIndex referenceIndex = new ReferenceIndex(interner);
 		BridgeMethodIndex bridgeMethodIndex = new BridgeMethodIndex(entryIndex, inheritanceIndex, referenceIndex);
 		PackageVisibilityIndex packageVisibilityIndex = new PackageVisibilityIndex();
 		return new JarIndex(entryIndex, inheritanceIndex, referenceIndex, bridgeMethodIndex, packageVisibilityIndex);
 	}
 
 	public void indexJar(ClassCache classCache, ProgressListener progress) {
+		indexJar(classCache, progress, Utils.getSystemPropertyAsBoolean("enigma.parallelIndexing", true));
+	}
+
+	public void indexJar(ClassCache classCache, ProgressListener progress, boolean parallel) {
 		progress.init(4, "Indexing jar");
 
+		if (parallel) {
+			indexShards(classCache, progress);
+		} else {
+			progress.step(1, "Entries...");
+			classCache.visit(() -> createVisitor(this), ClassReader.SKIP_FRAMES);
+		}
+
+		progress.step(3, "Bridge methods...");
+		bridgeMethodIndex.findBridgeMethods();
+
+		progress.step(4, "Processing...");
+		processIndex(this);
+	}
+
+	private void indexShards(ClassCache classCache, ProgressListener progress) {
+		// each shard is filled by a single worker, so the shard indexes don't need to be thread-safe. they do share
+		// this index's interner, so that entry ids mean the same thing in every shard
+		EntryInterner interner = inheritanceIndex.getInterner();
+		List<String> classNames = ImmutableList.copyOf(classCache.getClassNames());
+		int shardSize = Math.max(1, (classNames.size() + SHARD_COUNT - 1) / SHARD_COUNT);
+		List<List<String>> shardClasses = Lists.partition(classNames, shardSize);
+
 		progress.step(1, "Entries...");
-		classCache.visit(() -> new IndexClassVisitor(this, Opcodes.ASM5), ClassReader.SKIP_CODE);
+		List<JarIndex> shards = shardClasses.parallelStream()
+				.map(names -> {
+					JarIndex shard = JarIndex.empty(interner);
+					classCache.visit(names, () -> createVisitor(shard), ClassReader.SKIP_FRAMES);
+					return shard;
+				})
+				.collect(Collectors.toList());
+
+		progress.step(2, "Merging shards...");
+
+		// merge in shard order so that the result doesn't depend on scheduling
+		for (JarIndex shard : shards) {
+			merge(shard);
+		}
+	}
 
-		progress.step(2, "Entry references...");
-		classCache.visit(() -> new IndexReferenceVisitor(this, Opcodes.ASM5), ClassReader.SKIP_FRAMES);
+	/**
+	 * Brings this index up to date with a new version of its jar, by indexing only the classes that changed. The
+	 * declarations and references of the changed classes are replaced, after which bridge methods, package visibility
+	 * and resolved references are recomputed from the index, since a change to one class can affect them anywhere.
+	 * <p>
+	 * If this throws, the index is left partly updated. Reindexing the same classes against the previous version of
+	 * the jar brings it back to where it was.
+	 *
+	 * @param classCache     the new version of the jar
+	 * @param changedClasses the names of classes that were added, removed or changed in the new version
+	 */
+	public void reindexClasses(ClassCache classCache, Set<String> changedClasses, ProgressListener progress) {
+		progress.init(4, "Re-indexing jar");
+
+		progress.step(1, "Removing changed classes...");
+		entryIndex.removeClasses(changedClasses);
+		inheritanceIndex.removeClasses(changedClasses);
+		referenceIndex.removeClasses(changedClasses);
+		bridgeMethodIndex.clear();
+		packageVisibilityIndex.clear();
+		for (String className : changedClasses) {
+			methodImplementations.removeAll(className);
+		}
+
+		// resolutions made against the old classes must not leak into indexing the new ones
+		entryResolver.invalidate();
+
+		progress.step(2, "Entries...");
+		List<String> presentClasses = changedClasses.stream()
+				.filter(classCache.getClassNames()::contains)
+				.collect(Collectors.toList());
+
+		classCache.visit(presentClasses, () -> createVisitor(this), ClassReader.SKIP_FRAMES);
 
 		progress.step(3, "Bridge methods...");
 		bridgeMethodIndex.findBridgeMethods();
@@ -72,9 +157,52 @@ public class JarIndex implements JarIndexer {
 		processIndex(this);
 	}
 
+	private static ClassVisitor createVisitor(JarIndex index) {
+		// declarations are indexed as they are visited, while references are held back until the class is done
+		ReferenceBuffer references = new ReferenceBuffer(index);
+		return new IndexClassVisitor(index, Opcodes.ASM5, new IndexReferenceVisitor(references, Opcodes.ASM5) {
+			@Override
+			public void visitEnd() {
+				references.flush();
+			}
+		});
+	}
+
+	private void merge(JarIndex shard) {
+		entryIndex.merge(shard.entryIndex);
+		inheritanceIndex.merge(shard.inheritanceIndex);
+		referenceIndex.merge(shard.referenceIndex);
+		methodImplementations.putAll(shard.methodImplementations);
+	}
+
+	void writeSnapshot(SnapshotOutput out) throws IOException {
+		entryIndex.writeSnapshot(out);
+		inheritanceIndex.writeSnapshot(out);
+		referenceIndex.writeSnapshot(out);
+		bridgeMethodIndex.writeSnapshot(out);
+		packageVisibilityIndex.writeSnapshot(out);
+	}
+
+	void readSnapshot(SnapshotInput in) {
+		entryIndex.readSnapshot(in);
+		inheritanceIndex.readSnapshot(in);
+		referenceIndex.readSnapshot(in);
+		bridgeMethodIndex.readSnapshot(in);
+		packageVisibilityIndex.readSnapshot(in);
+
+		for (MethodEntry methodEntry : entryIndex.getMethods()) {
+			if (!methodEntry.isConstructor()) {
+				methodImplementations.put(methodEntry.getParent().getFullName(), (MethodDefEntry) methodEntry);
+			}
+		}
+	}
+
 	@Override
 	public void processIndex(JarIndex index) {
 		indexers.forEach(indexer -> indexer.processIndex(index));
+
+		// anything resolved while processing may have been resolved against unprocessed bridge methods
+		entryResolver.invalidate();
 	}
 
 	@Override
@@ -0,0 +1,157 @@
+package cuchaz.enigma.analysis.index;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import cuchaz.enigma.Constants;
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.analysis.ClassCache;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A binary copy of a fully processed {@link JarIndex}, stored next to the jar it was built from. Snapshots are keyed
+ * by the hash of the jar and the Enigma version, and are ignored as soon as either of them changes.
+ */
+public final class JarIndexSnapshot {
+	private static final int MAGIC = 0x454E4958; // ENIX
+	private static final int FORMAT_VERSION = 3;
+	private static final int MAX_HEADER_FIELD_LENGTH = 1024;
+
+	private JarIndexSnapshot() {
+	}
+
+	public static JarIndex loadOrIndex(Path jarPath, ClassCache classCache, ProgressListener progress) throws IOException {
+		Path snapshotPath = getSnapshotPath(jarPath);
+		HashCode jarHash = hashJar(jarPath);
+
+		progress.init(1, "Loading index snapshot");
+		progress.step(1, snapshotPath.getFileName().toString());
+
+		JarIndex index = read(snapshotPath, jarHash);
+		if (index != null) {
+			return index;
+		}
+
+		index = classCache.index(progress);
+		tryWrite(index, snapshotPath, jarHash);
+
+		return index;
+	}
+
+	/**
+	 * Replaces the snapshot of the given jar with the given index, which must have been built from it.
+	 */
+	public static void update(Path jarPath, JarIndex index) throws IOException {
+		tryWrite(index, getSnapshotPath(jarPath), hashJar(jarPath));
+	}
+
+	private static void tryWrite(JarIndex index, Path snapshotPath, HashCode jarHash) {
+		try {
+			write(index, snapshotPath, jarHash);
+		} catch (IOException e) {
+			// the index is still usable, it will just have to be rebuilt next time
+			System.err.println("Failed to write index snapshot '" + snapshotPath + "'");
+			e.printStackTrace();
+		}
+	}
+
+	public static Path getSnapshotPath(Path jarPath) {
+		return jarPath.resolveSibling(jarPath.getFileName() + ".index");
+	}
+
+	public static HashCode hashJar(Path jarPath) throws IOException {
+		return com.google.common.io.Files.asByteSource(jarPath.toFile()).hash(Hashing.sha256());
+	}
+
+	/**
+	 * @return the snapshotted index, or {@code null} if there is no snapshot or it was not made from this jar by this
+	 * version of Enigma
+	 */
+	@Nullable
+	public static JarIndex read(Path snapshotPath, HashCode jarHash) throws IOException {
+		if (!Files.isRegularFile(snapshotPath)) {
+			return null;
+		}
+
+		// check the header before mapping, so that a stale snapshot isn't left mapped while it is replaced
+		int headerLength = readHeader(snapshotPath, jarHash);
+		if (headerLength == -1) {
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, headerLength, channel.size() - headerLength);
+
+			JarIndex index = JarIndex.empty();
+			index.readSnapshot(new SnapshotInput(buffer));
+			return index;
+		} catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException | NegativeArraySizeException | ClassCastException e) {
+			// truncated or otherwise corrupt, same as having no snapshot at all
+			return null;
+		}
+	}
+
+	public static void write(JarIndex index, Path snapshotPath, HashCode jarHash) throws IOException {
+		SnapshotOutput output = new SnapshotOutput();
+		index.writeSnapshot(output);
+
+		Path tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			SnapshotOutput.writeString(out, Constants.VERSION);
+
+			byte[] hash = jarHash.asBytes();
+			out.writeInt(hash.length);
+			out.write(hash);
+
+			output.writeTo(out);
+		}
+
+		Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static int readHeader(Path snapshotPath, HashCode jarHash) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				return -1;
+			}
+
+			byte[] version = readBytes(in);
+			if (version == null || !Constants.VERSION.equals(new String(version, StandardCharsets.UTF_8))) {
+				return -1;
+			}
+
+			byte[] hash = readBytes(in);
+			if (hash == null || !Arrays.equals(hash, jarHash.asBytes())) {
+				return -1;
+			}
+
+			return 4 * 4 + version.length + hash.length;
+		} catch (EOFException e) {
+			return -1;
+		}
+	}
+
+	@Nullable
+	private static byte[] readBytes(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > MAX_HEADER_FIELD_LENGTH) {
+			return null;
+		}
+
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return bytes;
+	}
+}
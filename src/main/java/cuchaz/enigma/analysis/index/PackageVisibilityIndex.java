@@ -8,14 +8,14 @@ import cuchaz.enigma.analysis.EntryReference;
 import cuchaz.enigma.translation.representation.AccessFlags;
 import cuchaz.enigma.translation.representation.entry.*;
 
+import java.io.IOException;
 import java.util.*;
 
 public class PackageVisibilityIndex implements JarIndexer {
 	private static boolean requiresSamePackage(AccessFlags entryAcc, EntryReference ref, InheritanceIndex inheritanceIndex) {
 		if (entryAcc.isPublic()) return false;
 		if (entryAcc.isProtected()) {
-			Set<ClassEntry> callerAncestors = inheritanceIndex.getAncestors(ref.context.getContainingClass());
-			return !callerAncestors.contains(ref.entry.getContainingClass());
+			return !inheritanceIndex.isAncestor(ref.context.getContainingClass(), ref.entry.getContainingClass());
 		}
 		return !entryAcc.isPrivate(); // if isPrivate is false, it must be package-private
 	}
@@ -108,6 +108,32 @@ public class PackageVisibilityIndex implements JarIndexer {
 		}
 	}
 
+	void clear() {
+		connections.clear();
+		partitions.clear();
+		classPartitions.clear();
+	}
+
+	void writeSnapshot(SnapshotOutput out) throws IOException {
+		// the connections are only needed to build the partitions, so they aren't kept
+		out.writeInt(partitions.size());
+		for (Set<ClassEntry> partition : partitions) {
+			out.writeEntries(partition);
+		}
+	}
+
+	void readSnapshot(SnapshotInput in) {
+		int partitionCount = in.readInt();
+		for (int i = 0; i < partitionCount; i++) {
+			Set<ClassEntry> partition = Sets.newHashSet();
+			in.readEntries(partition::add);
+			partitions.add(partition);
+			for (ClassEntry entry : partition) {
+				classPartitions.put(entry, partition);
+			}
+		}
+	}
+
 	public Collection<Set<ClassEntry>> getPartitions() {
 		return partitions;
 	}
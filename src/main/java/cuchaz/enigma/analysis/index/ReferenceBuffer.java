@@ -0,0 +1,43 @@
+package cuchaz.enigma.analysis.index;
+
+import cuchaz.enigma.translation.representation.Lambda;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Holds on to the references collected while visiting a class so they can be handed to an indexer once all of the
+ * class's declarations are known. It is flushed after every class, so it never holds more than one class's references.
+ */
+final class ReferenceBuffer implements JarIndexer {
+	private final JarIndexer indexer;
+	private final List<Consumer<JarIndexer>> references = new ArrayList<>();
+
+	ReferenceBuffer(JarIndexer indexer) {
+		this.indexer = indexer;
+	}
+
+	@Override
+	public void indexMethodReference(MethodDefEntry callerEntry, MethodEntry referencedEntry) {
+		references.add(indexer -> indexer.indexMethodReference(callerEntry, referencedEntry));
+	}
+
+	@Override
+	public void indexFieldReference(MethodDefEntry callerEntry, FieldEntry referencedEntry) {
+		references.add(indexer -> indexer.indexFieldReference(callerEntry, referencedEntry));
+	}
+
+	@Override
+	public void indexLambda(MethodDefEntry callerEntry, Lambda lambda) {
+		references.add(indexer -> indexer.indexLambda(callerEntry, lambda));
+	}
+
+	void flush() {
+		references.forEach(reference -> reference.accept(indexer));
+		references.clear();
+	}
+}
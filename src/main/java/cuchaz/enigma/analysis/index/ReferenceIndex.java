@@ -1,25 +1,58 @@
 package cuchaz.enigma.analysis.index;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
 import cuchaz.enigma.analysis.EntryReference;
+import cuchaz.enigma.translation.mapping.EntryResolver;
 import cuchaz.enigma.translation.mapping.ResolutionStrategy;
 import cuchaz.enigma.translation.representation.Lambda;
 import cuchaz.enigma.translation.representation.MethodDescriptor;
 import cuchaz.enigma.translation.representation.TypeDescriptor;
 import cuchaz.enigma.translation.representation.entry.*;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
 
+/**
+ * Stores references as edges between interned entry ids. While indexing, edges are collected as they are found. They
+ * are compacted into {@link IntGraph}s the first time the index is queried. In {@link #processIndex} every distinct
+ * referenced method or field is resolved once, and the edges are compacted again against the resolved targets.
+ * {@link EntryReference}s are only created for the query results.
+ */
 public class ReferenceIndex implements JarIndexer {
-	private Multimap<MethodEntry, MethodEntry> methodReferences = HashMultimap.create();
+	private final EntryInterner interner;
 
-	private Multimap<MethodEntry, EntryReference<MethodEntry, MethodDefEntry>> referencesToMethods = HashMultimap.create();
-	private Multimap<ClassEntry, EntryReference<ClassEntry, MethodDefEntry>> referencesToClasses = HashMultimap.create();
-	private Multimap<FieldEntry, EntryReference<FieldEntry, MethodDefEntry>> referencesToFields = HashMultimap.create();
-	private Multimap<ClassEntry, EntryReference<ClassEntry, FieldDefEntry>> fieldTypeReferences = HashMultimap.create();
-	private Multimap<ClassEntry, EntryReference<ClassEntry, MethodDefEntry>> methodTypeReferences = HashMultimap.create();
+	// edges as found while indexing, from the referencing definition to the referenced entry
+	private final IntGraph.Builder methodCalls = new IntGraph.Builder();
+	private final IntGraph.Builder constructorCalls = new IntGraph.Builder();
+	private final IntGraph.Builder fieldAccesses = new IntGraph.Builder();
+	private final IntGraph.Builder fieldTypes = new IntGraph.Builder();
+	private final IntGraph.Builder methodTypes = new IntGraph.Builder();
+
+	// the entry instance that references to each id are made with. definitions are only ever referencing contexts, so
+	// those come from the interner
+	private Entry<?>[] referencedEntries = new Entry<?>[16];
+
+	@Nullable
+	private int[] resolvedIds;
+	private volatile boolean dirty;
+
+	private IntGraph methodReferences = IntGraph.EMPTY;
+	private IntGraph referencesToMethods = IntGraph.EMPTY;
+	private IntGraph referencesToClasses = IntGraph.EMPTY;
+	private IntGraph referencesToFields = IntGraph.EMPTY;
+	private IntGraph fieldTypeReferences = IntGraph.EMPTY;
+	private IntGraph methodTypeReferences = IntGraph.EMPTY;
+
+	public ReferenceIndex() {
+		this(new EntryInterner());
+	}
+
+	public ReferenceIndex(EntryInterner interner) {
+		this.interner = interner;
+	}
 
 	@Override
 	public void indexMethod(MethodDefEntry methodEntry) {
@@ -35,8 +68,7 @@ public class ReferenceIndex implements JarIndexer {
 
 	private void indexMethodTypeDescriptor(MethodDefEntry method, TypeDescriptor typeDescriptor) {
 		if (typeDescriptor.isType()) {
-			ClassEntry referencedClass = typeDescriptor.getTypeEntry();
-			methodTypeReferences.put(referencedClass, new EntryReference<>(referencedClass, referencedClass.getName(), method));
+			addEdge(methodTypes, method, typeDescriptor.getTypeEntry());
 		} else if (typeDescriptor.isArray()) {
 			indexMethodTypeDescriptor(method, typeDescriptor.getArrayType());
 		}
@@ -49,8 +81,7 @@ public class ReferenceIndex implements JarIndexer {
 
 	private void indexFieldTypeDescriptor(FieldDefEntry field, TypeDescriptor typeDescriptor) {
 		if (typeDescriptor.isType()) {
-			ClassEntry referencedClass = typeDescriptor.getTypeEntry();
-			fieldTypeReferences.put(referencedClass, new EntryReference<>(referencedClass, referencedClass.getName(), field));
+			addEdge(fieldTypes, field, typeDescriptor.getTypeEntry());
 		} else if (typeDescriptor.isArray()) {
 		    indexFieldTypeDescriptor(field, typeDescriptor.getArrayType());
 		}
@@ -58,18 +89,16 @@ public class ReferenceIndex implements JarIndexer {
 
 	@Override
 	public void indexMethodReference(MethodDefEntry callerEntry, MethodEntry referencedEntry) {
-		referencesToMethods.put(referencedEntry, new EntryReference<>(referencedEntry, referencedEntry.getName(), callerEntry));
-		methodReferences.put(callerEntry, referencedEntry);
+		addEdge(methodCalls, callerEntry, referencedEntry);
 
 		if (referencedEntry.isConstructor()) {
-			ClassEntry referencedClass = referencedEntry.getParent();
-			referencesToClasses.put(referencedClass, new EntryReference<>(referencedClass, referencedEntry.getName(), callerEntry));
+			addEdge(constructorCalls, callerEntry, referencedEntry.getParent());
 		}
 	}
 
 	@Override
 	public void indexFieldReference(MethodDefEntry callerEntry, FieldEntry referencedEntry) {
-		referencesToFields.put(referencedEntry, new EntryReference<>(referencedEntry, referencedEntry.getName(), callerEntry));
+		addEdge(fieldAccesses, callerEntry, referencedEntry);
 	}
 
 	@Override
@@ -85,62 +114,238 @@ public class ReferenceIndex implements JarIndexer {
 		indexMethodDescriptor(callerEntry, lambda.getInstantiatedMethodType());
 	}
 
+	private void addEdge(IntGraph.Builder edges, Entry<?> context, Entry<?> referencedEntry) {
+		int referencedId = interner.intern(referencedEntry);
+		putReferencedEntry(referencedId, referencedEntry);
+
+		edges.addEdge(interner.intern(context), referencedId);
+		dirty = true;
+	}
+
+	private void putReferencedEntry(int id, Entry<?> entry) {
+		if (id >= referencedEntries.length) {
+			referencedEntries = Arrays.copyOf(referencedEntries, Math.max(id + 1, referencedEntries.length * 2));
+		}
+		if (referencedEntries[id] == null) {
+			referencedEntries[id] = entry;
+		}
+	}
+
+	void merge(ReferenceIndex other) {
+		if (other.interner != interner) {
+			throw new IllegalArgumentException("Cannot merge reference indexes with different interners");
+		}
+
+		methodCalls.addAll(other.methodCalls);
+		constructorCalls.addAll(other.constructorCalls);
+		fieldAccesses.addAll(other.fieldAccesses);
+		fieldTypes.addAll(other.fieldTypes);
+		methodTypes.addAll(other.methodTypes);
+
+		for (int id = 0; id < other.referencedEntries.length; id++) {
+			if (other.referencedEntries[id] != null) {
+				putReferencedEntry(id, other.referencedEntries[id]);
+			}
+		}
+
+		dirty = true;
+	}
+
+	/**
+	 * Removes every reference made from within the given classes.
+	 *
+	 * @param classNames full names of the classes to remove
+	 */
+	void removeClasses(Set<String> classNames) {
+		IntPredicate inRemovedClass = id -> classNames.contains(interner.getEntry(id).getContainingClass().getFullName());
+		methodCalls.removeSources(inRemovedClass);
+		constructorCalls.removeSources(inRemovedClass);
+		fieldAccesses.removeSources(inRemovedClass);
+		fieldTypes.removeSources(inRemovedClass);
+		methodTypes.removeSources(inRemovedClass);
+		dirty = true;
+	}
+
 	@Override
 	public void processIndex(JarIndex index) {
-		methodReferences = remapReferences(index, methodReferences);
-		referencesToMethods = remapReferencesTo(index, referencesToMethods);
-		referencesToClasses = remapReferencesTo(index, referencesToClasses);
-		referencesToFields = remapReferencesTo(index, referencesToFields);
-		fieldTypeReferences = remapReferencesTo(index, fieldTypeReferences);
-		methodTypeReferences = remapReferencesTo(index, methodTypeReferences);
+		EntryResolver resolver = index.getEntryResolver();
+
+		int[] resolvedIds = new int[interner.size()];
+		Arrays.fill(resolvedIds, -1);
+
+		// only the referenced methods and fields can resolve to something else. classes always resolve to themselves,
+		// and so do the referencing definitions, since they exist in the index
+		resolveTargets(resolver, methodCalls, resolvedIds);
+		resolveTargets(resolver, fieldAccesses, resolvedIds);
+
+		synchronized (this) {
+			this.resolvedIds = resolvedIds;
+			this.dirty = true;
+		}
+
+		compact();
+	}
+
+	private void resolveTargets(EntryResolver resolver, IntGraph.Builder edges, int[] resolvedIds) {
+		for (int i = 0; i < edges.size(); i++) {
+			int target = edges.getTarget(i);
+			if (resolvedIds[target] != -1) {
+				continue;
+			}
+
+			Entry<?> entry = referencedEntries[target];
+			Entry<?> resolved = resolver.resolveFirstEntry(entry, ResolutionStrategy.RESOLVE_CLOSEST);
+
+			int resolvedId = interner.intern(resolved);
+			putReferencedEntry(resolvedId, resolved);
+			resolvedIds[target] = resolvedId;
+		}
 	}
 
-	private <K extends Entry<?>, V extends Entry<?>> Multimap<K, V> remapReferences(JarIndex index, Multimap<K, V> multimap) {
-		Multimap<K, V> resolved = HashMultimap.create(multimap.keySet().size(), multimap.size() / multimap.keySet().size());
-		for (Map.Entry<K, V> entry : multimap.entries()) {
-			resolved.put(remap(index, entry.getKey()), remap(index, entry.getValue()));
+	private void compact() {
+		if (dirty) {
+			synchronized (this) {
+				if (dirty) {
+					int nodeCount = interner.size();
+
+					methodReferences = resolve(methodCalls).build(nodeCount);
+					referencesToMethods = methodReferences.transpose();
+					referencesToClasses = constructorCalls.build(nodeCount).transpose();
+					referencesToFields = resolve(fieldAccesses).build(nodeCount).transpose();
+					fieldTypeReferences = fieldTypes.build(nodeCount).transpose();
+					methodTypeReferences = methodTypes.build(nodeCount).transpose();
+
+					dirty = false;
+				}
+			}
 		}
-		return resolved;
 	}
 
-	private <E extends Entry<?>, C extends Entry<?>> Multimap<E, EntryReference<E, C>> remapReferencesTo(JarIndex index, Multimap<E, EntryReference<E, C>> multimap) {
-		final int keySetSize = multimap.keySet().size();
-		Multimap<E, EntryReference<E, C>> resolved = HashMultimap.create(keySetSize, keySetSize == 0 ? 0 : multimap.size() / keySetSize);
-		for (Map.Entry<E, EntryReference<E, C>> entry : multimap.entries()) {
-			resolved.put(remap(index, entry.getKey()), remap(index, entry.getValue()));
+	private IntGraph.Builder resolve(IntGraph.Builder edges) {
+		if (resolvedIds == null) {
+			return edges;
 		}
+
+		IntGraph.Builder resolved = new IntGraph.Builder(edges.size());
+		for (int i = 0; i < edges.size(); i++) {
+			int target = edges.getTarget(i);
+			int resolvedTarget = target < resolvedIds.length && resolvedIds[target] != -1 ? resolvedIds[target] : target;
+			resolved.addEdge(edges.getSource(i), resolvedTarget);
+		}
+
 		return resolved;
 	}
 
-	private <E extends Entry<?>> E remap(JarIndex index, E entry) {
-		return index.getEntryResolver().resolveFirstEntry(entry, ResolutionStrategy.RESOLVE_CLOSEST);
+	void writeSnapshot(SnapshotOutput out) throws IOException {
+		// the edges are written as they were found, along with what they resolved to, so that a reloaded index can
+		// resolve them again after the classes they resolve against have changed
+		int nodeCount = interner.size();
+		writeEdges(out, methodCalls.build(nodeCount));
+		writeEdges(out, constructorCalls.build(nodeCount));
+		writeEdges(out, fieldAccesses.build(nodeCount));
+		writeEdges(out, fieldTypes.build(nodeCount));
+		writeEdges(out, methodTypes.build(nodeCount));
+
+		int resolvedCount = 0;
+		int[] resolvedIds = this.resolvedIds != null ? this.resolvedIds : new int[0];
+		for (int target = 0; target < resolvedIds.length; target++) {
+			if (resolvedIds[target] != -1 && resolvedIds[target] != target) {
+				resolvedCount++;
+			}
+		}
+
+		out.writeInt(resolvedCount);
+		for (int target = 0; target < resolvedIds.length; target++) {
+			if (resolvedIds[target] != -1 && resolvedIds[target] != target) {
+				out.writeEntry(referencedEntries[target]);
+				out.writeEntry(referencedEntries[resolvedIds[target]]);
+			}
+		}
 	}
 
-	private <E extends Entry<?>, C extends Entry<?>> EntryReference<E, C> remap(JarIndex index, EntryReference<E, C> reference) {
-		return index.getEntryResolver().resolveFirstReference(reference, ResolutionStrategy.RESOLVE_CLOSEST);
+	private void writeEdges(SnapshotOutput out, IntGraph edges) throws IOException {
+		out.writeInt(edges.getEdgeCount());
+		for (int context = 0; context < edges.getNodeCount(); context++) {
+			for (int i = 0; i < edges.getDegree(context); i++) {
+				out.writeEntry(interner.getEntry(context));
+				out.writeEntry(referencedEntries[edges.getTarget(context, i)]);
+			}
+		}
+	}
+
+	void readSnapshot(SnapshotInput in) {
+		in.readEntryPairs((Entry<?> context, Entry<?> entry) -> addEdge(methodCalls, context, entry));
+		in.readEntryPairs((Entry<?> context, Entry<?> entry) -> addEdge(constructorCalls, context, entry));
+		in.readEntryPairs((Entry<?> context, Entry<?> entry) -> addEdge(fieldAccesses, context, entry));
+		in.readEntryPairs((Entry<?> context, Entry<?> entry) -> addEdge(fieldTypes, context, entry));
+		in.readEntryPairs((Entry<?> context, Entry<?> entry) -> addEdge(methodTypes, context, entry));
+
+		IntGraph.Builder resolutions = new IntGraph.Builder();
+		in.readEntryPairs((Entry<?> entry, Entry<?> resolved) -> {
+			int resolvedId = interner.intern(resolved);
+			putReferencedEntry(resolvedId, resolved);
+			resolutions.addEdge(interner.intern(entry), resolvedId);
+		});
+
+		int[] resolvedIds = new int[interner.size()];
+		Arrays.fill(resolvedIds, -1);
+		for (int i = 0; i < resolutions.size(); i++) {
+			resolvedIds[resolutions.getSource(i)] = resolutions.getTarget(i);
+		}
+
+		synchronized (this) {
+			this.resolvedIds = resolvedIds;
+			this.dirty = true;
+		}
+
+		compact();
 	}
 
 	public Collection<MethodEntry> getMethodsReferencedBy(MethodEntry entry) {
-		return methodReferences.get(entry);
+		compact();
+		return methodReferences.getTargets(interner.getId(entry), this::getReferencedEntry);
 	}
 
 	public Collection<EntryReference<FieldEntry, MethodDefEntry>> getReferencesToField(FieldEntry entry) {
-		return referencesToFields.get(entry);
+		compact();
+		return getReferences(referencesToFields, entry);
 	}
 
 	public Collection<EntryReference<ClassEntry, MethodDefEntry>> getReferencesToClass(ClassEntry entry) {
-		return referencesToClasses.get(entry);
+		compact();
+		return getReferences(referencesToClasses, entry);
 	}
 
 	public Collection<EntryReference<MethodEntry, MethodDefEntry>> getReferencesToMethod(MethodEntry entry) {
-		return referencesToMethods.get(entry);
+		compact();
+		return getReferences(referencesToMethods, entry);
 	}
 
 	public Collection<EntryReference<ClassEntry, FieldDefEntry>> getFieldTypeReferencesToClass(ClassEntry entry) {
-		return fieldTypeReferences.get(entry);
+		compact();
+		return getReferences(fieldTypeReferences, entry);
 	}
 
 	public Collection<EntryReference<ClassEntry, MethodDefEntry>> getMethodTypeReferencesToClass(ClassEntry entry) {
-		return methodTypeReferences.get(entry);
+		compact();
+		return getReferences(methodTypeReferences, entry);
+	}
+
+	private <E extends Entry<?>, C extends Entry<?>> Collection<EntryReference<E, C>> getReferences(IntGraph referencesTo, E entry) {
+		int id = interner.getId(entry);
+		return referencesTo.getTargets(id, context -> {
+			E referencedEntry = getReferencedEntry(id);
+			return new EntryReference<>(referencedEntry, referencedEntry.getName(), getContext(context));
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private <E extends Entry<?>> E getReferencedEntry(int id) {
+		return (E) referencedEntries[id];
+	}
+
+	@SuppressWarnings("unchecked")
+	private <C extends Entry<?>> C getContext(int id) {
+		return (C) interner.getEntry(id);
 	}
 }
@@ -0,0 +1,166 @@
+package cuchaz.enigma.analysis.index;
+
+import com.google.common.collect.Multimap;
+import cuchaz.enigma.analysis.EntryReference;
+import cuchaz.enigma.translation.representation.AccessFlags;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.Signature;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Reads back what a {@link SnapshotOutput} wrote. The string and entry tables are decoded up front, after which every
+ * entry in the index sections is an array lookup.
+ */
+public final class SnapshotInput {
+	private final ByteBuffer buffer;
+
+	private final String[] strings;
+	private final Entry<?>[] entries;
+
+	public SnapshotInput(ByteBuffer buffer) {
+		this.buffer = buffer;
+
+		strings = new String[buffer.getInt()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = readString(buffer);
+		}
+
+		entries = new Entry<?>[buffer.getInt()];
+		for (int i = 0; i < entries.length; i++) {
+			entries[i] = readTableEntry();
+		}
+	}
+
+	public int readInt() {
+		return buffer.getInt();
+	}
+
+	public boolean readBoolean() {
+		return buffer.get() != 0;
+	}
+
+	public String readString() {
+		return strings[buffer.getInt()];
+	}
+
+	@SuppressWarnings("unchecked")
+	public <E extends Entry<?>> E readEntry() {
+		return (E) entries[buffer.getInt()];
+	}
+
+	public <E extends Entry<?>, C extends Entry<?>> EntryReference<E, C> readReference() {
+		E entry = readEntry();
+		int contextId = buffer.getInt();
+		@SuppressWarnings("unchecked")
+		C context = contextId != -1 ? (C) entries[contextId] : null;
+		boolean named = readBoolean();
+
+		// any non-empty source name that isn't a constructor keyword marks the reference as named
+		return new EntryReference<>(entry, named ? entry.getName() : null, context);
+	}
+
+	<E extends Entry<?>> void readEntries(Consumer<E> consumer) {
+		int count = buffer.getInt();
+		for (int i = 0; i < count; i++) {
+			consumer.accept(readEntry());
+		}
+	}
+
+	<K extends Entry<?>, V extends Entry<?>> void readEntryPairs(BiConsumer<K, V> consumer) {
+		int count = buffer.getInt();
+		for (int i = 0; i < count; i++) {
+			K key = readEntry();
+			V value = readEntry();
+			consumer.accept(key, value);
+		}
+	}
+
+	<E extends Entry<?>, C extends Entry<?>> void readReferences(Multimap<E, EntryReference<E, C>> references) {
+		int count = buffer.getInt();
+		for (int i = 0; i < count; i++) {
+			E key = readEntry();
+			references.put(key, readReference());
+		}
+	}
+
+	private Entry<?> readTableEntry() {
+		byte kind = buffer.get();
+		int parentId = buffer.getInt();
+		String name = strings[buffer.getInt()];
+
+		switch (kind) {
+			case SnapshotOutput.CLASS:
+				return new ClassEntry(getParentClass(parentId), name);
+			case SnapshotOutput.CLASS_DEF: {
+				Signature signature = readSignature();
+				AccessFlags access = new AccessFlags(buffer.getInt());
+				int superClassId = buffer.getInt();
+				ClassEntry superClass = superClassId != -1 ? (ClassEntry) entries[superClassId] : null;
+
+				ClassEntry[] interfaces = new ClassEntry[buffer.getInt()];
+				for (int i = 0; i < interfaces.length; i++) {
+					interfaces[i] = (ClassEntry) entries[buffer.getInt()];
+				}
+
+				return new ClassDefEntry(getParentClass(parentId), name, signature, access, superClass, interfaces);
+			}
+			case SnapshotOutput.FIELD:
+				return new FieldEntry(getParentClass(parentId), name, TypeDescriptor.parse(strings[buffer.getInt()]));
+			case SnapshotOutput.FIELD_DEF: {
+				TypeDescriptor desc = TypeDescriptor.parse(strings[buffer.getInt()]);
+				Signature signature = readSignature();
+				return new FieldDefEntry(getParentClass(parentId), name, desc, signature, new AccessFlags(buffer.getInt()));
+			}
+			case SnapshotOutput.METHOD:
+				return new MethodEntry(getParentClass(parentId), name, MethodDescriptor.parse(strings[buffer.getInt()]));
+			case SnapshotOutput.METHOD_DEF: {
+				MethodDescriptor desc = MethodDescriptor.parse(strings[buffer.getInt()]);
+				Signature signature = readSignature();
+				return new MethodDefEntry(getParentClass(parentId), name, desc, signature, new AccessFlags(buffer.getInt()));
+			}
+			case SnapshotOutput.LOCAL_VARIABLE: {
+				int index = buffer.getInt();
+				boolean parameter = readBoolean();
+				return new LocalVariableEntry(getParentMethod(parentId), index, name, parameter);
+			}
+			case SnapshotOutput.LOCAL_VARIABLE_DEF: {
+				int index = buffer.getInt();
+				boolean parameter = readBoolean();
+				TypeDescriptor desc = TypeDescriptor.parse(strings[buffer.getInt()]);
+				return new LocalVariableDefEntry(getParentMethod(parentId), index, name, parameter, desc);
+			}
+			default:
+				throw new IllegalArgumentException("Unknown entry kind " + kind);
+		}
+	}
+
+	private ClassEntry getParentClass(int parentId) {
+		return parentId != -1 ? (ClassEntry) entries[parentId] : null;
+	}
+
+	private MethodEntry getParentMethod(int parentId) {
+		return (MethodEntry) entries[parentId];
+	}
+
+	private Signature readSignature() {
+		if (!readBoolean()) {
+			return null;
+		}
+
+		int valueId = buffer.getInt();
+		String value = valueId != -1 ? strings[valueId] : null;
+		return readBoolean() ? Signature.createTypedSignature(value) : Signature.createSignature(value);
+	}
+
+	static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,243 @@
+package cuchaz.enigma.analysis.index;
+
+import com.google.common.collect.Multimap;
+import cuchaz.enigma.analysis.EntryReference;
+import cuchaz.enigma.translation.representation.Signature;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes index contents in terms of string and entry table ids. Each distinct entry is written to the entry table once,
+ * and every later use of it is a single int.
+ */
+public final class SnapshotOutput {
+	static final byte CLASS = 0;
+	static final byte CLASS_DEF = 1;
+	static final byte FIELD = 2;
+	static final byte FIELD_DEF = 3;
+	static final byte METHOD = 4;
+	static final byte METHOD_DEF = 5;
+	static final byte LOCAL_VARIABLE = 6;
+	static final byte LOCAL_VARIABLE_DEF = 7;
+
+	private final Map<String, Integer> stringIds = new HashMap<>();
+	private final List<String> strings = new ArrayList<>();
+
+	// def entries are equal to their plain counterparts, so they have to be kept apart by kind
+	private final List<Map<Object, Integer>> entryIds = new ArrayList<>();
+	private int entryCount;
+
+	private final ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+	private final DataOutputStream entries = new DataOutputStream(entryBytes);
+
+	private final ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+	private final DataOutputStream body = new DataOutputStream(bodyBytes);
+
+	public SnapshotOutput() {
+		for (int i = 0; i <= LOCAL_VARIABLE_DEF; i++) {
+			entryIds.add(new HashMap<>());
+		}
+	}
+
+	public void writeInt(int value) throws IOException {
+		body.writeInt(value);
+	}
+
+	public void writeBoolean(boolean value) throws IOException {
+		body.writeBoolean(value);
+	}
+
+	public void writeString(String value) throws IOException {
+		body.writeInt(internString(value));
+	}
+
+	public void writeEntry(Entry<?> entry) throws IOException {
+		body.writeInt(intern(entry));
+	}
+
+	public void writeReference(EntryReference<?, ?> reference) throws IOException {
+		body.writeInt(intern(reference.entry));
+		body.writeInt(reference.context != null ? intern(reference.context) : -1);
+		body.writeBoolean(reference.isNamed());
+	}
+
+	void writeEntries(Collection<? extends Entry<?>> entries) throws IOException {
+		body.writeInt(entries.size());
+		for (Entry<?> entry : entries) {
+			writeEntry(entry);
+		}
+	}
+
+	void writeEntryPairs(Collection<? extends Map.Entry<? extends Entry<?>, ? extends Entry<?>>> pairs) throws IOException {
+		body.writeInt(pairs.size());
+		for (Map.Entry<? extends Entry<?>, ? extends Entry<?>> pair : pairs) {
+			writeEntry(pair.getKey());
+			writeEntry(pair.getValue());
+		}
+	}
+
+	void writeReferences(Multimap<? extends Entry<?>, ? extends EntryReference<?, ?>> references) throws IOException {
+		body.writeInt(references.size());
+		for (Map.Entry<? extends Entry<?>, ? extends EntryReference<?, ?>> reference : references.entries()) {
+			writeEntry(reference.getKey());
+			writeReference(reference.getValue());
+		}
+	}
+
+	public void writeTo(DataOutputStream out) throws IOException {
+		out.writeInt(strings.size());
+		for (String string : strings) {
+			writeString(out, string);
+		}
+
+		out.writeInt(entryCount);
+		entryBytes.writeTo(out);
+		bodyBytes.writeTo(out);
+	}
+
+	private int intern(Entry<?> entry) throws IOException {
+		byte kind = getKind(entry);
+		Object key = getKey(entry);
+		Integer id = entryIds.get(kind).get(key);
+		if (id != null) {
+			return id;
+		}
+
+		// everything an entry refers to gets a lower id, so the table can be read back in a single pass
+		int parent = entry.getParent() != null ? intern(entry.getParent()) : -1;
+
+		int superClass = -1;
+		int[] interfaces = null;
+		if (entry instanceof ClassDefEntry) {
+			ClassDefEntry classDef = (ClassDefEntry) entry;
+			superClass = classDef.getSuperClass() != null ? intern(classDef.getSuperClass()) : -1;
+
+			ClassEntry[] interfaceEntries = classDef.getInterfaces();
+			interfaces = new int[interfaceEntries.length];
+			for (int i = 0; i < interfaceEntries.length; i++) {
+				interfaces[i] = intern(interfaceEntries[i]);
+			}
+		}
+
+		entries.writeByte(kind);
+		entries.writeInt(parent);
+		entries.writeInt(internString(entry.getName()));
+
+		switch (kind) {
+			case CLASS_DEF: {
+				ClassDefEntry classDef = (ClassDefEntry) entry;
+				writeSignature(classDef.getSignature());
+				entries.writeInt(classDef.getAccess().getFlags());
+				entries.writeInt(superClass);
+				entries.writeInt(interfaces.length);
+				for (int interfaceId : interfaces) {
+					entries.writeInt(interfaceId);
+				}
+				break;
+			}
+			case FIELD:
+				entries.writeInt(internString(((FieldEntry) entry).getDesc().toString()));
+				break;
+			case FIELD_DEF: {
+				FieldDefEntry fieldDef = (FieldDefEntry) entry;
+				entries.writeInt(internString(fieldDef.getDesc().toString()));
+				writeSignature(fieldDef.getSignature());
+				entries.writeInt(fieldDef.getAccess().getFlags());
+				break;
+			}
+			case METHOD:
+				entries.writeInt(internString(((MethodEntry) entry).getDesc().toString()));
+				break;
+			case METHOD_DEF: {
+				MethodDefEntry methodDef = (MethodDefEntry) entry;
+				entries.writeInt(internString(methodDef.getDesc().toString()));
+				writeSignature(methodDef.getSignature());
+				entries.writeInt(methodDef.getAccess().getFlags());
+				break;
+			}
+			case LOCAL_VARIABLE: {
+				LocalVariableEntry variable = (LocalVariableEntry) entry;
+				entries.writeInt(variable.getIndex());
+				entries.writeBoolean(variable.isArgument());
+				break;
+			}
+			case LOCAL_VARIABLE_DEF: {
+				LocalVariableDefEntry variableDef = (LocalVariableDefEntry) entry;
+				entries.writeInt(variableDef.getIndex());
+				entries.writeBoolean(variableDef.isArgument());
+				entries.writeInt(internString(variableDef.getDesc().toString()));
+				break;
+			}
+		}
+
+		id = entryCount++;
+		entryIds.get(kind).put(key, id);
+		return id;
+	}
+
+	private static Object getKey(Entry<?> entry) {
+		// local variables are equal by their slot alone, but a slot can be reused for other variables
+		if (entry instanceof LocalVariableEntry) {
+			LocalVariableEntry variable = (LocalVariableEntry) entry;
+			TypeDescriptor desc = variable instanceof LocalVariableDefEntry ? ((LocalVariableDefEntry) variable).getDesc() : null;
+			return Arrays.asList(variable, variable.getName(), variable.isArgument(), desc);
+		}
+		return entry;
+	}
+
+	private void writeSignature(Signature signature) throws IOException {
+		entries.writeBoolean(signature != null);
+		if (signature != null) {
+			String value = signature.getSignature();
+			entries.writeInt(value != null ? internString(value) : -1);
+			entries.writeBoolean(signature.isType());
+		}
+	}
+
+	private int internString(String string) {
+		return stringIds.computeIfAbsent(string, s -> {
+			strings.add(s);
+			return strings.size() - 1;
+		});
+	}
+
+	private static byte getKind(Entry<?> entry) {
+		if (entry instanceof ClassDefEntry) {
+			return CLASS_DEF;
+		} else if (entry instanceof ClassEntry) {
+			return CLASS;
+		} else if (entry instanceof FieldDefEntry) {
+			return FIELD_DEF;
+		} else if (entry instanceof FieldEntry) {
+			return FIELD;
+		} else if (entry instanceof MethodDefEntry) {
+			return METHOD_DEF;
+		} else if (entry instanceof MethodEntry) {
+			return METHOD;
+		} else if (entry instanceof LocalVariableDefEntry) {
+			return LOCAL_VARIABLE_DEF;
+		} else if (entry instanceof LocalVariableEntry) {
+			return LOCAL_VARIABLE;
+		}
+
+		throw new IllegalArgumentException("Cannot write " + entry.getClass().getSimpleName() + " to an index snapshot");
+	}
+
+	static void writeString(DataOutputStream out, String string) throws IOException {
+		// not writeUTF, which is limited to 64k and would make a huge generic signature fail the whole snapshot
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+}
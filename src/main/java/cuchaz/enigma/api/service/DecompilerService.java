@@ -0,0 +1,14 @@
+package cuchaz.enigma.api.service;
+
+import cuchaz.enigma.CompiledSource;
+import cuchaz.enigma.source.Decompiler;
+import cuchaz.enigma.source.SourceSettings;
+
+public interface DecompilerService extends EnigmaService {
+	EnigmaServiceType<DecompilerService> TYPE = EnigmaServiceType.create("decompiler");
+
+	/**
+	 * @param classes the classes to decompile, along with every class they reference that isn't on the classpath
+	 */
+	Decompiler create(CompiledSource classes, SourceSettings settings);
+}
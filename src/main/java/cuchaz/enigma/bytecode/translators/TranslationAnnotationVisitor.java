@@ -28,7 +28,7 @@ public class TranslationAnnotationVisitor extends AnnotationVisitor {
 
 	@Override
 	public AnnotationVisitor visitAnnotation(String name, String desc) {
-		TypeDescriptor type = new TypeDescriptor(desc);
+		TypeDescriptor type = TypeDescriptor.parse(desc);
 		if (name != null) {
 			FieldEntry annotationField = translator.translate(new FieldEntry(annotationEntry, name, type));
 			return super.visitAnnotation(annotationField.getName(), annotationField.getDesc().toString());
@@ -39,7 +39,7 @@ public class TranslationAnnotationVisitor extends AnnotationVisitor {
 
 	@Override
 	public void visitEnum(String name, String desc, String value) {
-		TypeDescriptor type = new TypeDescriptor(desc);
+		TypeDescriptor type = TypeDescriptor.parse(desc);
 		FieldEntry enumField = translator.translate(new FieldEntry(type.getTypeEntry(), value, type));
 		if (name != null) {
 			FieldEntry annotationField = translator.translate(new FieldEntry(annotationEntry, name, type));
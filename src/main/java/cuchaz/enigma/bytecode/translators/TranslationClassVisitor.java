@@ -52,9 +52,12 @@ public class TranslationClassVisitor extends ClassVisitor {
 	public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
 		MethodDefEntry entry = MethodDefEntry.parse(obfClassEntry, access, name, desc, signature);
 		MethodDefEntry translatedEntry = translator.translate(entry);
-		String[] translatedExceptions = new String[exceptions.length];
-		for (int i = 0; i < exceptions.length; i++) {
-			translatedExceptions[i] = translator.translate(new ClassEntry(exceptions[i])).getFullName();
+		String[] translatedExceptions = null;
+		if (exceptions != null) {
+			translatedExceptions = new String[exceptions.length];
+			for (int i = 0; i < exceptions.length; i++) {
+				translatedExceptions[i] = translator.translate(new ClassEntry(exceptions[i])).getFullName();
+			}
 		}
 		MethodVisitor mv = super.visitMethod(translatedEntry.getAccess().getFlags(), translatedEntry.getName(), translatedEntry.getDesc().toString(), translatedEntry.getSignature().toString(), translatedExceptions);
 		return new TranslationMethodVisitor(translator, obfClassEntry, entry, api, mv);
@@ -79,7 +82,7 @@ public class TranslationClassVisitor extends ClassVisitor {
 	@Override
 	public void visitOuterClass(String owner, String name, String desc) {
 		if (desc != null) {
-			MethodEntry translatedEntry = translator.translate(new MethodEntry(new ClassEntry(owner), name, new MethodDescriptor(desc)));
+			MethodEntry translatedEntry = translator.translate(new MethodEntry(new ClassEntry(owner), name, MethodDescriptor.parse(desc)));
 			super.visitOuterClass(translatedEntry.getParent().getFullName(), translatedEntry.getName(), translatedEntry.getDesc().toString());
 		} else {
 			super.visitOuterClass(owner, name, desc);
@@ -88,14 +91,14 @@ public class TranslationClassVisitor extends ClassVisitor {
 
 	@Override
 	public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-		TypeDescriptor translatedDesc = translator.translate(new TypeDescriptor(desc));
+		TypeDescriptor translatedDesc = translator.translate(TypeDescriptor.parse(desc));
 		AnnotationVisitor av = super.visitAnnotation(translatedDesc.toString(), visible);
 		return new TranslationAnnotationVisitor(translator, translatedDesc.getTypeEntry(), api, av);
 	}
 
 	@Override
 	public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
-		TypeDescriptor translatedDesc = translator.translate(new TypeDescriptor(desc));
+		TypeDescriptor translatedDesc = translator.translate(TypeDescriptor.parse(desc));
 		AnnotationVisitor av = super.visitTypeAnnotation(typeRef, typePath, translatedDesc.toString(), visible);
 		return new TranslationAnnotationVisitor(translator, translatedDesc.getTypeEntry(), api, av);
 	}
@@ -27,14 +27,14 @@ public class TranslationMethodVisitor extends MethodVisitor {
 
 	@Override
 	public void visitFieldInsn(int opcode, String owner, String name, String desc) {
-		FieldEntry entry = new FieldEntry(new ClassEntry(owner), name, new TypeDescriptor(desc));
+		FieldEntry entry = new FieldEntry(new ClassEntry(owner), name, TypeDescriptor.parse(desc));
 		FieldEntry translatedEntry = translator.translate(entry);
 		super.visitFieldInsn(opcode, translatedEntry.getParent().getFullName(), translatedEntry.getName(), translatedEntry.getDesc().toString());
 	}
 
 	@Override
 	public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
-		MethodEntry entry = new MethodEntry(new ClassEntry(owner), name, new MethodDescriptor(desc));
+		MethodEntry entry = new MethodEntry(new ClassEntry(owner), name, MethodDescriptor.parse(desc));
 		MethodEntry translatedEntry = translator.translate(entry);
 		super.visitMethodInsn(opcode, translatedEntry.getParent().getFullName(), translatedEntry.getName(), translatedEntry.getDesc().toString(), itf);
 	}
@@ -62,21 +62,21 @@ public class TranslationMethodVisitor extends MethodVisitor {
 
 	@Override
 	public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-		TypeDescriptor typeDesc = translator.translate(new TypeDescriptor(desc));
+		TypeDescriptor typeDesc = translator.translate(TypeDescriptor.parse(desc));
 		AnnotationVisitor av = super.visitAnnotation(typeDesc.toString(), visible);
 		return new TranslationAnnotationVisitor(translator, typeDesc.getTypeEntry(), api, av);
 	}
 
 	@Override
 	public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
-		TypeDescriptor typeDesc = translator.translate(new TypeDescriptor(desc));
+		TypeDescriptor typeDesc = translator.translate(TypeDescriptor.parse(desc));
 		AnnotationVisitor av = super.visitParameterAnnotation(parameter, typeDesc.toString(), visible);
 		return new TranslationAnnotationVisitor(translator, typeDesc.getTypeEntry(), api, av);
 	}
 
 	@Override
 	public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
-		TypeDescriptor typeDesc = translator.translate(new TypeDescriptor(desc));
+		TypeDescriptor typeDesc = translator.translate(TypeDescriptor.parse(desc));
 		AnnotationVisitor av = super.visitTypeAnnotation(typeRef, typePath, typeDesc.toString(), visible);
 		return new TranslationAnnotationVisitor(translator, typeDesc.getTypeEntry(), api, av);
 	}
@@ -89,7 +89,7 @@ public class TranslationMethodVisitor extends MethodVisitor {
 
 	@Override
 	public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs) {
-		MethodDescriptor translatedMethodDesc = translator.translate(new MethodDescriptor(desc));
+		MethodDescriptor translatedMethodDesc = translator.translate(MethodDescriptor.parse(desc));
 		Object[] translatedBsmArgs = new Object[bsmArgs.length];
 		for (int i = 0; i < bsmArgs.length; i++) {
 			translatedBsmArgs[i] = AsmObjectTranslator.translateValue(translator, bsmArgs[i]);
@@ -104,7 +104,7 @@ public class TranslationMethodVisitor extends MethodVisitor {
 
 	@Override
 	public void visitMultiANewArrayInsn(String desc, int dims) {
-		super.visitMultiANewArrayInsn(translator.translate(new TypeDescriptor(desc)).toString(), dims);
+		super.visitMultiANewArrayInsn(translator.translate(TypeDescriptor.parse(desc)).toString(), dims);
 	}
 
 	@Override
@@ -125,7 +125,7 @@ public class TranslationMethodVisitor extends MethodVisitor {
 		int argumentIndex = methodEntry.getArgumentIndex(ownerEntry, index);
 
 		if (argumentIndex >= 0) {
-			LocalVariableDefEntry entry = new LocalVariableDefEntry(methodEntry, index, name, true, new TypeDescriptor(desc));
+			LocalVariableDefEntry entry = new LocalVariableDefEntry(methodEntry, index, name, true, TypeDescriptor.parse(desc));
 			LocalVariableDefEntry translatedEntry = translator.translate(entry);
 			String translatedName = translatedEntry.getName();
 
@@ -146,7 +146,7 @@ public class TranslationMethodVisitor extends MethodVisitor {
 			super.visitLocalVariable(translatedName, translatedEntry.getDesc().toString(), translatedSignature, start, end, index);
 		} else {
 			// Handle "this" variable
-			TypeDescriptor translatedDesc = translator.translate(new TypeDescriptor(desc));
+			TypeDescriptor translatedDesc = translator.translate(TypeDescriptor.parse(desc));
 			super.visitLocalVariable(name, translatedDesc.toString(), translatedSignature, start, end, index);
 		}
 	}
@@ -40,7 +40,8 @@ public abstract class Command {
 			MappingSaveParameters saveParameters = enigma.getProfile().getMappingSaveParameters();
 			EntryTree<EntryMapping> mappings = chooseEnigmaFormat(fileMappings).read(fileMappings, progress, saveParameters);
 
-			project.setMappings(mappings);
+			// the commands opening a project only export it
+			project.setMappings(mappings, true);
 		}
 
 		return project;
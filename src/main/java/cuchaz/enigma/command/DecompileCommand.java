@@ -32,7 +32,7 @@ public class DecompileCommand extends Command {
 		ProgressListener progress = new ConsoleProgressListener();
 
 		EnigmaProject.JarExport jar = project.exportRemappedJar(progress);
-		EnigmaProject.SourceExport source = jar.decompile(progress);
+		EnigmaProject.SourceExport source = jar.decompileIncrementally(fileJarOut, progress);
 
 		source.write(fileJarOut, progress);
 	}
@@ -31,7 +31,6 @@ public class DeobfuscateCommand extends Command {
 
 		ProgressListener progress = new ConsoleProgressListener();
 
-		EnigmaProject.JarExport jar = project.exportRemappedJar(progress);
-		jar.write(fileJarOut, progress);
+		project.writeRemappedJar(fileJarOut, progress);
 	}
 }
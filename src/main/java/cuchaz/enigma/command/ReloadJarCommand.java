@@ -0,0 +1,44 @@
+package cuchaz.enigma.command;
+
+import cuchaz.enigma.Enigma;
+import cuchaz.enigma.EnigmaProject;
+import cuchaz.enigma.ProgressListener;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+public class ReloadJarCommand extends Command {
+
+	public ReloadJarCommand() {
+		super("reloadjar");
+	}
+
+	@Override
+	public String getUsage() {
+		return "<previous jar> <jar>";
+	}
+
+	@Override
+	public boolean isValidArgument(int length) {
+		return length == 2;
+	}
+
+	@Override
+	public void run(String... args) throws Exception {
+		Path filePreviousJar = getReadablePath(getArg(args, 0, "previous jar", true));
+		Path fileJar = getReadablePath(getArg(args, 1, "jar", true));
+
+		ProgressListener progress = new ConsoleProgressListener();
+
+		Enigma enigma = Enigma.create();
+
+		System.out.println("Reading previous jar...");
+		EnigmaProject project = enigma.openJar(filePreviousJar, progress);
+
+		// indexing only what changed leaves a snapshot of the new jar behind, which opening it will pick up
+		System.out.println("Reloading jar...");
+		Set<String> changedClasses = project.reloadJar(fileJar, progress);
+
+		System.out.println(changedClasses.size() + " of " + project.getClassCache().getClassCount() + " classes changed");
+	}
+}
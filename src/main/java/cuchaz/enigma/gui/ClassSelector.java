@@ -415,6 +415,30 @@ public class ClassSelector extends JTree {
 		return null;
 	}
 
+	/**
+	 * @return the obfuscated classes listed closest to the given one in its package, nearest first
+	 */
+	public List<ClassEntry> getNeighbourClasses(ClassEntry obfEntry, int distance) {
+		List<ClassEntry> neighbours = Lists.newArrayList();
+		for (ClassSelectorPackageNode packageNode : packageNodes()) {
+			List<ClassSelectorClassNode> classNodes = classNodes(packageNode);
+			for (int i = 0; i < classNodes.size(); i++) {
+				if (classNodes.get(i).getObfEntry().equals(obfEntry)) {
+					for (int offset = 1; offset <= distance; offset++) {
+						if (i + offset < classNodes.size()) {
+							neighbours.add(classNodes.get(i + offset).getObfEntry());
+						}
+						if (i - offset >= 0) {
+							neighbours.add(classNodes.get(i - offset).getObfEntry());
+						}
+					}
+					return neighbours;
+				}
+			}
+		}
+		return neighbours;
+	}
+
 	public void setSelectionClass(ClassEntry classEntry) {
 		expandPackage(classEntry.getPackageName());
 		for (ClassSelectorPackageNode packageNode : packageNodes()) {
@@ -0,0 +1,216 @@
+package cuchaz.enigma.gui;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the classes the user opens, and background work such as prefetching, each on a thread of its own.
+ * <p>
+ * Only the newest class the user asked for is worth decompiling: a new request drops the one still waiting, if any,
+ * and interrupts the one running if it is for a different class. Interrupted decompiles stop wherever the decompiler
+ * checks for it. Background work runs at a lower priority, and is interrupted whenever the user is about to wait on a
+ * decompile.
+ */
+final class DecompileScheduler {
+	private static final ExecutorService FOREGROUND_SERVICE = Executors.newSingleThreadExecutor(
+			new ThreadFactoryBuilder()
+					.setDaemon(true)
+					.setNameFormat("decompiler-thread")
+					.build()
+	);
+
+	private static final ExecutorService BACKGROUND_SERVICE = Executors.newSingleThreadExecutor(
+			new ThreadFactoryBuilder()
+					.setDaemon(true)
+					.setPriority(Thread.MIN_PRIORITY)
+					.setNameFormat("prefetch-thread")
+					.build()
+	);
+
+	@Nullable
+	private Request pendingRequest;
+	@Nullable
+	private Request runningRequest;
+	@Nullable
+	private Future<?> backgroundTask;
+
+	private long completedCount;
+	private long supersededCount;
+	private long interruptedCount;
+	private long totalLatency;
+	private long lastLatency;
+
+	/**
+	 * Runs a request for the given outermost class, superseding every older request for another class.
+	 */
+	synchronized void submit(ClassEntry classEntry, Runnable task) {
+		if (pendingRequest != null) {
+			pendingRequest.future.cancel(true);
+			supersededCount++;
+		}
+
+		if (runningRequest != null && !runningRequest.classEntry.equals(classEntry) && runningRequest.future.cancel(true)) {
+			interruptedCount++;
+		}
+
+		Request request = new Request(classEntry, task);
+		request.future = FOREGROUND_SERVICE.submit(() -> run(request));
+		pendingRequest = request;
+	}
+
+	private void run(Request request) {
+		synchronized (this) {
+			if (pendingRequest == request) {
+				pendingRequest = null;
+			}
+			runningRequest = request;
+		}
+
+		try {
+			request.task.run();
+		} finally {
+			long endTime = System.nanoTime();
+
+			synchronized (this) {
+				runningRequest = null;
+
+				if (!Thread.currentThread().isInterrupted()) {
+					lastLatency = endTime - request.submitTime;
+					totalLatency += lastLatency;
+					completedCount++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs a task in the background, interrupting the background task before it.
+	 */
+	synchronized void submitBackground(Runnable task) {
+		cancelBackground();
+		backgroundTask = BACKGROUND_SERVICE.submit(task);
+	}
+
+	synchronized void cancelBackground() {
+		if (backgroundTask != null) {
+			backgroundTask.cancel(true);
+			backgroundTask = null;
+		}
+	}
+
+	/**
+	 * Cancels every request and the background task, and waits until none of them is running any more, for when what
+	 * they read from is about to change.
+	 */
+	void cancelAllAndWait() throws InterruptedException {
+		synchronized (this) {
+			if (pendingRequest != null) {
+				pendingRequest.future.cancel(true);
+				pendingRequest = null;
+				supersededCount++;
+			}
+
+			if (runningRequest != null && runningRequest.future.cancel(true)) {
+				interruptedCount++;
+			}
+
+			cancelBackground();
+		}
+
+		// both services run one task at a time, so an empty task finishes only once everything before it has
+		awaitIdle(FOREGROUND_SERVICE);
+		awaitIdle(BACKGROUND_SERVICE);
+	}
+
+	private static void awaitIdle(ExecutorService service) throws InterruptedException {
+		try {
+			service.submit(() -> {
+			}).get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	synchronized Stats getStats() {
+		int queueDepth = (pendingRequest != null ? 1 : 0) + (runningRequest != null ? 1 : 0);
+		return new Stats(queueDepth, completedCount, supersededCount, interruptedCount, totalLatency, lastLatency);
+	}
+
+	private static final class Request {
+		private final ClassEntry classEntry;
+		private final Runnable task;
+		private final long submitTime = System.nanoTime();
+
+		private Future<?> future;
+
+		Request(ClassEntry classEntry, Runnable task) {
+			this.classEntry = classEntry;
+			this.task = task;
+		}
+	}
+
+	/**
+	 * How the requests of the user have been handled so far. Latencies are measured from a request to the end of its
+	 * task, and only count the requests that ran to completion.
+	 */
+	static final class Stats {
+		private final int queueDepth;
+		private final long completedCount;
+		private final long supersededCount;
+		private final long interruptedCount;
+		private final long totalLatency;
+		private final long lastLatency;
+
+		Stats(int queueDepth, long completedCount, long supersededCount, long interruptedCount, long totalLatency, long lastLatency) {
+			this.queueDepth = queueDepth;
+			this.completedCount = completedCount;
+			this.supersededCount = supersededCount;
+			this.interruptedCount = interruptedCount;
+			this.totalLatency = totalLatency;
+			this.lastLatency = lastLatency;
+		}
+
+		/**
+		 * @return the requests waiting or running
+		 */
+		int getQueueDepth() {
+			return queueDepth;
+		}
+
+		long getCompletedCount() {
+			return completedCount;
+		}
+
+		/**
+		 * @return the requests dropped before they started
+		 */
+		long getSupersededCount() {
+			return supersededCount;
+		}
+
+		long getInterruptedCount() {
+			return interruptedCount;
+		}
+
+		long getAverageLatency(TimeUnit unit) {
+			return completedCount > 0 ? unit.convert(totalLatency / completedCount, TimeUnit.NANOSECONDS) : 0;
+		}
+
+		long getLastLatency(TimeUnit unit) {
+			return unit.convert(lastLatency, TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d queued, %d completed, %d superseded, %d interrupted, %d ms average latency",
+					queueDepth, completedCount, supersededCount, interruptedCount, getAverageLatency(TimeUnit.MILLISECONDS));
+		}
+	}
+}
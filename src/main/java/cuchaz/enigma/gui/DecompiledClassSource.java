@@ -27,6 +27,15 @@ public class DecompiledClassSource {
 	private final SourceIndex obfuscatedIndex;
 	private SourceIndex remappedIndex;
 
+	// what the reference tokens were remapped to last time, in source order
+	@Nullable
+	private List<RemappedName> remappedNames;
+	@Nullable
+	private SourceRemapper.Result remapResult;
+	private int version;
+	@Nullable
+	private List<Edit> lastEdits;
+
 	private final Map<TokenHighlightType, Collection<Token>> highlightedTokens = new EnumMap<>(TokenHighlightType.class);
 
 	public DecompiledClassSource(ClassEntry classEntry, SourceIndex index) {
@@ -40,41 +49,110 @@ public class DecompiledClassSource {
 	}
 
 	public void remapSource(EnigmaProject project, Translator translator) {
+		List<RemappedName> names = new ArrayList<>();
+		for (Token token : obfuscatedIndex.referenceTokens()) {
+			names.add(remapToken(project, token, translator));
+		}
+
+		version++;
+
+		if (names.equals(remappedNames)) {
+			// none of the changed mappings show up in this class
+			lastEdits = Collections.emptyList();
+			return;
+		}
+
 		highlightedTokens.clear();
 
+		Iterator<RemappedName> nameIterator = names.iterator();
 		SourceRemapper remapper = new SourceRemapper(obfuscatedIndex.getSource(), obfuscatedIndex.referenceTokens());
+		SourceRemapper.Result result = remapper.remap((token, movedToken) -> {
+			RemappedName name = nameIterator.next();
+			if (name.highlightType != null) {
+				highlightToken(movedToken, name.highlightType);
+			}
+			return name.name;
+		});
+
+		lastEdits = remappedNames != null ? createEdits(obfuscatedIndex.referenceTokens(), findRenamedTokens(remappedNames, names), remapResult, result) : null;
+		remappedNames = names;
+		remapResult = result;
+		remappedIndex = obfuscatedIndex.remapTo(result);
+	}
+
+	private static BitSet findRenamedTokens(List<RemappedName> oldNames, List<RemappedName> newNames) {
+		BitSet renamedTokens = new BitSet(newNames.size());
+		for (int i = 0; i < newNames.size(); i++) {
+			if (!Objects.equals(oldNames.get(i).name, newNames.get(i).name)) {
+				renamedTokens.set(i);
+			}
+		}
+		return renamedTokens;
+	}
+
+	/**
+	 * Creates one edit for each run of renamed tokens, so that the text between runs that are far apart isn't replaced
+	 * along with them.
+	 *
+	 * @param renamedTokens the indices of the renamed tokens, in the order of {@code tokens}
+	 * @return the edits in source order, which only stay valid if applied back to front
+	 */
+	static List<Edit> createEdits(Iterable<Token> tokens, BitSet renamedTokens, SourceRemapper.Result oldResult, SourceRemapper.Result newResult) {
+		List<Edit> edits = new ArrayList<>();
+
+		Token first = null;
+		Token last = null;
+
+		int index = 0;
+		for (Token token : tokens) {
+			if (renamedTokens.get(index++)) {
+				if (first == null) {
+					first = token;
+				}
+				last = token;
+			} else if (first != null) {
+				edits.add(createEdit(first, last, oldResult, newResult));
+				first = null;
+			}
+		}
+
+		if (first != null) {
+			edits.add(createEdit(first, last, oldResult, newResult));
+		}
 
-		SourceRemapper.Result remapResult = remapper.remap((token, movedToken) -> remapToken(project, token, movedToken, translator));
-		remappedIndex = obfuscatedIndex.remapTo(remapResult);
+		return edits;
 	}
 
-	private String remapToken(EnigmaProject project, Token token, Token movedToken, Translator translator) {
+	private static Edit createEdit(Token first, Token last, SourceRemapper.Result oldResult, SourceRemapper.Result newResult) {
+		// only names change, so everything between the renamed tokens of a run is the same in both sources
+		int offset = oldResult.getRemappedToken(first).start;
+		int length = oldResult.getRemappedToken(last).end - offset;
+		String text = newResult.getSource().substring(newResult.getRemappedToken(first).start, newResult.getRemappedToken(last).end);
+
+		return new Edit(offset, length, text);
+	}
+
+	private RemappedName remapToken(EnigmaProject project, Token token, Translator translator) {
 		EntryReference<Entry<?>, Entry<?>> reference = obfuscatedIndex.getReference(token);
 
 		Entry<?> entry = reference.getNameableEntry();
 		Entry<?> translatedEntry = translator.translate(entry);
 
+		TokenHighlightType highlightType = null;
 		if (project.isRenamable(reference)) {
 			if (isDeobfuscated(entry, translatedEntry)) {
-				highlightToken(movedToken, TokenHighlightType.DEOBFUSCATED);
-				return translatedEntry.getSourceRemapName();
+				return new RemappedName(translatedEntry.getSourceRemapName(), TokenHighlightType.DEOBFUSCATED);
 			} else {
 				Optional<String> proposedName = proposeName(project, entry);
 				if (proposedName.isPresent()) {
-					highlightToken(movedToken, TokenHighlightType.PROPOSED);
-					return proposedName.get();
+					return new RemappedName(proposedName.get(), TokenHighlightType.PROPOSED);
 				}
 
-				highlightToken(movedToken, TokenHighlightType.OBFUSCATED);
+				highlightType = TokenHighlightType.OBFUSCATED;
 			}
 		}
 
-		String defaultName = generateDefaultName(translatedEntry);
-		if (defaultName != null) {
-			return defaultName;
-		}
-
-		return null;
+		return new RemappedName(generateDefaultName(translatedEntry), highlightType);
 	}
 
 	private Optional<String> proposeName(EnigmaProject project, Entry<?> entry) {
@@ -124,6 +202,22 @@ public class DecompiledClassSource {
 		return remappedIndex;
 	}
 
+	/**
+	 * @return how many times the source has been remapped
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the edits turning the source of the previous version into this one, in source order, or null if there was
+	 * none before. Their offsets are all in the previous source, so they have to be applied back to front.
+	 */
+	@Nullable
+	public List<Edit> getLastEdits() {
+		return lastEdits;
+	}
+
 	public Map<TokenHighlightType, Collection<Token>> getHighlightedTokens() {
 		return highlightedTokens;
 	}
@@ -136,4 +230,46 @@ public class DecompiledClassSource {
 	public String toString() {
 		return remappedIndex.getSource();
 	}
+
+	private static final class RemappedName {
+		@Nullable
+		private final String name;
+		@Nullable
+		private final TokenHighlightType highlightType;
+
+		RemappedName(@Nullable String name, @Nullable TokenHighlightType highlightType) {
+			this.name = name;
+			this.highlightType = highlightType;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof RemappedName)) {
+				return false;
+			}
+
+			RemappedName other = (RemappedName) obj;
+			return Objects.equals(name, other.name) && highlightType == other.highlightType;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(name, highlightType);
+		}
+	}
+
+	/**
+	 * Replaces the characters in {@code [offset, offset + length)} of the previous source with {@code text}.
+	 */
+	public static final class Edit {
+		public final int offset;
+		public final int length;
+		public final String text;
+
+		Edit(int offset, int length, String text) {
+			this.offset = offset;
+			this.length = length;
+			this.text = text;
+		}
+	}
 }
@@ -38,6 +38,7 @@ import cuchaz.enigma.utils.Utils;
 import de.sciss.syntaxpane.DefaultSyntaxKit;
 
 import javax.swing.*;
+import javax.swing.text.AbstractDocument;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Highlighter;
 import javax.swing.tree.*;
@@ -69,6 +70,9 @@ public class Gui {
 	private JFrame frame;
 	public Config.LookAndFeel editorFeel;
 	public PanelEditor editor;
+	// the source the editor shows, and which version of it
+	private DecompiledClassSource shownSource;
+	private int shownVersion;
 	private JPanel classesPanel;
 	private JSplitPane splitClasses;
 	private PanelIdentifier infoPanel;
@@ -325,6 +329,7 @@ public class Gui {
 
 		// update menu
 		this.menuBar.closeJarMenu.setEnabled(true);
+		this.menuBar.reloadJarMenu.setEnabled(true);
 		this.menuBar.openTinyMappingsMenu.setEnabled(true);
 		this.menuBar.openEnigmaMappingsMenu.setEnabled(true);
 		this.menuBar.saveMappingsMenu.setEnabled(false);
@@ -348,6 +353,7 @@ public class Gui {
 
 		// update menu
 		this.menuBar.closeJarMenu.setEnabled(false);
+		this.menuBar.reloadJarMenu.setEnabled(false);
 		this.menuBar.openTinyMappingsMenu.setEnabled(false);
 		this.menuBar.openEnigmaMappingsMenu.setEnabled(false);
 		this.menuBar.saveMappingsMenu.setEnabled(false);
@@ -369,21 +375,55 @@ public class Gui {
 		this.deobfPanel.deobfClasses.setClasses(deobfClasses);
 	}
 
+	/**
+	 * @return the classes listed closest to the given obfuscated class, in whichever panel it is listed
+	 */
+	public List<ClassEntry> getNeighbourClasses(ClassEntry obfEntry, int distance) {
+		List<ClassEntry> neighbours = this.obfPanel.obfClasses.getNeighbourClasses(obfEntry, distance);
+		if (neighbours.isEmpty()) {
+			neighbours = this.deobfPanel.deobfClasses.getNeighbourClasses(obfEntry, distance);
+		}
+		return neighbours;
+	}
+
 	public void setMappingsFile(Path path) {
 		this.enigmaMappingsFileChooser.setSelectedFile(path != null ? path.toFile() : null);
 		this.menuBar.saveMappingsMenu.setEnabled(path != null);
 	}
 
 	public void setEditorText(String source) {
+		this.shownSource = null;
 		this.editor.getHighlighter().removeAllHighlights();
 		this.editor.setText(source);
 	}
 
 	public void setSource(DecompiledClassSource source) {
-		editor.setText(source.toString());
+		List<DecompiledClassSource.Edit> edits = source.getLastEdits();
+		if (source == shownSource && source.getVersion() == shownVersion + 1 && edits != null) {
+			// only replaces the renamed parts, the rest of the document doesn't have to be laid out again
+			applyEdits(source, edits);
+		} else {
+			editor.setText(source.toString());
+		}
+
+		shownSource = source;
+		shownVersion = source.getVersion();
 		setHighlightedTokens(source.getHighlightedTokens());
 	}
 
+	private void applyEdits(DecompiledClassSource source, List<DecompiledClassSource.Edit> edits) {
+		AbstractDocument document = (AbstractDocument) editor.getDocument();
+		try {
+			// back to front, so that each edit leaves the offsets of the ones before it alone
+			for (ListIterator<DecompiledClassSource.Edit> iterator = edits.listIterator(edits.size()); iterator.hasPrevious(); ) {
+				DecompiledClassSource.Edit edit = iterator.previous();
+				document.replace(edit.offset, edit.length, edit.text, null);
+			}
+		} catch (BadLocationException e) {
+			editor.setText(source.toString());
+		}
+	}
+
 	public void showToken(final Token token) {
 		if (token == null) {
 			throw new IllegalArgumentException("Token cannot be null!");
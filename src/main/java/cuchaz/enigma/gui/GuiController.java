@@ -12,15 +12,18 @@
 package cuchaz.enigma.gui;
 
 import com.google.common.collect.Lists;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import com.strobel.decompiler.languages.java.ast.CompilationUnit;
+import com.google.common.hash.HashCode;
 import cuchaz.enigma.*;
 import cuchaz.enigma.analysis.*;
+import cuchaz.enigma.analysis.index.EntryIndex;
+import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.api.service.ObfuscationTestService;
 import cuchaz.enigma.bytecode.translators.SourceFixVisitor;
 import cuchaz.enigma.config.Config;
 import cuchaz.enigma.gui.dialog.ProgressDialog;
 import cuchaz.enigma.gui.util.History;
+import cuchaz.enigma.source.Decompiler;
+import cuchaz.enigma.source.SourceSettings;
 import cuchaz.enigma.throwables.MappingParseException;
 import cuchaz.enigma.translation.Translator;
 import cuchaz.enigma.translation.mapping.*;
@@ -32,41 +35,49 @@ import cuchaz.enigma.translation.representation.entry.FieldEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
 import cuchaz.enigma.utils.ReadableToken;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
 
 import javax.annotation.Nullable;
 import javax.swing.*;
 import java.awt.event.ItemEvent;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class GuiController {
-	private static final ExecutorService DECOMPILER_SERVICE = Executors.newSingleThreadExecutor(
-			new ThreadFactoryBuilder()
-					.setDaemon(true)
-					.setNameFormat("decompiler-thread")
-					.build()
-	);
+	private static final int PREFETCH_COUNT = 16;
+	private static final int PREFETCH_NEIGHBOUR_DISTANCE = 2;
 
 	private final Gui gui;
 	public final Enigma enigma;
 
 	public EnigmaProject project;
-	private SourceProvider sourceProvider;
+	private Decompiler decompiler;
 	private IndexTreeBuilder indexTreeBuilder;
 
+	private Path loadedJarPath;
 	private Path loadedMappingPath;
 	private MappingFormat loadedMappingFormat;
 
 	private DecompiledClassSource currentSource;
+	// the class of the latest request, which may not be showing yet
+	private volatile ClassEntry requestedClass;
+	private final DecompileScheduler decompileScheduler = new DecompileScheduler();
+	private final SourcePrefetcher sourcePrefetcher = new SourcePrefetcher(decompileScheduler, this::decompileSource);
 
 	public GuiController(Gui gui, EnigmaProfile profile) {
 		this.gui = gui;
@@ -84,12 +95,11 @@ public class GuiController {
 
 		return ProgressDialog.runOffThread(gui.getFrame(), progress -> {
 			project = enigma.openJar(jarPath, progress);
+			loadedJarPath = jarPath;
 
 			indexTreeBuilder = new IndexTreeBuilder(project.getJarIndex());
-
-			CompiledSourceTypeLoader typeLoader = new CompiledSourceTypeLoader(project.getClassCache());
-			typeLoader.addVisitor(visitor -> new SourceFixVisitor(Opcodes.ASM5, visitor, project.getJarIndex()));
-			sourceProvider = new SourceProvider(SourceProvider.createSettings(), typeLoader);
+			decompiler = createDecompiler();
+			sourcePrefetcher.clear();
 
 			gui.onFinishOpenJar(jarPath.getFileName().toString());
 
@@ -97,7 +107,49 @@ public class GuiController {
 		});
 	}
 
+	public CompletableFuture<Void> reloadJar() {
+		if (project == null) return CompletableFuture.completedFuture(null);
+
+		return ProgressDialog.runOffThread(gui.getFrame(), progress -> {
+			// decompiles and prefetches read the index and the jar, which are about to change under them
+			decompileScheduler.cancelAllAndWait();
+
+			project.reloadJar(loadedJarPath, progress);
+
+			// the decompiler caches types, so it can't be reused for the new classes
+			decompiler = createDecompiler();
+			sourcePrefetcher.clear();
+
+			refreshClasses();
+
+			if (currentSource != null) {
+				ClassEntry currentClass = currentSource.getEntry();
+				currentSource = null;
+				loadClass(currentClass, () -> {});
+			}
+		});
+	}
+
+	private Decompiler createDecompiler() {
+		ClassCache classCache = project.getClassCache();
+		JarIndex jarIndex = project.getJarIndex();
+
+		return project.getDecompilerService().create(name -> {
+			ClassNode node = classCache.getClassNode(name);
+			if (node == null) {
+				return null;
+			}
+
+			// the cached node is shared, so the decompiler gets a copy of its own
+			ClassNode fixedNode = new ClassNode();
+			node.accept(new SourceFixVisitor(Opcodes.ASM5, fixedNode, jarIndex));
+			return fixedNode;
+		}, new SourceSettings(true, true));
+	}
+
 	public void closeJar() {
+		this.sourcePrefetcher.clear();
+		this.requestedClass = null;
 		this.project = null;
 		this.gui.onCloseJar();
 	}
@@ -171,7 +223,7 @@ public class GuiController {
 
 		return ProgressDialog.runOffThread(this.gui.getFrame(), progress -> {
 			EnigmaProject.JarExport jar = project.exportRemappedJar(progress);
-			EnigmaProject.SourceExport source = jar.decompile(progress);
+			EnigmaProject.SourceExport source = jar.decompileIncrementally(path, progress);
 
 			source.write(path, progress);
 		});
@@ -180,10 +232,7 @@ public class GuiController {
 	public CompletableFuture<Void> exportJar(final Path path) {
 		if (project == null) return CompletableFuture.completedFuture(null);
 
-		return ProgressDialog.runOffThread(this.gui.getFrame(), progress -> {
-			EnigmaProject.JarExport jar = project.exportRemappedJar(progress);
-			jar.write(path, progress);
-		});
+		return ProgressDialog.runOffThread(this.gui.getFrame(), progress -> project.writeRemappedJar(path, progress));
 	}
 
 	public Token getToken(int pos) {
@@ -364,8 +413,10 @@ public class GuiController {
 	}
 
 	private void refreshCurrentClass(EntryReference<Entry<?>, Entry<?>> reference) {
-		if (currentSource != null) {
-			loadClass(currentSource.getEntry(), () -> {
+		// refreshing the class showing now would interrupt the one the user asked for since
+		ClassEntry classEntry = requestedClass;
+		if (classEntry != null) {
+			loadClass(classEntry, () -> {
 				if (reference != null) {
 					showReference(reference);
 				}
@@ -375,20 +426,31 @@ public class GuiController {
 
 	private void loadClass(ClassEntry classEntry, Runnable callback) {
 		ClassEntry targetClass = classEntry.getOutermostClass();
+		requestedClass = targetClass;
 
-		boolean requiresDecompile = currentSource == null || !currentSource.getEntry().equals(targetClass);
-		if (requiresDecompile) {
+		if ((currentSource == null || !currentSource.getEntry().equals(targetClass)) && sourcePrefetcher.get(targetClass) == null) {
+			// the user's class goes before any prefetched ones
+			sourcePrefetcher.cancel();
 			gui.setEditorText("(decompiling...)");
 		}
 
-		DECOMPILER_SERVICE.submit(() -> {
+		decompileScheduler.submit(targetClass, () -> {
 			try {
+				// decided only now, older requests may have been dropped since
+				boolean requiresDecompile = currentSource == null || !currentSource.getEntry().equals(targetClass);
 				if (requiresDecompile) {
-					currentSource = decompileSource(targetClass);
+					currentSource = loadSource(targetClass);
 				}
 
 				remapSource(project.getMapper().getDeobfuscator());
 				callback.run();
+
+				if (requiresDecompile) {
+					DecompiledClassSource source = currentSource;
+					SwingUtilities.invokeLater(() -> sourcePrefetcher.prefetch(collectLikelyClasses(source)));
+				}
+			} catch (CancellationException e) {
+				// superseded by a request for another class, which shows that one instead
 			} catch (Throwable t) {
 				System.err.println("An exception was thrown while decompiling class " + classEntry.getFullName());
 				t.printStackTrace(System.err);
@@ -396,29 +458,110 @@ public class GuiController {
 		});
 	}
 
-	private DecompiledClassSource decompileSource(ClassEntry targetClass) {
+	private DecompiledClassSource loadSource(ClassEntry targetClass) {
+		DecompiledClassSource source = sourcePrefetcher.get(targetClass);
+		if (source != null) {
+			return source;
+		}
+
+		// a jar opened meanwhile forgets the sources, this one included
+		int generation = sourcePrefetcher.getGeneration();
 		try {
-			CompilationUnit sourceTree = sourceProvider.getSources(targetClass.getFullName());
-			if (sourceTree == null) {
-				gui.setEditorText("Unable to find class: " + targetClass);
-				return DecompiledClassSource.text(targetClass, "Unable to find class");
+			source = decompileSource(targetClass);
+		} catch (CancellationException e) {
+			throw e;
+		} catch (Throwable t) {
+			if (Thread.currentThread().isInterrupted()) {
+				// whatever the decompiler made of being interrupted, nobody is waiting for this class any more
+				throw new CancellationException("Interrupted while decompiling " + targetClass);
 			}
 
-			DropImportAstTransform.INSTANCE.run(sourceTree);
-			DropVarModifiersAstTransform.INSTANCE.run(sourceTree);
-
-			String sourceString = sourceProvider.writeSourceToString(sourceTree);
-
-			SourceIndex index = SourceIndex.buildIndex(sourceString, sourceTree, true);
-			index.resolveReferences(project.getMapper().getObfResolver());
-
-			return new DecompiledClassSource(targetClass, index);
-		} catch (Throwable t) {
 			StringWriter traceWriter = new StringWriter();
 			t.printStackTrace(new PrintWriter(traceWriter));
 
 			return DecompiledClassSource.text(targetClass, traceWriter.toString());
 		}
+
+		sourcePrefetcher.put(targetClass, source, generation);
+		return source;
+	}
+
+	private DecompiledClassSource decompileSource(ClassEntry targetClass) {
+		DecompiledSourceCache sourceCache = project.getSourceCache();
+		HashCode key = sourceCache != null ? DecompiledSourceCache.createKey("index", decompiler, collectSourceDependencies(targetClass)) : null;
+
+		SourceIndex index = key != null ? sourceCache.getIndex(key) : null;
+		if (index == null) {
+			index = decompiler.getSource(targetClass.getFullName()).index();
+			if (key != null) {
+				sourceCache.putIndex(key, index);
+			}
+		}
+
+		index.resolveReferences(project.getMapper().getObfResolver());
+
+		return new DecompiledClassSource(targetClass, index);
+	}
+
+	/**
+	 * @return the outermost classes the user is likely to open after the given one, most likely first
+	 */
+	private Collection<ClassEntry> collectLikelyClasses(DecompiledClassSource source) {
+		EntryIndex entryIndex = project.getJarIndex().getEntryIndex();
+
+		Set<ClassEntry> classes = new LinkedHashSet<>();
+		Consumer<ClassEntry> addClass = classEntry -> {
+			ClassEntry outermostClass = classEntry.getOutermostClass();
+			if (classes.size() < PREFETCH_COUNT && !outermostClass.equals(source.getEntry()) && entryIndex.hasClass(outermostClass)) {
+				classes.add(outermostClass);
+			}
+		};
+
+		// going back or forward
+		History<EntryReference<Entry<?>, Entry<?>>> history = gui.referenceHistory;
+		if (history != null) {
+			for (EntryReference<Entry<?>, Entry<?>> reference : Arrays.asList(history.peekBack(), history.peekForward())) {
+				if (reference != null) {
+					addClass.accept(reference.getLocationClassEntry());
+				}
+			}
+		}
+
+		// listed next to it
+		gui.getNeighbourClasses(source.getEntry(), PREFETCH_NEIGHBOUR_DISTANCE).forEach(addClass);
+
+		// referenced from it
+		SourceIndex index = source.getIndex();
+		for (Token token : index.referenceTokens()) {
+			EntryReference<Entry<?>, Entry<?>> reference = index.getReference(token);
+			if (reference != null && reference.entry != null) {
+				addClass.accept(reference.entry.getContainingClass());
+			}
+		}
+
+		return classes;
+	}
+
+	/**
+	 * @return the classes whose bytecode can affect the source of the given one
+	 */
+	private Set<String> collectSourceDependencies(ClassEntry targetClass) {
+		ClassCache classCache = project.getClassCache();
+
+		Set<String> classNames = new HashSet<>();
+		for (ClassEntry classEntry : project.getJarIndex().getEntryIndex().getClasses()) {
+			if (classEntry.getOutermostClass().equals(targetClass)) {
+				classNames.add(classEntry.getFullName());
+			}
+		}
+
+		return DecompiledSourceCache.collectDependencies(classNames, name -> {
+			try {
+				return classCache.readEntry(name + ".class");
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
 	}
 
 	private void remapSource(Translator translator) {
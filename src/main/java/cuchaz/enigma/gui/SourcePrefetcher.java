@@ -0,0 +1,106 @@
+package cuchaz.enigma.gui;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.concurrent.CancellationException;
+import java.util.function.Function;
+
+/**
+ * Keeps the most recently decompiled classes, and decompiles the classes the user is likely to open next in the
+ * background, so that opening them doesn't have to wait on the decompiler.
+ * <p>
+ * Sources are kept as decompiled, before any mappings are applied, so they stay valid until the jar changes. Prefetching
+ * runs in the background of the {@link DecompileScheduler} and gives way as soon as the user opens a class: the class
+ * being decompiled at that moment is interrupted, and nothing after it is started.
+ */
+final class SourcePrefetcher {
+	private static final int CAPACITY = 32;
+
+	private final DecompileScheduler scheduler;
+	private final Function<ClassEntry, DecompiledClassSource> decompiler;
+	private final Cache<ClassEntry, DecompiledClassSource> sources = CacheBuilder.newBuilder()
+			.maximumSize(CAPACITY)
+			.build();
+
+	// bumped whenever the sources are forgotten, so that a source still being decompiled isn't kept
+	private int generation;
+
+	/**
+	 * @param decompiler decompiles an outermost class, throwing if it fails so that failures aren't kept
+	 */
+	SourcePrefetcher(DecompileScheduler scheduler, Function<ClassEntry, DecompiledClassSource> decompiler) {
+		this.scheduler = scheduler;
+		this.decompiler = decompiler;
+	}
+
+	@Nullable
+	DecompiledClassSource get(ClassEntry classEntry) {
+		return sources.getIfPresent(classEntry);
+	}
+
+	/**
+	 * @return the generation to pass to {@link #put} for a source that starts being decompiled now
+	 */
+	synchronized int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Keeps a source, unless the sources were forgotten since it started being decompiled.
+	 */
+	synchronized void put(ClassEntry classEntry, DecompiledClassSource source, int sourceGeneration) {
+		if (generation == sourceGeneration) {
+			sources.put(classEntry, source);
+		}
+	}
+
+	/**
+	 * Replaces any prefetch still running with one of the given outermost classes, most likely first.
+	 */
+	synchronized void prefetch(Collection<ClassEntry> classEntries) {
+		int prefetchGeneration = generation;
+		scheduler.submitBackground(() -> {
+			for (ClassEntry classEntry : classEntries) {
+				if (Thread.currentThread().isInterrupted()) {
+					return;
+				}
+
+				if (sources.getIfPresent(classEntry) != null) {
+					continue;
+				}
+
+				DecompiledClassSource source;
+				try {
+					source = decompiler.apply(classEntry);
+				} catch (CancellationException e) {
+					return;
+				} catch (Throwable t) {
+					// left for opening the class to report
+					continue;
+				}
+
+				put(classEntry, source, prefetchGeneration);
+			}
+		});
+	}
+
+	/**
+	 * Stops prefetching, interrupting the class being decompiled right now.
+	 */
+	void cancel() {
+		scheduler.cancelBackground();
+	}
+
+	/**
+	 * Forgets every source, for when they no longer match the jar.
+	 */
+	synchronized void clear() {
+		cancel();
+		generation++;
+		sources.invalidateAll();
+	}
+}
@@ -15,17 +15,23 @@ public class SourceRemapper {
 	}
 
 	public Result remap(Remapper remapper) {
-		StringBuffer remappedSource = new StringBuffer(source);
+		// built front to back, replacing each name in place would move the rest of the source every time
+		StringBuilder remappedSource = new StringBuilder(source.length());
 		Map<Token, Token> remappedTokens = new HashMap<>();
 
 		int accumulatedOffset = 0;
+		int copiedOffset = 0;
 		for (Token token : tokens) {
 			Token movedToken = token.move(accumulatedOffset);
 
 			String remappedName = remapper.remap(token, movedToken);
 			if (remappedName != null) {
+				remappedSource.append(source, copiedOffset, token.start).append(remappedName);
+				copiedOffset = token.end;
+
 				accumulatedOffset += movedToken.getRenameOffset(remappedName);
-				movedToken.rename(remappedSource, remappedName);
+				movedToken.end = movedToken.start + remappedName.length();
+				movedToken.text = remappedName;
 			}
 
 			if (!token.equals(movedToken)) {
@@ -33,6 +39,8 @@ public class SourceRemapper {
 			}
 		}
 
+		remappedSource.append(source, copiedOffset, source.length());
+
 		return new Result(remappedSource.toString(), remappedTokens);
 	}
 
@@ -22,6 +22,7 @@ import java.nio.file.Paths;
 public class MenuBar extends JMenuBar {
 
 	public final JMenuItem closeJarMenu;
+	public final JMenuItem reloadJarMenu;
 	public final JMenuItem openEnigmaMappingsMenu;
 	public final JMenuItem openTinyMappingsMenu;
 	public final JMenuItem saveMappingsMenu;
@@ -57,6 +58,12 @@ public class MenuBar extends JMenuBar {
 				item.addActionListener(event -> this.gui.getController().closeJar());
 				this.closeJarMenu = item;
 			}
+			{
+				JMenuItem item = new JMenuItem("Reload Jar");
+				menu.add(item);
+				item.addActionListener(event -> this.gui.getController().reloadJar());
+				this.reloadJarMenu = item;
+			}
 			menu.addSeparator();
 			JMenu openMenu = new JMenu("Open Mappings...");
 			menu.add(openMenu);
@@ -2,6 +2,7 @@ package cuchaz.enigma.gui.util;
 
 import com.google.common.collect.Queues;
 
+import javax.annotation.Nullable;
 import java.util.Deque;
 
 public class History<T> {
@@ -27,6 +28,22 @@ public class History<T> {
 		current = value;
 	}
 
+	/**
+	 * @return what going back would lead to, or {@code null} if there is nothing before
+	 */
+	@Nullable
+	public T peekBack() {
+		return previous.peekLast();
+	}
+
+	/**
+	 * @return what going forward would lead to, or {@code null} if there is nothing after
+	 */
+	@Nullable
+	public T peekForward() {
+		return next.peekFirst();
+	}
+
 	public boolean canGoBack() {
 		return !previous.isEmpty();
 	}
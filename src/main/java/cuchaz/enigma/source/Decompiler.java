@@ -0,0 +1,24 @@
+package cuchaz.enigma.source;
+
+import com.google.common.hash.Hasher;
+
+import java.util.Collection;
+
+/**
+ * Turns the bytecode of a class into source. Sources may be requested from several threads at once.
+ */
+public interface Decompiler {
+	/**
+	 * Decompiles an outermost class along with its inner classes. If the calling thread is interrupted, this may stop
+	 * early by throwing a {@link java.util.concurrent.CancellationException}, leaving the interrupt flag set.
+	 *
+	 * @throws RuntimeException if the class can't be found or decompiled
+	 */
+	Source getSource(String className);
+
+	/**
+	 * Puts everything the sources of the given classes depend on into the hasher: the bytecode this decompiler reads
+	 * for them, and how it is configured. Decompilers that hash the same for a class produce the same source for it.
+	 */
+	void hashInputs(Hasher hasher, Collection<String> classNames);
+}
@@ -0,0 +1,15 @@
+package cuchaz.enigma.source;
+
+import cuchaz.enigma.api.service.DecompilerService;
+import cuchaz.enigma.source.procyon.MetadataSharing;
+import cuchaz.enigma.source.procyon.ProcyonDecompiler;
+
+public final class Decompilers {
+	/**
+	 * Procyon, with type metadata kept per thread. Used when the profile doesn't configure a decompiler.
+	 */
+	public static final DecompilerService PROCYON = (classes, settings) -> new ProcyonDecompiler(classes, settings, MetadataSharing.PER_THREAD);
+
+	private Decompilers() {
+	}
+}
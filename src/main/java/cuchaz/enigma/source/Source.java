@@ -0,0 +1,15 @@
+package cuchaz.enigma.source;
+
+import cuchaz.enigma.analysis.SourceIndex;
+
+/**
+ * The decompiled source of a class.
+ */
+public interface Source {
+	String asString();
+
+	/**
+	 * @return the source with the positions of the declarations and references in it, which have not been resolved yet
+	 */
+	SourceIndex index();
+}
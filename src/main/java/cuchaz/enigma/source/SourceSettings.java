@@ -0,0 +1,14 @@
+package cuchaz.enigma.source;
+
+/**
+ * What a decompiler should leave out of the sources it writes.
+ */
+public final class SourceSettings {
+	public final boolean removeImports;
+	public final boolean removeVariableFinal;
+
+	public SourceSettings(boolean removeImports, boolean removeVariableFinal) {
+		this.removeImports = removeImports;
+		this.removeVariableFinal = removeVariableFinal;
+	}
+}
@@ -0,0 +1,17 @@
+package cuchaz.enigma.source.procyon;
+
+/**
+ * How the threads of a decompile share Procyon's type metadata.
+ */
+public enum MetadataSharing {
+	/**
+	 * One metadata system for every thread. Each type is only parsed once, but threads wait on each other to
+	 * resolve types.
+	 */
+	SHARED,
+	/**
+	 * A metadata system per thread. Types are parsed again by every thread that needs them, but threads never wait
+	 * on each other.
+	 */
+	PER_THREAD
+}
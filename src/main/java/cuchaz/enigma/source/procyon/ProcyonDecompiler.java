@@ -0,0 +1,153 @@
+package cuchaz.enigma.source.procyon;
+
+import com.google.common.hash.Hasher;
+import com.strobel.assembler.metadata.Buffer;
+import com.strobel.decompiler.DecompilerSettings;
+import com.strobel.decompiler.languages.java.JavaFormattingOptions;
+import com.strobel.decompiler.languages.java.ast.CompilationUnit;
+import cuchaz.enigma.CompiledSource;
+import cuchaz.enigma.CompiledSourceTypeLoader;
+import cuchaz.enigma.NoRetryMetadataSystem;
+import cuchaz.enigma.SourceProvider;
+import cuchaz.enigma.analysis.DropImportAstTransform;
+import cuchaz.enigma.analysis.DropVarModifiersAstTransform;
+import cuchaz.enigma.source.Decompiler;
+import cuchaz.enigma.source.Source;
+import cuchaz.enigma.source.SourceSettings;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Decompiles with Procyon. How threads decompiling at the same time share type metadata is up to the
+ * {@link MetadataSharing}.
+ */
+public final class ProcyonDecompiler implements Decompiler {
+	private final SourceSettings sourceSettings;
+	private final CompiledSourceTypeLoader typeLoader;
+
+	@Nullable
+	private final Worker sharedWorker;
+	private final Queue<Worker> workers = new ConcurrentLinkedQueue<>();
+
+	public ProcyonDecompiler(CompiledSource classes, SourceSettings sourceSettings, MetadataSharing metadataSharing) {
+		this.sourceSettings = sourceSettings;
+		this.typeLoader = new CompiledSourceTypeLoader(classes);
+		this.sharedWorker = metadataSharing == MetadataSharing.SHARED ? new Worker(typeLoader) : null;
+	}
+
+	@Override
+	public Source getSource(String className) {
+		if (sharedWorker != null) {
+			// the shared metadata system takes care of its own locking, and nothing else of the provider is shared
+			return decompile(sharedWorker.sourceProvider, className, new Object());
+		}
+
+		//metadata systems aren't safe to use concurrently, so each worker gets one of its own
+		Worker worker = workers.poll();
+		if (worker == null) {
+			worker = new Worker(typeLoader);
+		}
+
+		synchronized (worker) {
+			// nobody else uses this metadata system, so it can stop in the middle of a type and simply be dropped
+			worker.metadataSystem.setInterruptible(true);
+			try {
+				Source source = decompile(worker.sourceProvider, className, worker);
+				workers.add(worker);
+				return source;
+			} catch (RuntimeException | Error e) {
+				if (!(e instanceof CancellationException)) {
+					workers.add(worker);
+				}
+				throw e;
+			} finally {
+				worker.metadataSystem.setInterruptible(false);
+			}
+		}
+	}
+
+	private Source decompile(SourceProvider sourceProvider, String className, Object lock) {
+		synchronized (lock) {
+			checkInterrupted();
+			CompilationUnit sourceTree = sourceProvider.getSources(className);
+			if (sourceTree == null) {
+				throw new IllegalArgumentException("Unable to find class: " + className);
+			}
+
+			checkInterrupted();
+			if (sourceSettings.removeImports) {
+				DropImportAstTransform.INSTANCE.run(sourceTree);
+			}
+			if (sourceSettings.removeVariableFinal) {
+				DropVarModifiersAstTransform.INSTANCE.run(sourceTree);
+			}
+
+			String source = sourceProvider.writeSourceToString(sourceTree);
+
+			// whatever Procyon made of an interruption it swallowed isn't worth keeping
+			checkInterrupted();
+			return new ProcyonSource(source, sourceTree, lock);
+		}
+	}
+
+	private static void checkInterrupted() {
+		if (Thread.currentThread().isInterrupted()) {
+			throw new CancellationException("Interrupted while decompiling");
+		}
+	}
+
+	@Override
+	public void hashInputs(Hasher hasher, Collection<String> classNames) {
+		hasher.putString("procyon", StandardCharsets.UTF_8);
+		hasher.putBoolean(sourceSettings.removeImports);
+		hasher.putBoolean(sourceSettings.removeVariableFinal);
+		putSettings(hasher, SourceProvider.createSettings());
+
+		// classes from the runtime aren't hashed, and their bytecode only changes with it
+		for (String className : new TreeSet<>(classNames)) {
+			hasher.putString(className, StandardCharsets.UTF_8);
+
+			Buffer buffer = new Buffer();
+			if (typeLoader.tryLoadType(className, buffer)) {
+				hasher.putInt(buffer.size());
+				hasher.putBytes(buffer.array(), 0, buffer.size());
+			} else {
+				hasher.putInt(-1);
+			}
+		}
+	}
+
+	private static void putSettings(Hasher hasher, DecompilerSettings settings) {
+		// everything SourceProvider.createSettings changes from the defaults
+		hasher.putBoolean(settings.getMergeVariables());
+		hasher.putBoolean(settings.getForceExplicitImports());
+		hasher.putBoolean(settings.getForceExplicitTypeArguments());
+		hasher.putBoolean(settings.getShowDebugLineNumbers());
+		hasher.putBoolean(settings.getShowSyntheticMembers());
+
+		JavaFormattingOptions formattingOptions = settings.getJavaFormattingOptions();
+		hasher.putInt(formattingOptions.ClassBraceStyle.ordinal());
+		hasher.putInt(formattingOptions.InterfaceBraceStyle.ordinal());
+		hasher.putInt(formattingOptions.EnumBraceStyle.ordinal());
+	}
+
+	private static final class Worker {
+		private final NoRetryMetadataSystem metadataSystem;
+		private final SourceProvider sourceProvider;
+
+		Worker(CompiledSourceTypeLoader typeLoader) {
+			metadataSystem = new NoRetryMetadataSystem(typeLoader);
+
+			//ensures methods are loaded on classload and prevents race conditions
+			metadataSystem.setEagerMethodLoadingEnabled(true);
+
+			sourceProvider = new SourceProvider(SourceProvider.createSettings(), typeLoader, metadataSystem);
+		}
+	}
+}
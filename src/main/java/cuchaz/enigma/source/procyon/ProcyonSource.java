@@ -0,0 +1,31 @@
+package cuchaz.enigma.source.procyon;
+
+import com.strobel.decompiler.languages.java.ast.CompilationUnit;
+import cuchaz.enigma.analysis.SourceIndex;
+import cuchaz.enigma.source.Source;
+
+final class ProcyonSource implements Source {
+	private final String source;
+	private final CompilationUnit sourceTree;
+
+	// the tree can still resolve types through the metadata system it was built with
+	private final Object lock;
+
+	ProcyonSource(String source, CompilationUnit sourceTree, Object lock) {
+		this.source = source;
+		this.sourceTree = sourceTree;
+		this.lock = lock;
+	}
+
+	@Override
+	public String asString() {
+		return source;
+	}
+
+	@Override
+	public SourceIndex index() {
+		synchronized (lock) {
+			return SourceIndex.buildIndex(source, sourceTree, true);
+		}
+	}
+}
@@ -1,13 +1,35 @@
 package cuchaz.enigma.translation;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.EntryResolver;
 import cuchaz.enigma.translation.mapping.EntryMap;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.Signature;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
 
+/**
+ * Translates through a tree of mappings. Class entries, descriptors and signatures are remembered once translated, since
+ * the same ones come up over and over again when remapping a jar. Their translations only depend on class mappings,
+ * so whoever changes a class mapping of the tree has to {@link #invalidate(Entry) invalidate} it here. Any class change
+ * drops the whole cache, rather than working out which of the cached translations mention the class.
+ */
 public class MappingTranslator implements Translator {
+	private static final int CACHE_SIZE = 1 << 16;
+
 	private final EntryMap<EntryMapping> mappings;
 	private final EntryResolver resolver;
 
+	private final Cache<Translatable, Translatable> cache = CacheBuilder.newBuilder()
+			.maximumSize(CACHE_SIZE)
+			.concurrencyLevel(Runtime.getRuntime().availableProcessors())
+			.build();
+	// bumped on every invalidation, so that a translation made from the mappings before it isn't kept
+	private volatile int generation;
+
 	public MappingTranslator(EntryMap<EntryMapping> mappings, EntryResolver resolver) {
 		this.mappings = mappings;
 		this.resolver = resolver;
@@ -19,6 +41,39 @@ public class MappingTranslator implements Translator {
 		if (translatable == null) {
 			return null;
 		}
-		return (T) translatable.translate(this, resolver, mappings);
+
+		if (!isCacheable(translatable)) {
+			return (T) translatable.translate(this, resolver, mappings);
+		}
+
+		Translatable translated = cache.getIfPresent(translatable);
+		if (translated == null) {
+			int translatedGeneration = generation;
+			translated = translatable.translate(this, resolver, mappings);
+
+			cache.put(translatable, translated);
+			if (generation != translatedGeneration) {
+				cache.invalidate(translatable);
+			}
+		}
+
+		return (T) translated;
+	}
+
+	private static boolean isCacheable(Translatable translatable) {
+		// exact types only: a ClassDefEntry equals its ClassEntry, but translates to a ClassDefEntry
+		Class<?> type = translatable.getClass();
+		return type == ClassEntry.class || type == TypeDescriptor.class || type == MethodDescriptor.class || type == Signature.class;
+	}
+
+	/**
+	 * Forgets the translations that may depend on the mapping of the given entry, for when it has changed.
+	 */
+	public void invalidate(Entry<?> entry) {
+		// nothing cached is translated with the mappings of members
+		if (entry instanceof ClassEntry) {
+			generation++;
+			cache.invalidateAll();
+		}
 	}
 }
@@ -17,7 +17,7 @@ public class EntryRemapper {
 	private final DeltaTrackingTree<EntryMapping> obfToDeobf;
 
 	private final EntryResolver obfResolver;
-	private final Translator deobfuscator;
+	private final MappingTranslator deobfuscator;
 
 	private final MappingValidator validator;
 
@@ -50,9 +50,18 @@ public class EntryRemapper {
 
 		for (E resolvedEntry : resolvedEntries) {
 			obfToDeobf.insert(resolvedEntry, deobfMapping);
+			deobfuscator.invalidate(resolvedEntry);
 		}
 	}
 
+	/**
+	 * Records a change made to the mapping of an entry through {@link #getObfToDeobf()} directly.
+	 */
+	public void trackChange(Entry<?> obfuscatedEntry) {
+		obfToDeobf.trackChange(obfuscatedEntry);
+		deobfuscator.invalidate(obfuscatedEntry);
+	}
+
 	public void removeByObf(Entry<?> obfuscatedEntry) {
 		mapFromObf(obfuscatedEntry, null);
 	}
@@ -1,14 +1,9 @@
 package cuchaz.enigma.translation.mapping;
 
-import com.google.common.collect.Sets;
-import cuchaz.enigma.analysis.IndexTreeBuilder;
-import cuchaz.enigma.analysis.MethodImplementationsTreeNode;
-import cuchaz.enigma.analysis.MethodInheritanceTreeNode;
 import cuchaz.enigma.analysis.index.BridgeMethodIndex;
 import cuchaz.enigma.analysis.index.EntryIndex;
 import cuchaz.enigma.analysis.index.InheritanceIndex;
 import cuchaz.enigma.analysis.index.JarIndex;
-import cuchaz.enigma.translation.VoidTranslator;
 import cuchaz.enigma.translation.representation.AccessFlags;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
@@ -16,6 +11,7 @@ import cuchaz.enigma.translation.representation.entry.MethodEntry;
 
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class IndexEntryResolver implements EntryResolver {
@@ -23,14 +19,28 @@ public class IndexEntryResolver implements EntryResolver {
 	private final InheritanceIndex inheritanceIndex;
 	private final BridgeMethodIndex bridgeMethodIndex;
 
-	private final IndexTreeBuilder treeBuilder;
+	// resolutions depend only on the index, so they are kept until the index changes. results that are just the entry
+	// being resolved are stored as a marker, so that callers always get back their own instance
+	private static final Collection<Entry<?>> UNRESOLVED = Collections.emptySet();
+
+	private final Map<ResolutionKey, Collection<Entry<?>>> resolutionCache = new ConcurrentHashMap<>();
+	private final Map<MethodEntry, Set<MethodEntry>> equivalentMethodsCache = new ConcurrentHashMap<>();
+	private volatile MethodEquivalenceTable equivalenceTable;
 
 	public IndexEntryResolver(JarIndex index) {
 		this.entryIndex = index.getEntryIndex();
 		this.inheritanceIndex = index.getInheritanceIndex();
 		this.bridgeMethodIndex = index.getBridgeMethodIndex();
+	}
 
-		this.treeBuilder = new IndexTreeBuilder(index);
+	/**
+	 * Drops all cached resolutions and the method equivalence table, which is rebuilt when next needed. Has to be
+	 * called whenever the index this resolver reads from changes.
+	 */
+	public synchronized void invalidate() {
+		resolutionCache.clear();
+		equivalentMethodsCache.clear();
+		equivalenceTable = null;
 	}
 
 	@Override
@@ -40,6 +50,21 @@ public class IndexEntryResolver implements EntryResolver {
 			return Collections.emptySet();
 		}
 
+		ResolutionKey key = new ResolutionKey(entry, strategy);
+		Collection<Entry<?>> resolved = resolutionCache.get(key);
+		if (resolved == null) {
+			Collection<E> computed = computeResolution(entry, strategy);
+			resolved = computed.size() == 1 && computed.iterator().next() == entry
+					? UNRESOLVED : Collections.unmodifiableCollection(computed);
+			resolutionCache.putIfAbsent(key, resolved);
+		}
+
+		return resolved == UNRESOLVED ? Collections.singleton(entry) : (Collection<E>) resolved;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <E extends Entry<?>> Collection<E> computeResolution(E entry, ResolutionStrategy strategy) {
+
 		Entry<ClassEntry> classChild = getClassChild(entry);
 		if (classChild != null && !(classChild instanceof ClassEntry)) {
 			AccessFlags access = entryIndex.getEntryAccess(classChild);
@@ -69,9 +94,7 @@ public class IndexEntryResolver implements EntryResolver {
 		}
 
 		// get the entry in the hierarchy that is the child of a class
-		List<Entry<?>> ancestry = entry.getAncestry();
-		for (int i = ancestry.size() - 1; i > 0; i--) {
-			Entry<?> child = ancestry.get(i);
+		for (Entry<?> child = entry; child.getParent() != null; child = child.getParent()) {
 			Entry<ClassEntry> cast = child.castParent(ClassEntry.class);
 			if (cast != null && !(cast instanceof ClassEntry)) {
 				// we found the entry which is a child of a class, we are now able to resolve the owner of this entry
@@ -161,67 +184,88 @@ public class IndexEntryResolver implements EntryResolver {
 			throw new IllegalArgumentException("Could not find method " + methodEntry);
 		}
 
-		if (!canInherit(methodEntry, access)) {
+		if (!MethodEquivalenceTable.canInherit(methodEntry, access)) {
 			return Collections.singleton(methodEntry);
 		}
 
-		Set<MethodEntry> methodEntries = Sets.newHashSet();
-		resolveEquivalentMethods(methodEntries, treeBuilder.buildMethodInheritance(VoidTranslator.INSTANCE, methodEntry));
-		return methodEntries;
+		MethodEntry root = resolveFirstEntry(methodEntry, ResolutionStrategy.RESOLVE_ROOT);
+		Set<MethodEntry> equivalentMethods = equivalentMethodsCache.get(root);
+		if (equivalentMethods == null) {
+			Set<MethodEntry> methods = new HashSet<>();
+			collectEquivalentMethods(root, methods, new HashSet<>());
+			equivalentMethods = Collections.unmodifiableSet(methods);
+			equivalentMethodsCache.putIfAbsent(root, equivalentMethods);
+		}
+
+		return equivalentMethods;
 	}
 
-	private void resolveEquivalentMethods(Set<MethodEntry> methodEntries, MethodInheritanceTreeNode node) {
-		MethodEntry methodEntry = node.getMethodEntry();
-		if (methodEntries.contains(methodEntry)) {
+	private void collectEquivalentMethods(MethodEntry root, Set<MethodEntry> methods, Set<MethodEntry> visitedRoots) {
+		if (!visitedRoots.add(root)) {
 			return;
 		}
 
-		AccessFlags flags = entryIndex.getMethodAccess(methodEntry);
-		if (flags != null && canInherit(methodEntry, flags)) {
-			// collect the entry
-			methodEntries.add(methodEntry);
-		}
+		for (MethodEntry method : getEquivalenceTable().getOverrides(root)) {
+			methods.add(method);
 
-		// look at bridge methods!
-		MethodEntry bridgedMethod = bridgeMethodIndex.getBridgeFromSpecialized(methodEntry);
-		while (bridgedMethod != null) {
-			methodEntries.addAll(resolveEquivalentMethods(bridgedMethod));
-			bridgedMethod = bridgeMethodIndex.getBridgeFromSpecialized(bridgedMethod);
-		}
+			// a method that is bridged to also has to share the name of the bridge, and everything equivalent to it
+			MethodEntry bridgeMethod = bridgeMethodIndex.getBridgeFromSpecialized(method);
+			while (bridgeMethod != null) {
+				AccessFlags bridgeAccess = entryIndex.getMethodAccess(bridgeMethod);
+				if (bridgeAccess == null) {
+					throw new IllegalArgumentException("Could not find method " + bridgeMethod);
+				}
 
-		// look at interface methods too
-		for (MethodImplementationsTreeNode implementationsNode : treeBuilder.buildMethodImplementations(VoidTranslator.INSTANCE, methodEntry)) {
-			resolveEquivalentMethods(methodEntries, implementationsNode);
-		}
+				if (MethodEquivalenceTable.canInherit(bridgeMethod, bridgeAccess)) {
+					collectEquivalentMethods(resolveFirstEntry(bridgeMethod, ResolutionStrategy.RESOLVE_ROOT), methods, visitedRoots);
+				} else {
+					methods.add(bridgeMethod);
+				}
 
-		// recurse
-		for (int i = 0; i < node.getChildCount(); i++) {
-			resolveEquivalentMethods(methodEntries, (MethodInheritanceTreeNode) node.getChildAt(i));
+				bridgeMethod = bridgeMethodIndex.getBridgeFromSpecialized(bridgeMethod);
+			}
 		}
 	}
 
-	private void resolveEquivalentMethods(Set<MethodEntry> methodEntries, MethodImplementationsTreeNode node) {
-		MethodEntry methodEntry = node.getMethodEntry();
-		AccessFlags flags = entryIndex.getMethodAccess(methodEntry);
-		if (flags != null && !flags.isPrivate() && !flags.isStatic()) {
-			// collect the entry
-			methodEntries.add(methodEntry);
+	private MethodEquivalenceTable getEquivalenceTable() {
+		MethodEquivalenceTable table = equivalenceTable;
+		if (table == null) {
+			synchronized (this) {
+				table = equivalenceTable;
+				if (table == null) {
+					table = MethodEquivalenceTable.build(entryIndex, inheritanceIndex);
+					equivalenceTable = table;
+				}
+			}
 		}
+		return table;
+	}
+
+	private static final class ResolutionKey {
+		private final Entry<?> entry;
+		private final ResolutionStrategy strategy;
+		private final int hash;
 
-		// look at bridge methods!
-		MethodEntry bridgedMethod = bridgeMethodIndex.getBridgeFromSpecialized(methodEntry);
-		while (bridgedMethod != null) {
-			methodEntries.addAll(resolveEquivalentMethods(bridgedMethod));
-			bridgedMethod = bridgeMethodIndex.getBridgeFromSpecialized(bridgedMethod);
+		ResolutionKey(Entry<?> entry, ResolutionStrategy strategy) {
+			this.entry = entry;
+			this.strategy = strategy;
+			this.hash = entry.hashCode() * 31 + strategy.hashCode();
 		}
 
-		// recurse
-		for (int i = 0; i < node.getChildCount(); i++) {
-			resolveEquivalentMethods(methodEntries, (MethodImplementationsTreeNode) node.getChildAt(i));
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ResolutionKey)) {
+				return false;
+			}
+
+			// definitions are equal to plain entries, but resolve to entries of their own type
+			ResolutionKey other = (ResolutionKey) obj;
+			return strategy == other.strategy && entry.getClass() == other.entry.getClass() && entry.equals(other.entry);
 		}
-	}
 
-	private boolean canInherit(MethodEntry entry, AccessFlags access) {
-		return !entry.isConstructor() && !access.isPrivate() && !access.isStatic() && !access.isFinal();
+		@Override
+		public int hashCode() {
+			return hash;
+		}
 	}
 }
@@ -0,0 +1,138 @@
+package cuchaz.enigma.translation.mapping;
+
+import com.google.common.collect.ImmutableSet;
+import cuchaz.enigma.analysis.index.EntryIndex;
+import cuchaz.enigma.analysis.index.InheritanceIndex;
+import cuchaz.enigma.translation.representation.AccessFlags;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+import java.util.*;
+
+/**
+ * Groups the methods of an index into classes of methods that override each other, and so have to share a name. Built
+ * once with a union-find over every override, after which looking up the overrides of a method is a map lookup.
+ * <p>
+ * Bridge methods are not merged into these classes: a specialized method resolves to its bridge, but not the other way
+ * around, so {@link IndexEntryResolver} follows bridges itself.
+ */
+final class MethodEquivalenceTable {
+	private final Map<MethodEntry, Set<MethodEntry>> equivalenceClasses;
+
+	private MethodEquivalenceTable(Map<MethodEntry, Set<MethodEntry>> equivalenceClasses) {
+		this.equivalenceClasses = equivalenceClasses;
+	}
+
+	static MethodEquivalenceTable build(EntryIndex entryIndex, InheritanceIndex inheritanceIndex) {
+		List<MethodEntry> methods = new ArrayList<>(entryIndex.getMethods());
+		Map<MethodEntry, Integer> ids = new HashMap<>(methods.size());
+		for (int i = 0; i < methods.size(); i++) {
+			ids.put(methods.get(i), i);
+		}
+
+		UnionFind unionFind = new UnionFind(methods.size());
+
+		// final methods can't be overridden themselves, but still share the name of the methods they override
+		List<int[]> attachments = new ArrayList<>();
+
+		Map<ClassEntry, Set<ClassEntry>> ancestors = new HashMap<>();
+		for (int id = 0; id < methods.size(); id++) {
+			MethodEntry method = methods.get(id);
+			AccessFlags access = entryIndex.getMethodAccess(method);
+			if (method.isConstructor() || access.isPrivate() || access.isStatic()) {
+				continue;
+			}
+
+			boolean inheritable = canInherit(method, access);
+
+			Set<ClassEntry> classAncestors = ancestors.computeIfAbsent(method.getParent(), inheritanceIndex::getAncestors);
+			for (ClassEntry ancestor : classAncestors) {
+				Integer overriddenId = ids.get(method.withParent(ancestor));
+				if (overriddenId == null || !canInherit(methods.get(overriddenId), entryIndex.getMethodAccess(methods.get(overriddenId)))) {
+					continue;
+				}
+
+				if (inheritable) {
+					unionFind.union(id, overriddenId);
+				} else {
+					attachments.add(new int[] { id, overriddenId });
+				}
+			}
+		}
+
+		Map<Integer, ImmutableSet.Builder<MethodEntry>> builders = new HashMap<>();
+		for (int id = 0; id < methods.size(); id++) {
+			MethodEntry method = methods.get(id);
+			if (canInherit(method, entryIndex.getMethodAccess(method))) {
+				builders.computeIfAbsent(unionFind.find(id), root -> ImmutableSet.builder()).add(method);
+			}
+		}
+
+		for (int[] attachment : attachments) {
+			builders.get(unionFind.find(attachment[1])).add(methods.get(attachment[0]));
+		}
+
+		Map<Integer, Set<MethodEntry>> classes = new HashMap<>(builders.size());
+		builders.forEach((root, builder) -> classes.put(root, builder.build()));
+
+		Map<MethodEntry, Set<MethodEntry>> equivalenceClasses = new HashMap<>();
+		for (int id = 0; id < methods.size(); id++) {
+			Set<MethodEntry> equivalenceClass = classes.get(unionFind.find(id));
+			if (equivalenceClass != null && canInherit(methods.get(id), entryIndex.getMethodAccess(methods.get(id)))) {
+				equivalenceClasses.put(methods.get(id), equivalenceClass);
+			}
+		}
+
+		return new MethodEquivalenceTable(equivalenceClasses);
+	}
+
+	static boolean canInherit(MethodEntry entry, AccessFlags access) {
+		return !entry.isConstructor() && !access.isPrivate() && !access.isStatic() && !access.isFinal();
+	}
+
+	/**
+	 * @return the given method, if it can be inherited, with every method overriding it or overridden by it, or an
+	 * empty set if it can't be inherited
+	 */
+	Set<MethodEntry> getOverrides(MethodEntry method) {
+		return equivalenceClasses.getOrDefault(method, Collections.emptySet());
+	}
+
+	private static final class UnionFind {
+		private final int[] parents;
+		private final byte[] ranks;
+
+		UnionFind(int size) {
+			parents = new int[size];
+			ranks = new byte[size];
+			for (int i = 0; i < size; i++) {
+				parents[i] = i;
+			}
+		}
+
+		int find(int node) {
+			while (parents[node] != node) {
+				parents[node] = parents[parents[node]];
+				node = parents[node];
+			}
+			return node;
+		}
+
+		void union(int a, int b) {
+			int rootA = find(a);
+			int rootB = find(b);
+			if (rootA == rootB) {
+				return;
+			}
+
+			if (ranks[rootA] < ranks[rootB]) {
+				parents[rootA] = rootB;
+			} else if (ranks[rootA] > ranks[rootB]) {
+				parents[rootB] = rootA;
+			} else {
+				parents[rootB] = rootA;
+				ranks[rootA]++;
+			}
+		}
+	}
+}
@@ -188,14 +188,14 @@ public enum EnigmaMappingsReader implements MappingsReader {
 		if (tokens.length == 4) {
 			AccessModifier parsedModifier = parseModifier(tokens[3]);
 			if (parsedModifier != null) {
-				descriptor = new TypeDescriptor(tokens[2]);
+				descriptor = TypeDescriptor.parse(tokens[2]);
 				modifier = parsedModifier;
 			} else {
 				mapping = tokens[2];
-				descriptor = new TypeDescriptor(tokens[3]);
+				descriptor = TypeDescriptor.parse(tokens[3]);
 			}
 		} else if (tokens.length == 5) {
-			descriptor = new TypeDescriptor(tokens[3]);
+			descriptor = TypeDescriptor.parse(tokens[3]);
 			mapping = tokens[2];
 			modifier = parseModifier(tokens[4]);
 		} else {
@@ -223,21 +223,21 @@ public enum EnigmaMappingsReader implements MappingsReader {
 		MethodDescriptor descriptor;
 
 		if (tokens.length == 3) {
-			descriptor = new MethodDescriptor(tokens[2]);
+			descriptor = MethodDescriptor.parse(tokens[2]);
 		} else if (tokens.length == 4) {
 			AccessModifier parsedModifier = parseModifier(tokens[3]);
 			if (parsedModifier != null) {
 				modifier = parsedModifier;
 				mapping = obfuscatedName;
-				descriptor = new MethodDescriptor(tokens[2]);
+				descriptor = MethodDescriptor.parse(tokens[2]);
 			} else {
 				mapping = tokens[2];
-				descriptor = new MethodDescriptor(tokens[3]);
+				descriptor = MethodDescriptor.parse(tokens[3]);
 			}
 		} else if (tokens.length == 5) {
 			mapping = tokens[2];
 			modifier = parseModifier(tokens[4]);
-			descriptor = new MethodDescriptor(tokens[3]);
+			descriptor = MethodDescriptor.parse(tokens[3]);
 		} else {
 			throw new RuntimeException("Invalid method declaration");
 		}
@@ -9,18 +9,29 @@ import cuchaz.enigma.translation.representation.entry.Entry;
 
 import javax.annotation.Nullable;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
+/**
+ * Keeps track of the entries changed in another tree, and of what the tree looked like before them, so that only the
+ * changes have to be saved.
+ * <p>
+ * What the tree looked like isn't copied: the delta reference is a {@link Snapshot} that reads through to the tree, and
+ * an entry is remembered in it only when it is first changed after the snapshot was taken. Taking a delta then only
+ * costs as much as the changes made since the last one. This relies on every change going through this tree.
+ */
 public class DeltaTrackingTree<T> implements EntryTree<T> {
 	private final EntryTree<T> delegate;
 
-	private EntryTree<T> deltaReference;
+	private Snapshot<T> deltaReference;
 	private EntryTree<Object> changes = new HashEntryTree<>();
 
 	public DeltaTrackingTree(EntryTree<T> delegate) {
 		this.delegate = delegate;
-		this.deltaReference = new HashEntryTree<>(delegate);
+		this.deltaReference = new Snapshot<>(delegate);
 	}
 
 	public DeltaTrackingTree() {
@@ -30,6 +41,7 @@ public class DeltaTrackingTree<T> implements EntryTree<T> {
 	@Override
 	public void insert(Entry<?> entry, T value) {
 		trackChange(entry);
+		deltaReference.beforeChange(entry);
 		delegate.insert(entry, value);
 	}
 
@@ -37,6 +49,7 @@ public class DeltaTrackingTree<T> implements EntryTree<T> {
 	@Override
 	public T remove(Entry<?> entry) {
 		trackChange(entry);
+		deltaReference.beforeChange(entry);
 		return delegate.remove(entry);
 	}
 
@@ -100,11 +113,135 @@ public class DeltaTrackingTree<T> implements EntryTree<T> {
 	}
 
 	private void resetDelta() {
-		deltaReference = new HashEntryTree<>(delegate);
+		Snapshot<T> snapshot = new Snapshot<>(delegate);
+		deltaReference.next = snapshot;
+		deltaReference = snapshot;
 		changes = new HashEntryTree<>();
 	}
 
 	public boolean isDirty() {
 		return !changes.isEmpty();
 	}
+
+	/**
+	 * What a tree looked like at some point, read through the tree itself and the values its entries had before they
+	 * were changed. Every snapshot knows the values changed until the next one was taken, so an entry is looked up in
+	 * the snapshots taken after this one before the tree. Anything that needs the whole tree rather than single entries
+	 * works on a copy, made the first time it is needed.
+	 */
+	private static final class Snapshot<T> implements EntryTree<T> {
+		// stands for an entry that had no value, as the map can't hold nulls
+		private static final Object NO_VALUE = new Object();
+
+		private final EntryTree<T> delegate;
+		private final Map<Entry<?>, Object> changedValues = new ConcurrentHashMap<>();
+		private volatile Snapshot<T> next;
+
+		private EntryTree<T> copy;
+
+		Snapshot(EntryTree<T> delegate) {
+			this.delegate = delegate;
+		}
+
+		void beforeChange(Entry<?> entry) {
+			if (!changedValues.containsKey(entry)) {
+				T value = delegate.get(entry);
+				changedValues.put(entry, value != null ? value : NO_VALUE);
+			}
+		}
+
+		@Nullable
+		private Object getChangedValue(Entry<?> entry) {
+			for (Snapshot<T> snapshot = this; snapshot != null; snapshot = snapshot.next) {
+				Object value = snapshot.changedValues.get(entry);
+				if (value != null) {
+					return value;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		@Nullable
+		@SuppressWarnings("unchecked")
+		public T get(Entry<?> entry) {
+			Object changedValue = getChangedValue(entry);
+			if (changedValue == null) {
+				T value = delegate.get(entry);
+
+				// the old value is remembered before the tree is changed, so look again in case it changed meanwhile
+				changedValue = getChangedValue(entry);
+				if (changedValue == null) {
+					return value;
+				}
+			}
+
+			return changedValue != NO_VALUE ? (T) changedValue : null;
+		}
+
+		@SuppressWarnings("unchecked")
+		private synchronized EntryTree<T> getCopy() {
+			if (copy == null) {
+				Map<Entry<?>, Object> changedValues = new HashMap<>();
+				for (Snapshot<T> snapshot = this; snapshot != null; snapshot = snapshot.next) {
+					snapshot.changedValues.forEach(changedValues::putIfAbsent);
+				}
+
+				copy = new HashEntryTree<>(delegate);
+				changedValues.forEach((entry, value) -> copy.insert(entry, value != NO_VALUE ? (T) value : null));
+			}
+			return copy;
+		}
+
+		@Override
+		public void insert(Entry<?> entry, T value) {
+			throw new UnsupportedOperationException("Cannot change a snapshot of mappings");
+		}
+
+		@Override
+		public T remove(Entry<?> entry) {
+			throw new UnsupportedOperationException("Cannot change a snapshot of mappings");
+		}
+
+		@Override
+		public Collection<Entry<?>> getChildren(Entry<?> entry) {
+			return getCopy().getChildren(entry);
+		}
+
+		@Override
+		public Collection<Entry<?>> getSiblings(Entry<?> entry) {
+			return getCopy().getSiblings(entry);
+		}
+
+		@Nullable
+		@Override
+		public EntryTreeNode<T> findNode(Entry<?> entry) {
+			return getCopy().findNode(entry);
+		}
+
+		@Override
+		public Stream<EntryTreeNode<T>> getRootNodes() {
+			return getCopy().getRootNodes();
+		}
+
+		@Override
+		public Stream<Entry<?>> getAllEntries() {
+			return getCopy().getAllEntries();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return getCopy().isEmpty();
+		}
+
+		@Override
+		public Iterator<EntryTreeNode<T>> iterator() {
+			return getCopy().iterator();
+		}
+
+		@Override
+		public EntryTree<T> translate(Translator translator, EntryResolver resolver, EntryMap<EntryMapping> mappings) {
+			return getCopy().translate(translator, resolver, mappings);
+		}
+	}
 }
@@ -0,0 +1,206 @@
+package cuchaz.enigma.translation.mapping.tree;
+
+import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.mapping.EntryMap;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryResolver;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A read-only copy of another tree, for mappings that are only read once loaded, such as when exporting a jar.
+ * <p>
+ * Nodes are stored breadth first in plain arrays, so that the children of every node are next to each other, and are
+ * found through a single open addressing table of node indices instead of a map per node. Nodes handed out are views of
+ * the arrays, made on demand. Inserting or removing anything throws {@link UnsupportedOperationException}.
+ */
+public final class FrozenEntryTree<T> implements EntryTree<T> {
+	private final Entry<?>[] entries;
+	private final Object[] values;
+	// the children of node i are the nodes in [childStart[i], childStart[i + 1]), roots come before any of them
+	private final int[] childStart;
+	private final int rootCount;
+
+	// node index + 1 by entry hash, 0 for free slots
+	private final int[] table;
+
+	public FrozenEntryTree(EntryTree<T> tree) {
+		List<EntryTreeNode<T>> nodes = new ArrayList<>();
+		tree.getRootNodes().forEach(nodes::add);
+		rootCount = nodes.size();
+
+		for (int i = 0; i < nodes.size(); i++) {
+			nodes.addAll(nodes.get(i).getChildNodes());
+		}
+
+		int size = nodes.size();
+		entries = new Entry<?>[size];
+		values = new Object[size];
+		childStart = new int[size + 1];
+		childStart[0] = rootCount;
+
+		for (int i = 0; i < size; i++) {
+			EntryTreeNode<T> node = nodes.get(i);
+			entries[i] = node.getEntry();
+			values[i] = node.getValue();
+			childStart[i + 1] = childStart[i] + node.getChildNodes().size();
+		}
+
+		table = new int[Math.max(2, Integer.highestOneBit(Math.max(1, size)) << 2)];
+		for (int i = 0; i < size; i++) {
+			int slot = slot(entries[i]);
+			while (table[slot] != 0) {
+				slot = (slot + 1) & (table.length - 1);
+			}
+			table[slot] = i + 1;
+		}
+	}
+
+	private int slot(Entry<?> entry) {
+		int hash = entry.hashCode();
+		return (hash ^ (hash >>> 16)) & (table.length - 1);
+	}
+
+	private int indexOf(Entry<?> entry) {
+		int slot = slot(entry);
+		int index;
+		while ((index = table[slot]) != 0) {
+			if (entries[index - 1].equals(entry)) {
+				return index - 1;
+			}
+			slot = (slot + 1) & (table.length - 1);
+		}
+
+		return -1;
+	}
+
+	@Override
+	public void insert(Entry<?> entry, T value) {
+		throw new UnsupportedOperationException("Cannot change frozen mappings");
+	}
+
+	@Override
+	public T remove(Entry<?> entry) {
+		throw new UnsupportedOperationException("Cannot change frozen mappings");
+	}
+
+	@Override
+	@Nullable
+	@SuppressWarnings("unchecked")
+	public T get(Entry<?> entry) {
+		int index = indexOf(entry);
+		return index != -1 ? (T) values[index] : null;
+	}
+
+	@Override
+	public Collection<Entry<?>> getChildren(Entry<?> entry) {
+		int index = indexOf(entry);
+		if (index == -1) {
+			return Collections.emptyList();
+		}
+		return getEntries(childStart[index], childStart[index + 1]);
+	}
+
+	@Override
+	public Collection<Entry<?>> getSiblings(Entry<?> entry) {
+		Entry<?> parent = entry.getParent();
+		Set<Entry<?>> siblings = new HashSet<>(parent != null ? getChildren(parent) : getEntries(0, rootCount));
+		siblings.remove(entry);
+		return siblings;
+	}
+
+	private List<Entry<?>> getEntries(int from, int to) {
+		return Collections.unmodifiableList(Arrays.asList(entries).subList(from, to));
+	}
+
+	@Override
+	@Nullable
+	public EntryTreeNode<T> findNode(Entry<?> entry) {
+		int index = indexOf(entry);
+		return index != -1 ? new Node(index) : null;
+	}
+
+	@Override
+	public Stream<EntryTreeNode<T>> getRootNodes() {
+		return getNodes(0, rootCount).stream();
+	}
+
+	private List<EntryTreeNode<T>> getNodes(int from, int to) {
+		return new AbstractList<EntryTreeNode<T>>() {
+			@Override
+			public EntryTreeNode<T> get(int index) {
+				return new Node(from + index);
+			}
+
+			@Override
+			public int size() {
+				return to - from;
+			}
+		};
+	}
+
+	@Override
+	public Iterator<EntryTreeNode<T>> iterator() {
+		return getNodes(0, entries.length).iterator();
+	}
+
+	@Override
+	public Stream<Entry<?>> getAllEntries() {
+		return IntStream.range(0, entries.length)
+				.filter(i -> values[i] != null)
+				.mapToObj(i -> entries[i]);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return entries.length == 0;
+	}
+
+	@Override
+	public FrozenEntryTree<T> translate(Translator translator, EntryResolver resolver, EntryMap<EntryMapping> mappings) {
+		HashEntryTree<T> translatedTree = new HashEntryTree<>();
+		for (EntryTreeNode<T> node : this) {
+			translatedTree.insert(translator.translate(node.getEntry()), node.getValue());
+		}
+		return new FrozenEntryTree<>(translatedTree);
+	}
+
+	private final class Node implements EntryTreeNode<T> {
+		private final int index;
+
+		Node(int index) {
+			this.index = index;
+		}
+
+		@Override
+		@Nullable
+		@SuppressWarnings("unchecked")
+		public T getValue() {
+			return (T) values[index];
+		}
+
+		@Override
+		public Entry<?> getEntry() {
+			return entries[index];
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return values[index] == null && childStart[index] == childStart[index + 1];
+		}
+
+		@Override
+		public Collection<Entry<?>> getChildren() {
+			return getEntries(childStart[index], childStart[index + 1]);
+		}
+
+		@Override
+		public Collection<? extends EntryTreeNode<T>> getChildNodes() {
+			return getNodes(childStart[index], childStart[index + 1]);
+		}
+	}
+}
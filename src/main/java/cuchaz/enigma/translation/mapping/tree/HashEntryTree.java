@@ -14,6 +14,8 @@ import java.util.stream.StreamSupport;
 
 public class HashEntryTree<T> implements EntryTree<T> {
 	private final Map<Entry<?>, HashTreeNode<T>> root = new HashMap<>();
+	// every node of the tree by its entry, so that lookups don't have to walk down from the root
+	private final Map<Entry<?>, HashTreeNode<T>> nodes = new HashMap<>();
 
 	public HashEntryTree() {
 	}
@@ -26,24 +28,25 @@ public class HashEntryTree<T> implements EntryTree<T> {
 
 	@Override
 	public void insert(Entry<?> entry, T value) {
-		List<HashTreeNode<T>> path = computePath(entry, true);
-		path.get(path.size() - 1).putValue(value);
 		if (value == null) {
-			removeDeadAlong(path);
+			remove(entry);
+			return;
 		}
+
+		computeNode(entry).putValue(value);
 	}
 
 	@Override
 	@Nullable
 	public T remove(Entry<?> entry) {
-		List<HashTreeNode<T>> path = computePath(entry, false);
-		if (path.isEmpty()) {
+		HashTreeNode<T> node = nodes.get(entry);
+		if (node == null) {
 			return null;
 		}
 
-		T value = path.get(path.size() - 1).removeValue();
+		T value = node.removeValue();
 
-		removeDeadAlong(path);
+		removeDeadFrom(node);
 
 		return value;
 	}
@@ -90,74 +93,49 @@ public class HashEntryTree<T> implements EntryTree<T> {
 	@Override
 	@Nullable
 	public HashTreeNode<T> findNode(Entry<?> target) {
-		List<Entry<?>> parentChain = target.getAncestry();
-		if (parentChain.isEmpty()) {
-			return null;
-		}
-
-		HashTreeNode<T> node = root.get(parentChain.get(0));
-		for (int i = 1; i < parentChain.size(); i++) {
-			if (node == null) {
-				return null;
-			}
-			node = node.getChild(parentChain.get(i));
-		}
-
-		return node;
+		return nodes.get(target);
 	}
 
-	private List<HashTreeNode<T>> computePath(Entry<?> target, boolean make) {
-		List<Entry<?>> ancestry = target.getAncestry();
-		if (ancestry.isEmpty()) {
-			return Collections.emptyList();
+	private HashTreeNode<T> computeNode(Entry<?> entry) {
+		HashTreeNode<T> node = nodes.get(entry);
+		if (node != null) {
+			return node;
 		}
 
-		List<HashTreeNode<T>> path = new ArrayList<>(ancestry.size());
-
-		Entry<?> rootEntry = ancestry.get(0);
-		HashTreeNode<T> node = make ? root.computeIfAbsent(rootEntry, HashTreeNode::new) : root.get(rootEntry);
-		if (node == null) {
-			return Collections.emptyList();
-		}
-
-		path.add(node);
-
-		for (int i = 1; i < ancestry.size(); i++) {
-			Entry<?> ancestor = ancestry.get(i);
-			node = make ? node.computeChild(ancestor) : node.getChild(ancestor);
-			if (node == null) {
-				return Collections.emptyList();
-			}
-
-			path.add(node);
+		Entry<?> parent = entry.getParent();
+		if (parent != null) {
+			node = computeNode(parent).computeChild(entry);
+		} else {
+			node = root.computeIfAbsent(entry, HashTreeNode::new);
 		}
 
-		return path;
+		nodes.put(entry, node);
+		return node;
 	}
 
-	private void removeDeadAlong(List<HashTreeNode<T>> path) {
-		for (int i = path.size() - 1; i >= 0; i--) {
-			HashTreeNode<T> node = path.get(i);
-			if (node.isEmpty()) {
-				if (i > 0) {
-					HashTreeNode<T> parentNode = path.get(i - 1);
-					parentNode.remove(node.getEntry());
-				} else {
-					root.remove(node.getEntry());
-				}
+	private void removeDeadFrom(HashTreeNode<T> node) {
+		while (node != null && node.isEmpty()) {
+			Entry<?> entry = node.getEntry();
+			nodes.remove(entry);
+
+			Entry<?> parent = entry.getParent();
+			if (parent != null) {
+				node = nodes.get(parent);
+				node.remove(entry);
 			} else {
-				break;
+				root.remove(entry);
+				node = null;
 			}
 		}
 	}
 
 	@Override
 	public Iterator<EntryTreeNode<T>> iterator() {
-		Collection<EntryTreeNode<T>> nodes = new ArrayList<>();
+		Collection<EntryTreeNode<T>> allNodes = new ArrayList<>();
 		for (EntryTreeNode<T> node : root.values()) {
-			nodes.addAll(node.getNodesRecursively());
+			allNodes.addAll(node.getNodesRecursively());
 		}
-		return nodes.iterator();
+		return allNodes.iterator();
 	}
 
 	@Override
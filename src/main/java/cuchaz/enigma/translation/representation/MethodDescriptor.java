@@ -21,34 +21,36 @@ import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.utils.Utils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Function;
 
 public class MethodDescriptor implements Translatable {
+	private static final ParseCache<MethodDescriptor> PARSED = new ParseCache<>(1 << 16);
 
-	private List<TypeDescriptor> argumentDescs;
-	private TypeDescriptor returnDesc;
+	private final List<TypeDescriptor> argumentDescs;
+	private final TypeDescriptor returnDesc;
 
 	public MethodDescriptor(String desc) {
 		try {
-			this.argumentDescs = Lists.newArrayList();
+			List<TypeDescriptor> argumentDescs = Lists.newArrayList();
 			int i = 0;
 			while (i < desc.length()) {
 				char c = desc.charAt(i);
 				if (c == '(') {
-					assert (this.argumentDescs.isEmpty());
-					assert (this.returnDesc == null);
+					assert (argumentDescs.isEmpty());
 					i++;
 				} else if (c == ')') {
 					i++;
 					break;
 				} else {
 					String type = TypeDescriptor.parseFirst(desc.substring(i));
-					this.argumentDescs.add(new TypeDescriptor(type));
+					argumentDescs.add(TypeDescriptor.parse(type));
 					i += type.length();
 				}
 			}
-			this.returnDesc = new TypeDescriptor(TypeDescriptor.parseFirst(desc.substring(i)));
+			this.argumentDescs = argumentDescs;
+			this.returnDesc = TypeDescriptor.parse(TypeDescriptor.parseFirst(desc.substring(i)));
 		} catch (Exception ex) {
 			throw new IllegalArgumentException("Unable to parse method descriptor: " + desc, ex);
 		}
@@ -59,8 +61,15 @@ public class MethodDescriptor implements Translatable {
 		this.returnDesc = returnDesc;
 	}
 
+	/**
+	 * Same as {@link #MethodDescriptor(String)}, but returns the same instance for descriptors seen recently.
+	 */
+	public static MethodDescriptor parse(String desc) {
+		return PARSED.get(desc, MethodDescriptor::new);
+	}
+
 	public List<TypeDescriptor> getArgumentDescs() {
-		return this.argumentDescs;
+		return Collections.unmodifiableList(this.argumentDescs);
 	}
 
 	public TypeDescriptor getReturnDesc() {
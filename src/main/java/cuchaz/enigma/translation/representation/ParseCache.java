@@ -0,0 +1,34 @@
+package cuchaz.enigma.translation.representation;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.function.Function;
+
+/**
+ * Keeps what was recently parsed from descriptors or signatures. Those never change, so every use of the same string can
+ * share one instance.
+ */
+final class ParseCache<T> {
+	private final Cache<String, T> parsed;
+
+	ParseCache(int maximumSize) {
+		this.parsed = CacheBuilder.newBuilder()
+				.maximumSize(maximumSize)
+				.concurrencyLevel(Runtime.getRuntime().availableProcessors())
+				.build();
+	}
+
+	/**
+	 * Returns what the parser made of the given string, parsing it only if it wasn't seen recently. Exceptions from the
+	 * parser are passed on as they are.
+	 */
+	T get(String string, Function<String, T> parser) {
+		T value = parsed.getIfPresent(string);
+		if (value == null) {
+			value = parser.apply(string);
+			parsed.put(string, value);
+		}
+		return value;
+	}
+}
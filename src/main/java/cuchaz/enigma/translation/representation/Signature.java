@@ -12,17 +12,22 @@ import org.objectweb.asm.signature.SignatureVisitor;
 import org.objectweb.asm.signature.SignatureWriter;
 
 import java.util.function.Function;
-import java.util.regex.Pattern;
 
 public class Signature implements Translatable {
-	private static final Pattern OBJECT_PATTERN = Pattern.compile(".*:Ljava/lang/Object;:.*");
+	private static final String OBJECT_BOUND = ":Ljava/lang/Object;:";
+
+	private static final Signature NONE = new Signature(null, false);
+	private static final Signature NONE_TYPED = new Signature(null, true);
+
+	private static final ParseCache<Signature> PARSED = new ParseCache<>(1 << 14);
+	private static final ParseCache<Signature> PARSED_TYPED = new ParseCache<>(1 << 14);
 
 	private final String signature;
 	private final boolean isType;
 
 	private Signature(String signature, boolean isType) {
-		if (signature != null && OBJECT_PATTERN.matcher(signature).matches()) {
-			signature = signature.replaceAll(":Ljava/lang/Object;:", "::");
+		if (signature != null && signature.contains(OBJECT_BOUND)) {
+			signature = signature.replace(OBJECT_BOUND, "::");
 		}
 
 		this.signature = signature;
@@ -31,16 +36,16 @@ public class Signature implements Translatable {
 
 	public static Signature createTypedSignature(String signature) {
 		if (signature != null && !signature.isEmpty()) {
-			return new Signature(signature, true);
+			return PARSED_TYPED.get(signature, s -> new Signature(s, true));
 		}
-		return new Signature(null, true);
+		return NONE_TYPED;
 	}
 
 	public static Signature createSignature(String signature) {
 		if (signature != null && !signature.isEmpty()) {
-			return new Signature(signature, false);
+			return PARSED.get(signature, s -> new Signature(s, false));
 		}
-		return new Signature(null, false);
+		return NONE;
 	}
 
 	public String getSignature() {
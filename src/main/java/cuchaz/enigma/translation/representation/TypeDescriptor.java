@@ -25,6 +25,7 @@ import java.util.Map;
 import java.util.function.Function;
 
 public class TypeDescriptor implements Translatable {
+	private static final ParseCache<TypeDescriptor> PARSED = new ParseCache<>(1 << 16);
 
 	protected final String desc;
 
@@ -40,6 +41,13 @@ public class TypeDescriptor implements Translatable {
 		this.desc = desc;
 	}
 
+	/**
+	 * Same as {@link #TypeDescriptor(String)}, but returns the same instance for descriptors seen recently.
+	 */
+	public static TypeDescriptor parse(String desc) {
+		return PARSED.get(desc, TypeDescriptor::new);
+	}
+
 	public static String parseFirst(String in) {
 
 		if (in == null || in.length() <= 0) {
@@ -109,11 +117,11 @@ public class TypeDescriptor implements Translatable {
 	}
 
 	public static TypeDescriptor of(String name) {
-		return new TypeDescriptor("L" + name + ";");
+		return parse("L" + name + ";");
 	}
 
 	public static TypeDescriptor parse(TypeReference type) {
-		return new TypeDescriptor(type.getErasedSignature());
+		return parse(type.getErasedSignature());
 	}
 
 	@Override
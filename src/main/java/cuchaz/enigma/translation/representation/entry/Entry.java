@@ -17,6 +17,7 @@ import cuchaz.enigma.translation.mapping.NameValidator;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public interface Entry<P extends Entry<?>> extends Translatable {
@@ -50,21 +51,18 @@ public interface Entry<P extends Entry<?>> extends Translatable {
 	}
 
 	default List<Entry<?>> getAncestry() {
-		P parent = getParent();
 		List<Entry<?>> entries = new ArrayList<>();
-		if (parent != null) {
-			entries.addAll(parent.getAncestry());
+		for (Entry<?> entry = this; entry != null; entry = entry.getParent()) {
+			entries.add(entry);
 		}
-		entries.add(this);
+		Collections.reverse(entries);
 		return entries;
 	}
 
 	@Nullable
 	@SuppressWarnings("unchecked")
 	default <E extends Entry<?>> E findAncestor(Class<E> type) {
-		List<Entry<?>> ancestry = getAncestry();
-		for (int i = ancestry.size() - 1; i >= 0; i--) {
-			Entry<?> ancestor = ancestry.get(i);
+		for (Entry<?> ancestor = this; ancestor != null; ancestor = ancestor.getParent()) {
 			if (type.isAssignableFrom(ancestor.getClass())) {
 				return (E) ancestor;
 			}
@@ -34,12 +34,12 @@ public class FieldDefEntry extends FieldEntry implements DefEntry<ClassEntry> {
 	}
 
 	public static FieldDefEntry parse(ClassEntry owner, int access, String name, String desc, String signature) {
-		return new FieldDefEntry(owner, name, new TypeDescriptor(desc), Signature.createTypedSignature(signature), new AccessFlags(access));
+		return new FieldDefEntry(owner, name, TypeDescriptor.parse(desc), Signature.createTypedSignature(signature), new AccessFlags(access));
 	}
 
 	public static FieldDefEntry parse(FieldDefinition definition) {
 		ClassEntry owner = ClassEntry.parse(definition.getDeclaringType());
-		TypeDescriptor descriptor = new TypeDescriptor(definition.getErasedSignature());
+		TypeDescriptor descriptor = TypeDescriptor.parse(definition.getErasedSignature());
 		Signature signature = Signature.createTypedSignature(definition.getSignature());
 		AccessFlags access = new AccessFlags(definition.getModifiers());
 		return new FieldDefEntry(owner, definition.getName(), descriptor, signature, access);
@@ -32,7 +32,7 @@ public class FieldEntry extends ParentedEntry<ClassEntry> implements Comparable<
 	}
 
 	public static FieldEntry parse(String owner, String name, String desc) {
-		return new FieldEntry(new ClassEntry(owner), name, new TypeDescriptor(desc));
+		return new FieldEntry(new ClassEntry(owner), name, TypeDescriptor.parse(desc));
 	}
 
 	@Override
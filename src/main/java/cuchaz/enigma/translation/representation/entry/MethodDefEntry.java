@@ -34,12 +34,12 @@ public class MethodDefEntry extends MethodEntry implements DefEntry<ClassEntry>
 	}
 
 	public static MethodDefEntry parse(ClassEntry owner, int access, String name, String desc, String signature) {
-		return new MethodDefEntry(owner, name, new MethodDescriptor(desc), Signature.createSignature(signature), new AccessFlags(access));
+		return new MethodDefEntry(owner, name, MethodDescriptor.parse(desc), Signature.createSignature(signature), new AccessFlags(access));
 	}
 
 	public static MethodDefEntry parse(MethodDefinition definition) {
 		ClassEntry classEntry = ClassEntry.parse(definition.getDeclaringType());
-		MethodDescriptor descriptor = new MethodDescriptor(definition.getErasedSignature());
+		MethodDescriptor descriptor = MethodDescriptor.parse(definition.getErasedSignature());
 		Signature signature = Signature.createSignature(definition.getSignature());
 		AccessFlags access = new AccessFlags(definition.getModifiers());
 		return new MethodDefEntry(classEntry, definition.getName(), descriptor, signature, access);
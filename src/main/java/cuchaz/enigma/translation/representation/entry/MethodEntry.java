@@ -33,7 +33,7 @@ public class MethodEntry extends ParentedEntry<ClassEntry> implements Comparable
 	}
 
 	public static MethodEntry parse(String owner, String name, String desc) {
-		return new MethodEntry(new ClassEntry(owner), name, new MethodDescriptor(desc));
+		return new MethodEntry(new ClassEntry(owner), name, MethodDescriptor.parse(desc));
 	}
 
 	@Override
@@ -0,0 +1,62 @@
+package cuchaz.enigma;
+
+import com.google.common.cache.CacheStats;
+import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.ClassCacheParameters;
+import org.junit.Test;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestClassCache {
+
+	private static final Path JAR = Paths.get("build/test-obf/translation.jar");
+
+	@Test
+	public void stats() throws Exception {
+		try (ClassCache classCache = ClassCache.of(JAR)) {
+			String name = classCache.getClassNames().iterator().next();
+
+			ClassNode node = classCache.getClassNode(name);
+			assertThat(classCache.getClassNode(name), is(sameInstance(node)));
+
+			CacheStats stats = classCache.getNodeCacheStats();
+			assertThat(stats.missCount(), is(1L));
+			assertThat(stats.hitCount(), is(1L));
+			assertThat(classCache.getSoftNodeCacheStats(), is(nullValue()));
+		}
+	}
+
+	@Test
+	public void evictsByClassSize() throws Exception {
+		// any class outweighs the whole cache, so none of them is kept
+		try (ClassCache classCache = ClassCache.of(JAR, new ClassCacheParameters(1, 0, false))) {
+			String name = classCache.getClassNames().iterator().next();
+
+			ClassNode node = classCache.getClassNode(name);
+			assertThat(classCache.getClassNode(name), is(not(sameInstance(node))));
+
+			CacheStats stats = classCache.getNodeCacheStats();
+			assertThat(stats.missCount(), is(2L));
+			assertThat(stats.evictionCount(), is(2L));
+		}
+	}
+
+	@Test
+	public void softTier() throws Exception {
+		try (ClassCache classCache = ClassCache.of(JAR, new ClassCacheParameters(1, 0, true))) {
+			String name = classCache.getClassNames().iterator().next();
+
+			// evicted from the strong tier, but still softly reachable, so it doesn't have to be parsed again
+			ClassNode node = classCache.getClassNode(name);
+			assertThat(classCache.getClassNode(name), is(sameInstance(node)));
+
+			assertThat(classCache.getNodeCacheStats().evictionCount(), is(2L));
+			assertThat(classCache.getSoftNodeCacheStats().hitCount(), is(1L));
+		}
+	}
+}
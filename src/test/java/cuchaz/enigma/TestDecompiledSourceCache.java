@@ -0,0 +1,141 @@
+package cuchaz.enigma;
+
+import com.google.common.hash.HashCode;
+import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.SourceIndex;
+import cuchaz.enigma.analysis.Token;
+import cuchaz.enigma.source.Decompiler;
+import cuchaz.enigma.source.SourceSettings;
+import cuchaz.enigma.source.procyon.MetadataSharing;
+import cuchaz.enigma.source.procyon.ProcyonDecompiler;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestDecompiledSourceCache {
+
+	private final ClassCache classCache;
+	private final Decompiler decompiler;
+	private final DecompiledSourceCache cache;
+
+	public TestDecompiledSourceCache() throws Exception {
+		classCache = ClassCache.of(Paths.get("build/test-obf/innerClasses.jar"));
+		decompiler = new ProcyonDecompiler(classCache, new SourceSettings(false, false), MetadataSharing.PER_THREAD);
+		cache = new DecompiledSourceCache(Files.createTempDirectory("sources"));
+	}
+
+	@Test
+	public void keys() {
+		HashCode key = DecompiledSourceCache.createKey("test", decompiler, Collections.singleton("a"));
+
+		assertThat(DecompiledSourceCache.createKey("test", decompiler, Collections.singleton("a")), is(key));
+		assertThat(DecompiledSourceCache.createKey("test", decompiler, Collections.singleton("b")), is(not(key)));
+		assertThat(DecompiledSourceCache.createKey("other", decompiler, Collections.singleton("a")), is(not(key)));
+
+		Decompiler otherDecompiler = new ProcyonDecompiler(classCache, new SourceSettings(true, false), MetadataSharing.PER_THREAD);
+		assertThat(DecompiledSourceCache.createKey("test", otherDecompiler, Collections.singleton("a")), is(not(key)));
+	}
+
+	@Test
+	public void sources() {
+		HashCode key = DecompiledSourceCache.createKey("test", decompiler, Collections.singleton("a"));
+		assertThat(cache.getSource(key), is(nullValue()));
+
+		String source = decompiler.getSource("a").asString();
+		cache.putSource(key, source);
+
+		assertThat(cache.getSource(key), is(source));
+	}
+
+	@Test
+	public void index() {
+		SourceIndex index = decompiler.getSource("a").index();
+
+		HashCode key = DecompiledSourceCache.createKey("test", decompiler, Collections.singleton("a"));
+		cache.putIndex(key, index);
+
+		SourceIndex cachedIndex = cache.getIndex(key);
+		assertThat(cachedIndex.getSource(), is(index.getSource()));
+		assertThat(tokens(cachedIndex.referenceTokens()), is(tokens(index.referenceTokens())));
+
+		for (Token token : index.referenceTokens()) {
+			assertThat(cachedIndex.getReference(token), is(index.getReference(token)));
+			assertThat(cachedIndex.getReferenceTokens(index.getReference(token)), is(index.getReferenceTokens(index.getReference(token))));
+		}
+
+		for (Entry<?> declaration : index.declarations()) {
+			assertThat(cachedIndex.getDeclarationToken(declaration), is(index.getDeclarationToken(declaration)));
+		}
+	}
+
+	private static List<Token> tokens(Iterable<Token> tokens) {
+		List<Token> list = new ArrayList<>();
+		tokens.forEach(list::add);
+		return list;
+	}
+
+	@Test
+	public void dependencies() {
+		Map<String, byte[]> classes = new HashMap<>();
+		classes.put("a", createClass("a", "java/lang/Object", cw -> {
+			cw.visitField(Opcodes.ACC_PRIVATE, "a", "Lc;", null, null).visitEnd();
+
+			MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "a", "()V", null, null);
+			mv.visitCode();
+			mv.visitMethodInsn(Opcodes.INVOKESTATIC, "b", "a", "()V", false);
+			mv.visitInsn(Opcodes.RETURN);
+			mv.visitMaxs(0, 1);
+			mv.visitEnd();
+		}));
+		classes.put("b", createClass("b", "d", cw -> {
+		}));
+		classes.put("d", createClass("d", "java/lang/Object", cw -> {
+		}));
+		classes.put("e", createClass("e", "java/lang/Object", cw -> {
+		}));
+
+		// the classes it calls and their ancestors can change the source as well, unrelated classes can't
+		assertThat(DecompiledSourceCache.collectDependencies(Collections.singleton("a"), classes::get),
+				containsInAnyOrder("a", "b", "c", "d", "java/lang/Object"));
+	}
+
+	@Test
+	public void trim() throws Exception {
+		Path directory = Files.createTempDirectory("sources");
+		DecompiledSourceCache cache = new DecompiledSourceCache(directory, 1000);
+
+		HashCode oldKey = DecompiledSourceCache.createKey("test", decompiler, Collections.singleton("a"));
+		HashCode newKey = DecompiledSourceCache.createKey("test", decompiler, Collections.singleton("b"));
+		String source = String.join("", Collections.nCopies(100, "source"));
+
+		cache.putSource(oldKey, source);
+		Thread.sleep(1100);
+		cache.putSource(newKey, source);
+
+		// writing the second source passed a quarter of the maximum size, which trims the least recently used
+		assertThat(cache.getSource(oldKey), is(nullValue()));
+		assertThat(cache.getSource(newKey), is(source));
+	}
+
+	private static byte[] createClass(String name, String superName, java.util.function.Consumer<ClassWriter> members) {
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, superName, null);
+		members.accept(cw);
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+}
@@ -0,0 +1,61 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.MappingDelta;
+import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import org.junit.Test;
+
+import java.util.stream.Collectors;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestDeltaTrackingTree {
+
+	private static final ClassEntry CLASS_A = newClass("a");
+	private static final ClassEntry CLASS_B = newClass("b");
+	private static final FieldEntry FIELD = newField(CLASS_A, "a", "I");
+
+	@Test
+	public void deltaHoldsMappingsBeforeChanges() {
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(CLASS_A, new EntryMapping("First"));
+		mappings.insert(FIELD, new EntryMapping("first"));
+
+		DeltaTrackingTree<EntryMapping> tree = new DeltaTrackingTree<>(mappings);
+		tree.insert(CLASS_A, new EntryMapping("Second"));
+		tree.insert(CLASS_B, new EntryMapping("Other"));
+
+		MappingDelta<EntryMapping> first = tree.takeDelta();
+		assertThat(tree.isDirty(), is(false));
+
+		tree.insert(CLASS_A, new EntryMapping("Third"));
+		tree.remove(FIELD);
+		tree.remove(CLASS_B);
+
+		MappingDelta<EntryMapping> second = tree.takeDelta();
+
+		// changes made after a delta was taken don't show up in it
+		EntryTree<EntryMapping> firstBase = first.getBaseMappings();
+		assertThat(firstBase.get(CLASS_A), is(new EntryMapping("First")));
+		assertThat(firstBase.get(FIELD), is(new EntryMapping("first")));
+		assertThat(firstBase.get(CLASS_B), is(nullValue()));
+		assertThat(firstBase.getAllEntries().collect(Collectors.toSet()), containsInAnyOrder(CLASS_A, FIELD));
+
+		EntryTree<EntryMapping> secondBase = second.getBaseMappings();
+		assertThat(secondBase.get(CLASS_A), is(new EntryMapping("Second")));
+		assertThat(secondBase.get(FIELD), is(new EntryMapping("first")));
+		assertThat(secondBase.get(CLASS_B), is(new EntryMapping("Other")));
+		assertThat(secondBase.getChildren(CLASS_A), contains((Entry<?>) FIELD));
+
+		assertThat(second.getChangedRoots().collect(Collectors.toSet()), containsInAnyOrder(CLASS_A, CLASS_B));
+		assertThat(tree.get(CLASS_A), is(new EntryMapping("Third")));
+		assertThat(tree.get(FIELD), is(nullValue()));
+	}
+}
@@ -11,6 +11,10 @@
 
 package cuchaz.enigma;
 
+import cuchaz.enigma.source.Decompiler;
+import cuchaz.enigma.source.SourceSettings;
+import cuchaz.enigma.source.procyon.MetadataSharing;
+import cuchaz.enigma.source.procyon.ProcyonDecompiler;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -38,4 +42,12 @@ public class TestDeobfuscator {
 
 		sourceProvider.writeSourceToString(sourceProvider.getSources("a"));
 	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void decompileMissingClass() throws Exception {
+		EnigmaProject project = openProject();
+
+		Decompiler decompiler = new ProcyonDecompiler(project.getClassCache(), new SourceSettings(false, false), MetadataSharing.PER_THREAD);
+		decompiler.getSource("missing");
+	}
 }
@@ -0,0 +1,85 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.mapping.tree.FrozenEntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestFrozenEntryTree {
+
+	private static final ClassEntry OUTER = newClass("a");
+	private static final ClassEntry INNER = new ClassEntry(OUTER, "b");
+	private static final MethodEntry METHOD = newMethod(INNER, "a", "(I)V");
+
+	private static final List<Entry<?>> ENTRIES = Arrays.asList(
+			OUTER, INNER, METHOD, new LocalVariableEntry(METHOD, 1, "c", true), newField(OUTER, "a", "I"),
+			newMethod(OUTER, "a", "()V"), newClass("b"), newMethod("b", "a", "()V"), newMethod("c", "a", "()V")
+	);
+
+	private final EntryTree<EntryMapping> tree = new HashEntryTree<>();
+	private final FrozenEntryTree<EntryMapping> frozenTree;
+
+	public TestFrozenEntryTree() {
+		for (int i = 0; i < ENTRIES.size(); i++) {
+			tree.insert(ENTRIES.get(i), new EntryMapping("name" + i));
+		}
+		// leaves class c without a mapping of its own
+		tree.remove(newClass("c"));
+
+		frozenTree = new FrozenEntryTree<>(tree);
+	}
+
+	@Test
+	public void lookups() {
+		for (Entry<?> entry : ENTRIES) {
+			assertThat(frozenTree.get(entry), is(tree.get(entry)));
+			assertThat(frozenTree.contains(entry), is(tree.contains(entry)));
+			assertThat(new HashSet<>(frozenTree.getChildren(entry)), is(new HashSet<>(tree.getChildren(entry))));
+			assertThat(frozenTree.getSiblings(entry), is(tree.getSiblings(entry)));
+		}
+
+		assertThat(frozenTree.get(newClass("c")), is(nullValue()));
+		assertThat(frozenTree.findNode(newClass("c")), is(notNullValue()));
+		assertThat(frozenTree.findNode(newClass("d")), is(nullValue()));
+		assertThat(frozenTree.get(newMethod(INNER, "b", "(I)V")), is(nullValue()));
+	}
+
+	@Test
+	public void iteration() {
+		assertThat(frozenTree.getAllEntries().collect(Collectors.toSet()), is(tree.getAllEntries().collect(Collectors.toSet())));
+		assertThat(frozenTree.getRootNodes().map(EntryTreeNode::getEntry).collect(Collectors.toSet()),
+				is(tree.getRootNodes().map(EntryTreeNode::getEntry).collect(Collectors.toSet())));
+		assertThat(nodes(frozenTree), is(nodes(tree)));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void readOnly() {
+		frozenTree.insert(OUTER, new EntryMapping("c"));
+	}
+
+	private static Map<Entry<?>, Set<Entry<?>>> nodes(EntryTree<EntryMapping> tree) {
+		Map<Entry<?>, Set<Entry<?>>> nodes = new HashMap<>();
+		for (EntryTreeNode<EntryMapping> node : tree) {
+			nodes.put(node.getEntry(), new HashSet<>(node.getChildren()));
+		}
+		return nodes;
+	}
+}
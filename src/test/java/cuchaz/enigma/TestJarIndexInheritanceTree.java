@@ -14,11 +14,14 @@ package cuchaz.enigma;
 import cuchaz.enigma.analysis.ClassCache;
 import cuchaz.enigma.analysis.EntryReference;
 import cuchaz.enigma.analysis.index.EntryIndex;
+import cuchaz.enigma.analysis.index.EntryInterner;
 import cuchaz.enigma.analysis.index.InheritanceIndex;
 import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.translation.mapping.EntryResolver;
 import cuchaz.enigma.translation.mapping.IndexEntryResolver;
 import cuchaz.enigma.translation.representation.AccessFlags;
+import cuchaz.enigma.translation.representation.Signature;
+import cuchaz.enigma.translation.representation.entry.ClassDefEntry;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
 import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
@@ -27,7 +30,9 @@ import org.junit.Test;
 import org.objectweb.asm.Opcodes;
 
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 
 import static cuchaz.enigma.TestEntryFactory.*;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -84,6 +89,72 @@ public class TestJarIndexInheritanceTree {
 		assertThat(index.getChildren(subClassB), is(empty()));
 	}
 
+	@Test
+	public void ancestry() {
+		InheritanceIndex index = this.index.getInheritanceIndex();
+
+		assertThat(index.isAncestor(subClassAA, baseClass), is(true));
+		assertThat(index.isAncestor(subClassAA, subClassA), is(true));
+		assertThat(index.isAncestor(subClassAA, subClassB), is(false));
+		assertThat(index.isAncestor(baseClass, subClassA), is(false));
+		assertThat(index.isAncestor(baseClass, baseClass), is(false));
+
+		assertThat(index.getDescendants(baseClass), containsInAnyOrder(subClassA, subClassAA, subClassB));
+		assertThat(index.getDescendants(subClassAA), is(empty()));
+
+		assertThat(index.computeClassRelation(subClassAA, baseClass), is(InheritanceIndex.Relation.RELATED));
+		assertThat(index.computeClassRelation(subClassB, subClassA), is(InheritanceIndex.Relation.UNRELATED));
+	}
+
+	@Test
+	public void ancestryWithoutClosure() {
+		InheritanceIndex index = this.index.getInheritanceIndex();
+		InheritanceIndex walkingIndex = indexHierarchy(false, baseClass, subClassA, subClassAA, subClassB);
+
+		for (ClassEntry classEntry : Arrays.asList(baseClass, subClassA, subClassAA, subClassB)) {
+			assertThat(walkingIndex.getAncestors(classEntry), is(index.getAncestors(classEntry)));
+			assertThat(new HashSet<>(walkingIndex.getDescendants(classEntry)), is(new HashSet<>(index.getDescendants(classEntry))));
+		}
+		assertThat(walkingIndex.isAncestor(subClassAA, baseClass), is(true));
+		assertThat(walkingIndex.isAncestor(subClassB, subClassA), is(false));
+	}
+
+	@Test
+	public void cycle() {
+		// the closure can't be built over a cycle, so both fall back to walking the hierarchy, which stops where it started
+		InheritanceIndex closureIndex = indexCycle(true);
+		InheritanceIndex walkingIndex = indexCycle(false);
+
+		for (ClassEntry classEntry : Arrays.asList(baseClass, subClassA, subClassAA)) {
+			assertThat(closureIndex.getAncestors(classEntry), containsInAnyOrder(baseClass, subClassA, subClassAA));
+			assertThat(closureIndex.getAncestors(classEntry), is(walkingIndex.getAncestors(classEntry)));
+			assertThat(closureIndex.getDescendants(classEntry), is(walkingIndex.getDescendants(classEntry)));
+			assertThat(closureIndex.isAncestor(classEntry, baseClass), is(walkingIndex.isAncestor(classEntry, baseClass)));
+			assertThat(closureIndex.computeClassRelation(classEntry, subClassB), is(walkingIndex.computeClassRelation(classEntry, subClassB)));
+		}
+	}
+
+	private InheritanceIndex indexCycle(boolean useClosure) {
+		InheritanceIndex index = indexHierarchy(useClosure, baseClass, subClassA, subClassAA);
+		index.indexClass(new ClassDefEntry(baseClass.getFullName(), Signature.createSignature(null), new AccessFlags(0), subClassAA, new ClassEntry[0]));
+		index.processIndex(null);
+		return index;
+	}
+
+	private InheritanceIndex indexHierarchy(boolean useClosure, ClassEntry... classEntries) {
+		EntryIndex entryIndex = new EntryIndex();
+		InheritanceIndex inheritanceIndex = new InheritanceIndex(entryIndex, new EntryInterner(), useClosure);
+		for (ClassEntry classEntry : classEntries) {
+			Collection<ClassEntry> parents = this.index.getInheritanceIndex().getParents(classEntry);
+			ClassDefEntry classDef = new ClassDefEntry(classEntry.getFullName(), Signature.createSignature(null), new AccessFlags(0),
+					parents.isEmpty() ? null : parents.iterator().next(), new ClassEntry[0]);
+			entryIndex.indexClass(classDef);
+			inheritanceIndex.indexClass(classDef);
+		}
+		inheritanceIndex.processIndex(null);
+		return inheritanceIndex;
+	}
+
 	@Test
 	public void access() {
 		assertThat(index.getEntryIndex().getFieldAccess(nameField), is(new AccessFlags(Opcodes.ACC_PRIVATE)));
@@ -0,0 +1,83 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.index.EntryIndex;
+import cuchaz.enigma.analysis.index.InheritanceIndex;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.analysis.index.ReferenceIndex;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.HashSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class TestJarIndexParallel {
+
+	private final JarIndex serialIndex;
+	private final JarIndex parallelIndex;
+
+	public TestJarIndexParallel() throws Exception {
+		ClassCache classCache = ClassCache.of(Paths.get("build/test-obf/translation.jar"));
+
+		serialIndex = JarIndex.empty();
+		serialIndex.indexJar(classCache, ProgressListener.none(), false);
+
+		parallelIndex = JarIndex.empty();
+		parallelIndex.indexJar(classCache, ProgressListener.none(), true);
+	}
+
+	@Test
+	public void entries() {
+		EntryIndex serial = serialIndex.getEntryIndex();
+		EntryIndex parallel = parallelIndex.getEntryIndex();
+
+		assertThat(new HashSet<>(parallel.getClasses()), is(new HashSet<>(serial.getClasses())));
+		assertThat(new HashSet<>(parallel.getFields()), is(new HashSet<>(serial.getFields())));
+		assertThat(new HashSet<>(parallel.getMethods()), is(new HashSet<>(serial.getMethods())));
+
+		for (MethodEntry method : serial.getMethods()) {
+			assertThat(parallel.getMethodAccess(method), is(serial.getMethodAccess(method)));
+		}
+	}
+
+	@Test
+	public void inheritance() {
+		InheritanceIndex serial = serialIndex.getInheritanceIndex();
+		InheritanceIndex parallel = parallelIndex.getInheritanceIndex();
+
+		for (ClassEntry classEntry : serialIndex.getEntryIndex().getClasses()) {
+			assertThat(new HashSet<>(parallel.getParents(classEntry)), is(new HashSet<>(serial.getParents(classEntry))));
+			assertThat(new HashSet<>(parallel.getChildren(classEntry)), is(new HashSet<>(serial.getChildren(classEntry))));
+		}
+	}
+
+	@Test
+	public void references() {
+		ReferenceIndex serial = serialIndex.getReferenceIndex();
+		ReferenceIndex parallel = parallelIndex.getReferenceIndex();
+
+		for (MethodEntry method : serialIndex.getEntryIndex().getMethods()) {
+			assertThat(new HashSet<>(parallel.getReferencesToMethod(method)), is(new HashSet<>(serial.getReferencesToMethod(method))));
+			assertThat(new HashSet<>(parallel.getMethodsReferencedBy(method)), is(new HashSet<>(serial.getMethodsReferencedBy(method))));
+		}
+
+		for (FieldEntry field : serialIndex.getEntryIndex().getFields()) {
+			assertThat(new HashSet<>(parallel.getReferencesToField(field)), is(new HashSet<>(serial.getReferencesToField(field))));
+		}
+
+		for (ClassEntry classEntry : serialIndex.getEntryIndex().getClasses()) {
+			assertThat(new HashSet<>(parallel.getReferencesToClass(classEntry)), is(new HashSet<>(serial.getReferencesToClass(classEntry))));
+			assertThat(new HashSet<>(parallel.getMethodTypeReferencesToClass(classEntry)), is(new HashSet<>(serial.getMethodTypeReferencesToClass(classEntry))));
+		}
+	}
+
+	@Test
+	public void bridgeMethods() {
+		assertThat(parallelIndex.getBridgeMethodIndex().getSpecializedToBridge(), is(serialIndex.getBridgeMethodIndex().getSpecializedToBridge()));
+	}
+}
@@ -0,0 +1,145 @@
+package cuchaz.enigma;
+
+import com.google.common.io.ByteStreams;
+import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestJarIndexReload {
+
+	private final ClassCache previousClassCache;
+	private final ClassCache classCache;
+
+	private final JarIndex index;
+	private final JarIndex reloadedIndex;
+	private final Set<String> changedClasses;
+
+	public TestJarIndexReload() throws Exception {
+		// both jars are obfuscated to the same short names, so most classes are replaced rather than added
+		previousClassCache = ClassCache.of(Paths.get("build/test-obf/inheritanceTree.jar"));
+		classCache = ClassCache.of(Paths.get("build/test-obf/translation.jar"));
+
+		index = classCache.index(ProgressListener.none());
+
+		reloadedIndex = previousClassCache.index(ProgressListener.none());
+		changedClasses = classCache.getChangedClasses(previousClassCache);
+		reloadedIndex.reindexClasses(classCache, changedClasses, ProgressListener.none());
+	}
+
+	@Test
+	public void changedClasses() {
+		assertThat(changedClasses, hasItems("a", "b", "c", "d"));
+		assertThat(changedClasses, not(hasItem("cuchaz/enigma/inputs/Keep")));
+		assertThat(classCache.getChangedClasses(classCache), is(empty()));
+	}
+
+	@Test
+	public void entries() {
+		assertThat(new HashSet<>(reloadedIndex.getEntryIndex().getClasses()), is(new HashSet<>(index.getEntryIndex().getClasses())));
+		assertThat(new HashSet<>(reloadedIndex.getEntryIndex().getFields()), is(new HashSet<>(index.getEntryIndex().getFields())));
+		assertThat(new HashSet<>(reloadedIndex.getEntryIndex().getMethods()), is(new HashSet<>(index.getEntryIndex().getMethods())));
+
+		for (MethodEntry method : index.getEntryIndex().getMethods()) {
+			assertThat(reloadedIndex.getEntryIndex().getMethodAccess(method), is(index.getEntryIndex().getMethodAccess(method)));
+		}
+	}
+
+	@Test
+	public void references() {
+		for (MethodEntry method : index.getEntryIndex().getMethods()) {
+			assertThat(new HashSet<>(reloadedIndex.getReferenceIndex().getReferencesToMethod(method)), is(new HashSet<>(index.getReferenceIndex().getReferencesToMethod(method))));
+			assertThat(new HashSet<>(reloadedIndex.getReferenceIndex().getMethodsReferencedBy(method)), is(new HashSet<>(index.getReferenceIndex().getMethodsReferencedBy(method))));
+			assertThat(reloadedIndex.getEntryResolver().resolveEquivalentMethods(method), is(index.getEntryResolver().resolveEquivalentMethods(method)));
+		}
+
+		for (FieldEntry field : index.getEntryIndex().getFields()) {
+			assertThat(new HashSet<>(reloadedIndex.getReferenceIndex().getReferencesToField(field)), is(new HashSet<>(index.getReferenceIndex().getReferencesToField(field))));
+		}
+
+		for (ClassEntry classEntry : index.getEntryIndex().getClasses()) {
+			assertThat(reloadedIndex.getInheritanceIndex().getAncestors(classEntry), is(index.getInheritanceIndex().getAncestors(classEntry)));
+			assertThat(new HashSet<>(reloadedIndex.getInheritanceIndex().getChildren(classEntry)), is(new HashSet<>(index.getInheritanceIndex().getChildren(classEntry))));
+			assertThat(new HashSet<>(reloadedIndex.getReferenceIndex().getReferencesToClass(classEntry)), is(new HashSet<>(index.getReferenceIndex().getReferencesToClass(classEntry))));
+			assertThat(reloadedIndex.getPackageVisibilityIndex().getPartition(classEntry), is(index.getPackageVisibilityIndex().getPartition(classEntry)));
+		}
+
+		assertThat(reloadedIndex.getBridgeMethodIndex().getSpecializedToBridge(), is(index.getBridgeMethodIndex().getSpecializedToBridge()));
+	}
+
+	@Test
+	public void failedReload() throws Exception {
+		Path previousJar = Paths.get("build/test-obf/inheritanceTree.jar");
+		ClassCache projectClassCache = ClassCache.of(previousJar);
+		EnigmaProject project = new EnigmaProject(Enigma.create(), projectClassCache, projectClassCache.index(ProgressListener.none()));
+
+		// drops a class, then fails on one that implements itself, once the old versions are gone from the index
+		Path reloadedJar = Files.createTempDirectory("reload").resolve("reloaded.jar");
+		try (ZipInputStream in = new ZipInputStream(Files.newInputStream(previousJar));
+			 ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(reloadedJar))) {
+			ZipEntry entry;
+			while ((entry = in.getNextEntry()) != null) {
+				if (!entry.getName().equals("d.class")) {
+					out.putNextEntry(new ZipEntry(entry.getName()));
+					ByteStreams.copy(in, out);
+					out.closeEntry();
+				}
+			}
+
+			ClassWriter writer = new ClassWriter(0);
+			writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT, "z", null, "java/lang/Object", new String[]{"z"});
+			writer.visitEnd();
+
+			out.putNextEntry(new ZipEntry("z.class"));
+			out.write(writer.toByteArray());
+			out.closeEntry();
+		}
+
+		try {
+			project.reloadJar(reloadedJar, ProgressListener.none());
+			throw new AssertionError("The reload didn't fail");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		// the project is left with the jar and the index it had
+		assertThat(project.getClassCache(), is(sameInstance(projectClassCache)));
+		assertSameIndex(project.getJarIndex(), previousClassCache.index(ProgressListener.none()));
+	}
+
+	private static void assertSameIndex(JarIndex index, JarIndex expectedIndex) {
+		assertThat(new HashSet<>(index.getEntryIndex().getClasses()), is(new HashSet<>(expectedIndex.getEntryIndex().getClasses())));
+		assertThat(new HashSet<>(index.getEntryIndex().getFields()), is(new HashSet<>(expectedIndex.getEntryIndex().getFields())));
+		assertThat(new HashSet<>(index.getEntryIndex().getMethods()), is(new HashSet<>(expectedIndex.getEntryIndex().getMethods())));
+
+		for (MethodEntry method : expectedIndex.getEntryIndex().getMethods()) {
+			assertThat(new HashSet<>(index.getReferenceIndex().getReferencesToMethod(method)), is(new HashSet<>(expectedIndex.getReferenceIndex().getReferencesToMethod(method))));
+			assertThat(index.getEntryResolver().resolveEquivalentMethods(method), is(expectedIndex.getEntryResolver().resolveEquivalentMethods(method)));
+		}
+
+		for (ClassEntry classEntry : expectedIndex.getEntryIndex().getClasses()) {
+			assertThat(index.getInheritanceIndex().getAncestors(classEntry), is(expectedIndex.getInheritanceIndex().getAncestors(classEntry)));
+			assertThat(new HashSet<>(index.getInheritanceIndex().getChildren(classEntry)), is(new HashSet<>(expectedIndex.getInheritanceIndex().getChildren(classEntry))));
+			assertThat(new HashSet<>(index.getReferenceIndex().getReferencesToClass(classEntry)), is(new HashSet<>(expectedIndex.getReferenceIndex().getReferencesToClass(classEntry))));
+			assertThat(index.getPackageVisibilityIndex().getPartition(classEntry), is(expectedIndex.getPackageVisibilityIndex().getPartition(classEntry)));
+		}
+
+		assertThat(index.getBridgeMethodIndex().getSpecializedToBridge(), is(expectedIndex.getBridgeMethodIndex().getSpecializedToBridge()));
+	}
+}
@@ -0,0 +1,90 @@
+package cuchaz.enigma;
+
+import com.google.common.hash.HashCode;
+import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.EntryReference;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.analysis.index.JarIndexSnapshot;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestJarIndexSnapshot {
+
+	private static final Path JAR = Paths.get("build/test-obf/translation.jar");
+
+	private final JarIndex index;
+	private final JarIndex snapshotIndex;
+
+	public TestJarIndexSnapshot() throws Exception {
+		ClassCache classCache = ClassCache.of(JAR);
+		index = classCache.index(ProgressListener.none());
+
+		HashCode jarHash = JarIndexSnapshot.hashJar(JAR);
+		Path snapshotPath = Files.createTempFile("enigma", ".index");
+		snapshotPath.toFile().deleteOnExit();
+
+		JarIndexSnapshot.write(index, snapshotPath, jarHash);
+		snapshotIndex = JarIndexSnapshot.read(snapshotPath, jarHash);
+	}
+
+	@Test
+	public void entries() {
+		assertThat(snapshotIndex, is(notNullValue()));
+		assertThat(new HashSet<>(snapshotIndex.getEntryIndex().getClasses()), is(new HashSet<>(index.getEntryIndex().getClasses())));
+		assertThat(new HashSet<>(snapshotIndex.getEntryIndex().getFields()), is(new HashSet<>(index.getEntryIndex().getFields())));
+		assertThat(new HashSet<>(snapshotIndex.getEntryIndex().getMethods()), is(new HashSet<>(index.getEntryIndex().getMethods())));
+
+		for (MethodEntry method : index.getEntryIndex().getMethods()) {
+			assertThat(snapshotIndex.getEntryIndex().getMethodAccess(method), is(index.getEntryIndex().getMethodAccess(method)));
+			assertThat(((MethodDefEntry) method).getSignature(), is(find(snapshotIndex, method).getSignature()));
+		}
+	}
+
+	@Test
+	public void references() {
+		for (MethodEntry method : index.getEntryIndex().getMethods()) {
+			assertThat(new HashSet<>(snapshotIndex.getReferenceIndex().getReferencesToMethod(method)), is(new HashSet<>(index.getReferenceIndex().getReferencesToMethod(method))));
+			assertThat(new HashSet<>(snapshotIndex.getReferenceIndex().getMethodsReferencedBy(method)), is(new HashSet<>(index.getReferenceIndex().getMethodsReferencedBy(method))));
+
+			for (EntryReference<MethodEntry, MethodDefEntry> reference : index.getReferenceIndex().getReferencesToMethod(method)) {
+				EntryReference<MethodEntry, MethodDefEntry> snapshotReference = snapshotIndex.getReferenceIndex().getReferencesToMethod(method).stream()
+						.filter(reference::equals)
+						.findFirst().orElseThrow(AssertionError::new);
+				assertThat(snapshotReference.isNamed(), is(reference.isNamed()));
+			}
+		}
+
+		for (ClassEntry classEntry : index.getEntryIndex().getClasses()) {
+			assertThat(new HashSet<>(snapshotIndex.getInheritanceIndex().getChildren(classEntry)), is(new HashSet<>(index.getInheritanceIndex().getChildren(classEntry))));
+			assertThat(new HashSet<>(snapshotIndex.getReferenceIndex().getReferencesToClass(classEntry)), is(new HashSet<>(index.getReferenceIndex().getReferencesToClass(classEntry))));
+			assertThat(snapshotIndex.getPackageVisibilityIndex().getPartition(classEntry), is(index.getPackageVisibilityIndex().getPartition(classEntry)));
+		}
+
+		assertThat(snapshotIndex.getBridgeMethodIndex().getSpecializedToBridge(), is(index.getBridgeMethodIndex().getSpecializedToBridge()));
+	}
+
+	@Test
+	public void staleSnapshot() throws Exception {
+		Path snapshotPath = Files.createTempFile("enigma", ".index");
+		snapshotPath.toFile().deleteOnExit();
+
+		JarIndexSnapshot.write(index, snapshotPath, HashCode.fromInt(0));
+		assertThat(JarIndexSnapshot.read(snapshotPath, JarIndexSnapshot.hashJar(JAR)), is(nullValue()));
+	}
+
+	private static MethodDefEntry find(JarIndex index, MethodEntry method) {
+		return (MethodDefEntry) index.getEntryIndex().getMethods().stream()
+				.filter(method::equals)
+				.findFirst().orElseThrow(AssertionError::new);
+	}
+}
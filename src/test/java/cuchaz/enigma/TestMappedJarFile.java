@@ -0,0 +1,88 @@
+package cuchaz.enigma;
+
+import com.google.common.io.ByteStreams;
+import cuchaz.enigma.analysis.MappedJarFile;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class TestMappedJarFile {
+
+	private static final Path JAR = Paths.get("build/test-obf/translation.jar");
+
+	@Test
+	public void matchesZipFile() throws Exception {
+		try (MappedJarFile jar = MappedJarFile.open(JAR); ZipFile zip = new ZipFile(JAR.toFile())) {
+			int fileCount = 0;
+			for (ZipEntry zipEntry : Collections.list(zip.entries())) {
+				if (zipEntry.isDirectory()) {
+					continue;
+				}
+				fileCount++;
+
+				byte[] expected;
+				try (InputStream in = zip.getInputStream(zipEntry)) {
+					expected = ByteStreams.toByteArray(in);
+				}
+
+				MappedJarFile.JarEntry entry = jar.getEntry(zipEntry.getName());
+				assertThat(entry.getCrc(), is((int) zipEntry.getCrc()));
+				assertThat(jar.read(entry), is(expected));
+
+				CRC32 crc = new CRC32();
+				crc.update(expected);
+				assertThat((int) crc.getValue(), is(entry.getCrc()));
+			}
+
+			assertThat(jar.getEntries().size(), is(fileCount));
+		}
+	}
+
+	@Test
+	public void ignoresWrappedEntryCount() throws Exception {
+		Path path = Files.createTempFile("enigma", ".jar");
+		path.toFile().deleteOnExit();
+
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(path))) {
+			for (int i = 0; i < 3; i++) {
+				out.putNextEntry(new ZipEntry("entry" + i));
+				out.write(("content" + i).getBytes(StandardCharsets.UTF_8));
+				out.closeEntry();
+			}
+		}
+
+		// what the count of a jar with 65536 entries more than it says looks like, without a zip64 end record
+		byte[] bytes = Files.readAllBytes(path);
+		int end = bytes.length - 22;
+		bytes[end + 8] = bytes[end + 10] = 1;
+		bytes[end + 9] = bytes[end + 11] = 0;
+		Files.write(path, bytes);
+
+		try (MappedJarFile jar = MappedJarFile.open(path)) {
+			assertThat(jar.getEntries().size(), is(3));
+			assertThat(new String(jar.read("entry2"), StandardCharsets.UTF_8), is("content2"));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void closed() throws Exception {
+		MappedJarFile jar = MappedJarFile.open(JAR);
+		MappedJarFile.JarEntry entry = jar.getEntries().values().iterator().next();
+		jar.close();
+
+		jar.read(entry);
+	}
+}
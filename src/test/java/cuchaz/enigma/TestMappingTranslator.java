@@ -0,0 +1,74 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.Signature;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+
+import static cuchaz.enigma.TestEntryFactory.newClass;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class TestMappingTranslator {
+
+	private static final TypeDescriptor TYPE = new TypeDescriptor("La;");
+	private static final MethodDescriptor METHOD_DESCRIPTOR = new MethodDescriptor("(La;)Lb;");
+	private static final Signature SIGNATURE = Signature.createTypedSignature("Ljava/util/List<La;>;");
+
+	private final EnigmaProject project;
+
+	public TestMappingTranslator() throws Exception {
+		project = Enigma.create().openJar(Paths.get("build/test-obf/translation.jar"), ProgressListener.none());
+	}
+
+	@Test
+	public void renamingClassInvalidates() {
+		EntryRemapper mapper = project.getMapper();
+
+		// translated once before the rename, so that the unmapped translations are cached
+		assertTranslations(mapper, "La;", "(La;)Lb;", "Ljava/util/List<La;>;");
+
+		mapper.mapFromObf(newClass("a"), new EntryMapping("deobf/A"));
+		assertTranslations(mapper, "Ldeobf/A;", "(Ldeobf/A;)Lb;", "Ljava/util/List<Ldeobf/A;>;");
+
+		mapper.mapFromObf(newClass("a"), new EntryMapping("deobf/Renamed"));
+		assertTranslations(mapper, "Ldeobf/Renamed;", "(Ldeobf/Renamed;)Lb;", "Ljava/util/List<Ldeobf/Renamed;>;");
+	}
+
+	@Test
+	public void removingClassInvalidates() {
+		EntryRemapper mapper = project.getMapper();
+
+		mapper.mapFromObf(newClass("a"), new EntryMapping("deobf/A"));
+		assertTranslations(mapper, "Ldeobf/A;", "(Ldeobf/A;)Lb;", "Ljava/util/List<Ldeobf/A;>;");
+
+		mapper.removeByObf(newClass("a"));
+		assertTranslations(mapper, "La;", "(La;)Lb;", "Ljava/util/List<La;>;");
+	}
+
+	@Test
+	public void droppingMappingsInvalidates() {
+		// a class that isn't in the jar, so its mapping is dropped
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(newClass("missing"), new EntryMapping("deobf/Missing"));
+		project.setMappings(mappings);
+
+		EntryRemapper mapper = project.getMapper();
+		assertThat(mapper.deobfuscate(new TypeDescriptor("Lmissing;")).toString(), is("Ldeobf/Missing;"));
+
+		project.dropMappings(ProgressListener.none());
+		assertThat(mapper.deobfuscate(new TypeDescriptor("Lmissing;")).toString(), is("Lmissing;"));
+	}
+
+	private static void assertTranslations(EntryRemapper mapper, String type, String methodDescriptor, String signature) {
+		assertThat(mapper.deobfuscate(TYPE).toString(), is(type));
+		assertThat(mapper.deobfuscate(METHOD_DESCRIPTOR).toString(), is(methodDescriptor));
+		assertThat(mapper.deobfuscate(SIGNATURE).getSignature(), is(signature));
+	}
+}
@@ -0,0 +1,312 @@
+package cuchaz.enigma;
+
+import com.google.common.base.Throwables;
+import com.google.common.hash.Hasher;
+import cuchaz.enigma.analysis.SourceIndex;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.api.service.DecompilerService;
+import cuchaz.enigma.source.Decompiler;
+import cuchaz.enigma.source.Source;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestSourceExport {
+
+	// more classes than fit into the queue between decompiling and writing
+	private static final int CLASS_COUNT = 200;
+
+	@Test(timeout = 60000)
+	public void writesEveryClass() throws Exception {
+		Path root = Files.createTempDirectory("sources");
+
+		export(name -> source(name)).decompile(ProgressListener.none()).write(root, ProgressListener.none());
+
+		for (int i = 0; i < CLASS_COUNT; i++) {
+			assertThat(readSource(root, "p/c" + i), is(source("p/c" + i)));
+		}
+		assertThat(SourceManifest.read(root).getClassNames(), hasSize(CLASS_COUNT));
+	}
+
+	@Test(timeout = 60000)
+	public void stopsAfterWriteFailure() throws Exception {
+		Path root = Files.createTempDirectory("sources");
+
+		// the package can't be created, so the first class to be written fails
+		Files.createFile(root.resolve("p"));
+
+		AtomicInteger decompiled = new AtomicInteger();
+		EnigmaProject.JarExport export = export(name -> {
+			decompiled.incrementAndGet();
+			sleep(5);
+			return source(name);
+		});
+
+		try {
+			export.decompile(ProgressListener.none()).write(root, ProgressListener.none());
+			throw new AssertionError("The export didn't fail");
+		} catch (IOException e) {
+			// expected
+		}
+
+		assertThat(decompiled.get(), is(lessThan(CLASS_COUNT)));
+		assertThat(Files.exists(root.resolve(SourceManifest.FILE_NAME)), is(false));
+	}
+
+	@Test(timeout = 60000)
+	public void stopsAfterDecompileFailure() throws Exception {
+		Path root = Files.createTempDirectory("sources");
+
+		EnigmaProject.JarExport export = export(name -> {
+			if (name.equals("p/c10")) {
+				throw new IllegalStateException("Failed to decompile " + name);
+			}
+			return source(name);
+		});
+
+		try {
+			export.decompile(ProgressListener.none()).write(root, ProgressListener.none());
+			throw new AssertionError("The export didn't fail");
+		} catch (IllegalStateException e) {
+			// rethrown from another thread, it may be wrapped in a copy of itself
+			assertThat(Throwables.getRootCause(e).getMessage(), is("Failed to decompile p/c10"));
+		}
+
+		assertThat(Files.exists(root.resolve(SourceManifest.FILE_NAME)), is(false));
+	}
+
+	@Test(timeout = 60000)
+	public void stopsAfterDecompileError() throws Exception {
+		Path root = Files.createTempDirectory("sources");
+
+		EnigmaProject.JarExport export = export(name -> {
+			throw new AssertionError("Failed to decompile " + name);
+		});
+
+		try {
+			export.decompile(ProgressListener.none()).write(root, ProgressListener.none());
+			throw new AssertionError("The export didn't fail");
+		} catch (AssertionError e) {
+			assertThat(Throwables.getRootCause(e).getMessage(), startsWith("Failed to decompile"));
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void stopsWhenInterrupted() throws Exception {
+		Path root = Files.createTempDirectory("sources");
+
+		Thread exportThread = Thread.currentThread();
+		EnigmaProject.JarExport export = export(name -> {
+			if (name.equals("p/c0")) {
+				exportThread.interrupt();
+			}
+			sleep(5);
+			return source(name);
+		});
+
+		AtomicReference<Boolean> interrupted = new AtomicReference<>();
+		try {
+			export.decompile(ProgressListener.none()).write(root, ProgressListener.none());
+			throw new AssertionError("The export wasn't interrupted");
+		} catch (InterruptedIOException e) {
+			// the interrupt is passed on to whoever called the export
+			interrupted.set(Thread.interrupted());
+		}
+
+		assertThat(interrupted.get(), is(true));
+		assertThat(Files.exists(root.resolve(SourceManifest.FILE_NAME)), is(false));
+	}
+
+	@Test
+	public void skipsUnchangedClasses() throws Exception {
+		Path root = Files.createTempDirectory("sources");
+		List<String> classNames = Arrays.asList("p/a", "p/b");
+
+		exportIncrementally(root, classNames, TestSourceExport::source);
+
+		AtomicInteger decompiled = new AtomicInteger();
+		exportIncrementally(root, classNames, name -> {
+			decompiled.incrementAndGet();
+			return source(name);
+		});
+
+		assertThat(decompiled.get(), is(0));
+		assertThat(readSource(root, "p/a"), is(source("p/a")));
+
+		// a file that was edited since is exported again
+		Files.write(root.resolve("p/b.java"), "edited".getBytes(StandardCharsets.UTF_8));
+		exportIncrementally(root, classNames, name -> {
+			decompiled.incrementAndGet();
+			return source(name);
+		});
+
+		assertThat(decompiled.get(), is(1));
+		assertThat(readSource(root, "p/b"), is(source("p/b")));
+	}
+
+	@Test
+	public void deletesRemovedClasses() throws Exception {
+		Path root = Files.createTempDirectory("sources");
+
+		exportIncrementally(root, Arrays.asList("p/a", "p/b", "q/c"), TestSourceExport::source);
+		exportIncrementally(root, Arrays.asList("p/a", "p/renamed"), TestSourceExport::source);
+
+		assertThat(Files.exists(root.resolve("p/a.java")), is(true));
+		assertThat(Files.exists(root.resolve("p/renamed.java")), is(true));
+		assertThat(Files.exists(root.resolve("p/b.java")), is(false));
+
+		// no empty package is left behind
+		assertThat(Files.exists(root.resolve("q")), is(false));
+		assertThat(SourceManifest.read(root).getClassNames(), containsInAnyOrder("p/a", "p/renamed"));
+	}
+
+	@Test
+	public void keepsUnlistedFiles() throws Exception {
+		Path root = Files.createTempDirectory("sources");
+
+		Files.createDirectories(root.resolve("q"));
+		Files.write(root.resolve("q/Other.java"), "other".getBytes(StandardCharsets.UTF_8));
+		Files.write(root.resolve("notes.txt"), "notes".getBytes(StandardCharsets.UTF_8));
+
+		exportIncrementally(root, Arrays.asList("p/a", "q/b"), TestSourceExport::source);
+		exportIncrementally(root, Collections.singletonList("p/a"), TestSourceExport::source);
+
+		assertThat(Files.exists(root.resolve("q/b.java")), is(false));
+		assertThat(Files.exists(root.resolve("q/Other.java")), is(true));
+		assertThat(Files.exists(root.resolve("notes.txt")), is(true));
+	}
+
+	@Test
+	public void ignoresUnreadableManifests() throws Exception {
+		Path root = Files.createTempDirectory("sources");
+		List<String> classNames = Arrays.asList("p/a", "p/b");
+
+		exportIncrementally(root, classNames, TestSourceExport::source);
+		Path manifestPath = root.resolve(SourceManifest.FILE_NAME);
+		List<String> manifestLines = Files.readAllLines(manifestPath);
+
+		// a manifest in an older format, then one that is corrupt, are both treated as no manifest at all
+		List<String> oldFormat = new ArrayList<>(manifestLines);
+		oldFormat.set(0, "enigma-sources 0");
+		List<String> corrupt = new ArrayList<>(manifestLines);
+		corrupt.add("p/c\tnot a hash\tnot a hash");
+
+		for (List<String> lines : Arrays.asList(oldFormat, corrupt)) {
+			Files.write(manifestPath, lines);
+
+			AtomicInteger decompiled = new AtomicInteger();
+			exportIncrementally(root, classNames, name -> {
+				decompiled.incrementAndGet();
+				return source(name);
+			});
+
+			assertThat(decompiled.get(), is(classNames.size()));
+			assertThat(Files.readAllLines(manifestPath), is(manifestLines));
+		}
+	}
+
+	@Test
+	public void fullExportDeletesNothing() throws Exception {
+		Path root = Files.createTempDirectory("sources");
+
+		exportIncrementally(root, Arrays.asList("p/a", "p/b"), TestSourceExport::source);
+		export(Collections.singletonList("p/a"), TestSourceExport::source).decompile(ProgressListener.none()).write(root, ProgressListener.none());
+
+		assertThat(Files.exists(root.resolve("p/b.java")), is(true));
+		assertThat(SourceManifest.read(root).getClassNames(), contains("p/a"));
+	}
+
+	private static void exportIncrementally(Path root, Collection<String> classNames, Function<String, String> decompiler) throws IOException {
+		export(classNames, decompiler).decompileIncrementally(root, ProgressListener.none()).write(root, ProgressListener.none());
+	}
+
+	private static EnigmaProject.JarExport export(Function<String, String> decompiler) {
+		List<String> classNames = new ArrayList<>();
+		for (int i = 0; i < CLASS_COUNT; i++) {
+			classNames.add("p/c" + i);
+		}
+		return export(classNames, decompiler);
+	}
+
+	private static EnigmaProject.JarExport export(Collection<String> classNames, Function<String, String> decompiler) {
+		Map<String, byte[]> compiled = new HashMap<>();
+		for (String name : classNames) {
+			ClassWriter writer = new ClassWriter(0);
+			writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, "java/lang/Object", null);
+			writer.visitEnd();
+
+			compiled.put(name, writer.toByteArray());
+		}
+
+		DecompilerService service = (classes, settings) -> new StubDecompiler(decompiler);
+		return new EnigmaProject.JarExport(JarIndex.empty(), compiled, null, service);
+	}
+
+	static String source(String name) {
+		return "class " + name.replace('/', '.') + " {}\n";
+	}
+
+	static String readSource(Path root, String name) throws IOException {
+		return new String(Files.readAllBytes(root.resolve(name + ".java")), StandardCharsets.UTF_8);
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Interrupted while decompiling");
+		}
+	}
+
+	private static final class StubDecompiler implements Decompiler {
+		private final Function<String, String> decompiler;
+
+		StubDecompiler(Function<String, String> decompiler) {
+			this.decompiler = decompiler;
+		}
+
+		@Override
+		public Source getSource(String className) {
+			String source = decompiler.apply(className);
+			return new Source() {
+				@Override
+				public String asString() {
+					return source;
+				}
+
+				@Override
+				public SourceIndex index() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public void hashInputs(Hasher hasher, Collection<String> classNames) {
+			for (String className : classNames) {
+				hasher.putString(className, StandardCharsets.UTF_8);
+			}
+		}
+	}
+}
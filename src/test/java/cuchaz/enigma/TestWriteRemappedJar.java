@@ -0,0 +1,137 @@
+package cuchaz.enigma;
+
+import com.google.common.io.ByteStreams;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static cuchaz.enigma.TestEntryFactory.newClass;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestWriteRemappedJar {
+
+	// more classes than are translated at once, so that the output has to be put back in order
+	private static final int CLASS_COUNT = Runtime.getRuntime().availableProcessors() * 16;
+
+	@Test
+	public void keepsOrder() throws Exception {
+		Path jar = createJar();
+		EnigmaProject project = Enigma.create().openJar(jar, ProgressListener.none());
+
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(newClass("c1"), new EntryMapping("renamed/One"));
+		project.setMappings(mappings);
+
+		Path output = jar.resolveSibling("output.jar");
+		project.writeRemappedJar(output, ProgressListener.none());
+
+		List<String> expectedNames = new ArrayList<>();
+		expectedNames.add("META-INF/MANIFEST.MF");
+		expectedNames.add("META-INF/sub/NESTED.SF");
+		for (int i = CLASS_COUNT - 1; i >= 0; i--) {
+			expectedNames.add(i == 1 ? "renamed/One.class" : "c" + i + ".class");
+			expectedNames.add("r" + i + ".txt");
+		}
+
+		Map<String, byte[]> entries = readJar(output);
+		assertThat(new ArrayList<>(entries.keySet()), is(expectedNames));
+
+		assertThat(new ClassReader(entries.get("renamed/One.class")).getClassName(), is("renamed/One"));
+		assertThat(new ClassReader(entries.get("c2.class")).getClassName(), is("c2"));
+		assertThat(new String(entries.get("r2.txt"), StandardCharsets.UTF_8), is("resource 2"));
+	}
+
+	@Test
+	public void stripsSignatures() throws Exception {
+		Path jar = createJar();
+		EnigmaProject project = Enigma.create().openJar(jar, ProgressListener.none());
+
+		Path output = jar.resolveSibling("output.jar");
+		project.writeRemappedJar(output, ProgressListener.none());
+
+		// only the signature files of the jar itself, which lie directly in META-INF, are dropped
+		Map<String, byte[]> entries = readJar(output);
+		assertThat(entries.keySet(), hasItems("META-INF/MANIFEST.MF", "META-INF/sub/NESTED.SF"));
+		assertThat(entries.keySet(), not(hasItem("META-INF/TEST.SF")));
+		assertThat(entries.keySet(), not(hasItem("META-INF/TEST.RSA")));
+		assertThat(entries.keySet(), not(hasItem("META-INF/test.dsa")));
+	}
+
+	@Test
+	public void rejectsCollisions() throws Exception {
+		Path jar = createJar();
+		EnigmaProject project = Enigma.create().openJar(jar, ProgressListener.none());
+
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(newClass("c1"), new EntryMapping("c2"));
+		project.setMappings(mappings);
+
+		Path output = jar.resolveSibling("output.jar");
+		try {
+			project.writeRemappedJar(output, ProgressListener.none());
+			throw new AssertionError("Colliding classes were written");
+		} catch (IllegalStateException e) {
+			assertThat(e.getMessage(), containsString("c2.class"));
+		}
+
+		assertThat(Files.exists(output), is(false));
+	}
+
+	private static Path createJar() throws IOException {
+		Path jar = Files.createTempDirectory("remapped").resolve("input.jar");
+
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+			putEntry(out, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+			putEntry(out, "META-INF/TEST.SF", new byte[0]);
+			putEntry(out, "META-INF/TEST.RSA", new byte[0]);
+			putEntry(out, "META-INF/test.dsa", new byte[0]);
+			putEntry(out, "META-INF/sub/NESTED.SF", new byte[0]);
+
+			for (int i = CLASS_COUNT - 1; i >= 0; i--) {
+				ClassWriter writer = new ClassWriter(0);
+				writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, "c" + i, null, "java/lang/Object", null);
+				writer.visitEnd();
+
+				putEntry(out, "c" + i + ".class", writer.toByteArray());
+				putEntry(out, "r" + i + ".txt", ("resource " + i).getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		return jar;
+	}
+
+	private static void putEntry(ZipOutputStream out, String name, byte[] bytes) throws IOException {
+		out.putNextEntry(new ZipEntry(name));
+		out.write(bytes);
+		out.closeEntry();
+	}
+
+	private static Map<String, byte[]> readJar(Path jar) throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		try (InputStream in = Files.newInputStream(jar); ZipInputStream zip = new ZipInputStream(in)) {
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null) {
+				entries.put(entry.getName(), ByteStreams.toByteArray(zip));
+			}
+		}
+		return entries;
+	}
+}
@@ -0,0 +1,142 @@
+package cuchaz.enigma.gui;
+
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static cuchaz.enigma.TestEntryFactory.newClass;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class TestDecompileScheduler {
+
+	private static final ClassEntry CLASS_A = newClass("a");
+	private static final ClassEntry CLASS_B = newClass("b");
+
+	@Test
+	public void supersedesPendingRequest() throws Exception {
+		DecompileScheduler scheduler = new DecompileScheduler();
+
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicBoolean firstInterrupted = new AtomicBoolean();
+		scheduler.submit(CLASS_A, () -> {
+			started.countDown();
+			awaitUninterruptibly(release, firstInterrupted);
+		});
+		started.await();
+
+		// requests for the class already running wait for it, and the newest of them replaces the others
+		AtomicBoolean supersededRan = new AtomicBoolean();
+		scheduler.submit(CLASS_A, () -> supersededRan.set(true));
+		CountDownLatch finished = new CountDownLatch(1);
+		scheduler.submit(CLASS_A, finished::countDown);
+
+		release.countDown();
+		assertThat(finished.await(10, TimeUnit.SECONDS), is(true));
+		awaitIdle(scheduler);
+
+		assertThat(firstInterrupted.get(), is(false));
+		assertThat(supersededRan.get(), is(false));
+
+		DecompileScheduler.Stats stats = scheduler.getStats();
+		assertThat(stats.getQueueDepth(), is(0));
+		assertThat(stats.getCompletedCount(), is(2L));
+		assertThat(stats.getSupersededCount(), is(1L));
+		assertThat(stats.getInterruptedCount(), is(0L));
+	}
+
+	@Test
+	public void interruptsRequestForOtherClass() throws Exception {
+		DecompileScheduler scheduler = new DecompileScheduler();
+
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicBoolean interrupted = new AtomicBoolean();
+		scheduler.submit(CLASS_A, () -> {
+			started.countDown();
+			interrupted.set(awaitInterrupt());
+		});
+		started.await();
+
+		CountDownLatch finished = new CountDownLatch(1);
+		scheduler.submit(CLASS_B, finished::countDown);
+
+		assertThat(finished.await(10, TimeUnit.SECONDS), is(true));
+		awaitIdle(scheduler);
+
+		assertThat(interrupted.get(), is(true));
+
+		DecompileScheduler.Stats stats = scheduler.getStats();
+		assertThat(stats.getQueueDepth(), is(0));
+		assertThat(stats.getCompletedCount(), is(1L));
+		assertThat(stats.getSupersededCount(), is(0L));
+		assertThat(stats.getInterruptedCount(), is(1L));
+	}
+
+	@Test
+	public void cancelAllAndWait() throws Exception {
+		DecompileScheduler scheduler = new DecompileScheduler();
+
+		CountDownLatch started = new CountDownLatch(2);
+		AtomicBoolean requestInterrupted = new AtomicBoolean();
+		AtomicBoolean backgroundInterrupted = new AtomicBoolean();
+		scheduler.submit(CLASS_A, () -> {
+			started.countDown();
+			requestInterrupted.set(awaitInterrupt());
+		});
+		scheduler.submitBackground(() -> {
+			started.countDown();
+			backgroundInterrupted.set(awaitInterrupt());
+		});
+		started.await();
+
+		// returns only once both tasks have seen the interrupt and finished
+		scheduler.cancelAllAndWait();
+
+		assertThat(requestInterrupted.get(), is(true));
+		assertThat(backgroundInterrupted.get(), is(true));
+
+		DecompileScheduler.Stats stats = scheduler.getStats();
+		assertThat(stats.getQueueDepth(), is(0));
+		assertThat(stats.getCompletedCount(), is(0L));
+		assertThat(stats.getInterruptedCount(), is(1L));
+	}
+
+	/**
+	 * Waits for the last request to be counted, which happens just after its task has finished.
+	 */
+	private static void awaitIdle(DecompileScheduler scheduler) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (scheduler.getStats().getQueueDepth() > 0) {
+			assertThat(System.nanoTime() < deadline, is(true));
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * @return whether the thread was interrupted, which is left set, rather than having waited for too long
+	 */
+	private static boolean awaitInterrupt() {
+		try {
+			Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return true;
+		}
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch latch, AtomicBoolean interrupted) {
+		while (true) {
+			try {
+				latch.await();
+				return;
+			} catch (InterruptedException e) {
+				interrupted.set(true);
+			}
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package cuchaz.enigma.gui;
+
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import org.junit.Test;
+
+import static cuchaz.enigma.TestEntryFactory.newClass;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestSourcePrefetcher {
+
+	private static final ClassEntry CLASS_A = newClass("a");
+
+	@Test
+	public void keepsSources() {
+		SourcePrefetcher prefetcher = createPrefetcher();
+
+		DecompiledClassSource source = DecompiledClassSource.text(CLASS_A, "a");
+		prefetcher.put(CLASS_A, source, prefetcher.getGeneration());
+
+		assertThat(prefetcher.get(CLASS_A), is(sameInstance(source)));
+	}
+
+	@Test
+	public void dropsSourcesFromBeforeClear() {
+		SourcePrefetcher prefetcher = createPrefetcher();
+
+		// started decompiling before the jar changed, and finished after
+		int generation = prefetcher.getGeneration();
+		prefetcher.clear();
+		prefetcher.put(CLASS_A, DecompiledClassSource.text(CLASS_A, "a"), generation);
+
+		assertThat(prefetcher.get(CLASS_A), is(nullValue()));
+	}
+
+	private static SourcePrefetcher createPrefetcher() {
+		return new SourcePrefetcher(new DecompileScheduler(), classEntry -> {
+			throw new UnsupportedOperationException();
+		});
+	}
+}
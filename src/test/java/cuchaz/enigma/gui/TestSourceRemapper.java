@@ -0,0 +1,125 @@
+package cuchaz.enigma.gui;
+
+import cuchaz.enigma.analysis.Token;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestSourceRemapper {
+
+	private static final String SOURCE = "a b(c, d) { e.f(); }";
+	private static final List<Token> TOKENS = tokens(SOURCE, "a", "b", "c", "d", "e", "f");
+
+	@Test
+	public void remapsNames() {
+		SourceRemapper.Result result = remap("Longer", null, "x", "yyy", null, "z");
+
+		assertThat(result.getSource(), is("Longer b(x, yyy) { e.z(); }"));
+		assertRemappedTokens(result, "Longer", "b", "x", "yyy", "e", "z");
+	}
+
+	@Test
+	public void remapsNothing() {
+		SourceRemapper.Result result = remap(null, null, null, null, null, null);
+
+		assertThat(result.getSource(), is(SOURCE));
+		assertThat(result.isEmpty(), is(true));
+		assertRemappedTokens(result, "a", "b", "c", "d", "e", "f");
+	}
+
+	@Test
+	public void editsOnlyRenamedTokens() {
+		SourceRemapper.Result oldResult = remap("First", "second", "x", null, "y", "last");
+
+		// the start gets shorter, the middle and the end longer, and the renamed tokens in the middle form a run
+		String[][] renames = {
+				{"F", "second", "x", null, "y", "last"},
+				{"First", "second", "xxx", "ddd", "y", "last"},
+				{"First", "second", "x", null, "y", "theVeryLast"},
+				{"F", "s", "x", null, "yyyy", "l"},
+				{"First", "second", "x", null, "y", "last"},
+		};
+
+		String[] oldNames = {"First", "second", "x", null, "y", "last"};
+		for (String[] names : renames) {
+			SourceRemapper.Result newResult = remap(names);
+
+			BitSet renamedTokens = new BitSet();
+			for (int i = 0; i < names.length; i++) {
+				if (!Objects.equals(oldNames[i], names[i])) {
+					renamedTokens.set(i);
+				}
+			}
+
+			List<DecompiledClassSource.Edit> edits = DecompiledClassSource.createEdits(TOKENS, renamedTokens, oldResult, newResult);
+			assertThat(apply(oldResult.getSource(), edits), is(newResult.getSource()));
+		}
+	}
+
+	@Test
+	public void separatesRunsOfRenamedTokens() {
+		SourceRemapper.Result oldResult = remap(null, null, null, null, null, null);
+		SourceRemapper.Result newResult = remap("A", null, "cc", "dd", null, "F");
+
+		BitSet renamedTokens = new BitSet();
+		renamedTokens.set(0);
+		renamedTokens.set(2, 4);
+		renamedTokens.set(5);
+
+		List<DecompiledClassSource.Edit> edits = DecompiledClassSource.createEdits(TOKENS, renamedTokens, oldResult, newResult);
+
+		assertThat(edits, hasSize(3));
+		assertEdit(edits.get(0), 0, 1, "A");
+		assertEdit(edits.get(1), 4, 4, "cc, dd");
+		assertEdit(edits.get(2), 14, 1, "F");
+		assertThat(apply(oldResult.getSource(), edits), is("A b(cc, dd) { e.F(); }"));
+	}
+
+	private static SourceRemapper.Result remap(String... names) {
+		SourceRemapper remapper = new SourceRemapper(SOURCE, TOKENS);
+
+		int[] index = {0};
+		return remapper.remap((token, movedToken) -> names[index[0]++]);
+	}
+
+	private static void assertRemappedTokens(SourceRemapper.Result result, String... texts) {
+		for (int i = 0; i < TOKENS.size(); i++) {
+			Token remappedToken = result.getRemappedToken(TOKENS.get(i));
+			assertThat(result.getSource().substring(remappedToken.start, remappedToken.end), is(texts[i]));
+			assertThat(remappedToken.text, is(texts[i]));
+		}
+	}
+
+	private static void assertEdit(DecompiledClassSource.Edit edit, int offset, int length, String text) {
+		assertThat(edit.offset, is(offset));
+		assertThat(edit.length, is(length));
+		assertThat(edit.text, is(text));
+	}
+
+	private static String apply(String source, List<DecompiledClassSource.Edit> edits) {
+		StringBuilder builder = new StringBuilder(source);
+		for (ListIterator<DecompiledClassSource.Edit> iterator = edits.listIterator(edits.size()); iterator.hasPrevious(); ) {
+			DecompiledClassSource.Edit edit = iterator.previous();
+			builder.replace(edit.offset, edit.offset + edit.length, edit.text);
+		}
+		return builder.toString();
+	}
+
+	private static List<Token> tokens(String source, String... names) {
+		List<Token> tokens = new ArrayList<>();
+		int offset = 0;
+		for (String name : names) {
+			int start = source.indexOf(name, offset);
+			tokens.add(new Token(start, start + name.length(), source));
+			offset = start + name.length();
+		}
+		return tokens;
+	}
+}